@@ -0,0 +1,736 @@
+/*
+ * KAM Navigator Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import org.openbel.cytoscape.webservice.CallContext;
+import org.openbel.cytoscape.webservice.KamService;
+import org.openbel.cytoscape.webservice.KamServiceFactory;
+import org.openbel.cytoscape.webservice.KamServiceFuture;
+import org.openbel.cytoscape.webservice.KamServiceLoader;
+import org.openbel.cytoscape.webservice.KamServiceTransform;
+import org.openbel.cytoscape.webservice.LruCache;
+
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.EdgeFilter;
+import org.openbel.framework.ws.model.FunctionType;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamHandle;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.LoadKamResponse;
+import org.openbel.framework.ws.model.Namespace;
+import org.openbel.framework.ws.model.NamespaceDescriptor;
+import org.openbel.framework.ws.model.NamespaceValue;
+import org.openbel.framework.ws.model.NodeFilter;
+import org.openbel.framework.ws.model.SimplePath;
+
+/**
+ * {@link CachingKamService} is a {@link KamService} that caches the
+ * supporting {@link BelTerm terms} of {@link KamNode kam nodes}, the
+ * supporting {@link BelStatement evidence} of {@link KamEdge kam edges} and
+ * the adjacent {@link KamEdge kam edges} of {@link KamNode kam nodes}.
+ *
+ * <p>
+ * Cached entries are keyed by {@link KamIdentifier} and node or edge id.
+ * The {@link KamIdentifier} overloads of
+ * {@link #getSupportingTerms(KamIdentifier, KamNode)},
+ * {@link #getSupportingEvidence(KamIdentifier, KamEdge)} and
+ * {@link #getAdjacentKamEdges(KamIdentifier, KamNode, EdgeDirectionType)}
+ * are always cached. The matching {@link KamService} methods are cached too
+ * when the KAM can be told: by the {@link CallContext#getKamTag() kam tag}
+ * of the call for supporting terms and evidence, and by the
+ * {@link DialectHandle dialect handle} for unfiltered adjacent edges. Every
+ * other call is passed to the wrapped {@link KamService}.
+ * Cache misses of these overloads are fetched through the
+ * {@link KamServiceLoader}, which batches and deduplicates them, with the
+ * {@link CallContext#setKamTag(String) kam tag} of the KAM.
+ * Entries for a KAM are dropped as soon as it is seen with a new compiled
+ * time.
+ * </p>
+ *
+ * <p>
+ * This class is a singleton wrapping the {@link KamServiceFactory factory}
+ * {@link KamService}.
+ * </p>
+ */
+public class CachingKamService implements KamService {
+    private static final int MAX_ENTRIES = 2000;
+    // weight is the number of terms or statements
+    private static final long MAX_WEIGHT = 50000;
+    // supporting data can't change without a recompile, so no expiry
+    private static final long TTL_MILLIS = 0;
+    private static final int MAX_ADJACENCY_ENTRIES = 10000;
+    // weight is the number of edges
+    private static final long MAX_ADJACENCY_WEIGHT = 200000;
+    private static CachingKamService instance;
+
+    private final KamService kamService;
+    private final KamServiceLoader loader;
+    private final LruCache<CacheKey, List<BelTerm>> terms;
+    private final LruCache<CacheKey, List<BelStatement>> evidence;
+    private final LruCache<CacheKey, List<KamEdge>> adjacency;
+    // last compiled time seen for each KAM name and WSDL URL
+    private final Map<String, Long> compiledTimes = new HashMap<String, Long>();
+
+    /**
+     * Retrieve the singleton instance of {@link CachingKamService}.
+     *
+     * @return the singleton instance
+     */
+    public static synchronized CachingKamService getInstance() {
+        if (instance == null) {
+            instance = new CachingKamService(KamServiceFactory.getInstance()
+                    .getKAMService());
+        }
+
+        return instance;
+    }
+
+    /**
+     * Private constructor for singleton.
+     */
+    private CachingKamService(final KamService kamService) {
+        this.kamService = kamService;
+        this.loader = KamServiceLoader.getInstance();
+        this.terms = new LruCache<CacheKey, List<BelTerm>>(MAX_ENTRIES,
+                MAX_WEIGHT, TTL_MILLIS, new ListWeigher<BelTerm>());
+        this.evidence = new LruCache<CacheKey, List<BelStatement>>(
+                MAX_ENTRIES, MAX_WEIGHT, TTL_MILLIS,
+                new ListWeigher<BelStatement>());
+        this.adjacency = new LruCache<CacheKey, List<KamEdge>>(
+                MAX_ADJACENCY_ENTRIES, MAX_ADJACENCY_WEIGHT, TTL_MILLIS,
+                new ListWeigher<KamEdge>());
+    }
+
+    /**
+     * Retrieves the supporting {@link BelTerm terms} for a {@link KamNode kam
+     * node} of a KAM, using the cache when possible.
+     *
+     * @param kamId
+     *            the {@link KamIdentifier} of the KAM that holds the node
+     * @param node
+     *            the {@link KamNode kam node}
+     * @return the {@link List} of {@link BelTerm terms}, which will not be
+     *         {@code null}
+     * @throws IllegalArgumentException
+     *             Thrown if a parameter is {@code null}
+     */
+    public List<BelTerm> getSupportingTerms(final KamIdentifier kamId,
+            final KamNode node) {
+        if (kamId == null || node == null) {
+            throw new IllegalArgumentException("Null parameter");
+        }
+
+        checkCompiledTime(kamId);
+        final CacheKey key = new CacheKey(kamId, node.getId(), null);
+        List<BelTerm> cached = terms.get(key);
+        if (cached == null) {
+            final String previousTag = CallContext.setKamTag(kamId.toString());
+            try {
+                cached = await(loader.loadSupportingTerms(node));
+            } finally {
+                CallContext.restoreKamTag(previousTag);
+            }
+            terms.put(key, cached);
+        }
+        return new ArrayList<BelTerm>(cached);
+    }
+
+    /**
+     * Retrieves the supporting {@link BelStatement statements} for a
+     * {@link KamEdge kam edge} of a KAM, using the cache when possible.
+     *
+     * @param kamId
+     *            the {@link KamIdentifier} of the KAM that holds the edge
+     * @param edge
+     *            the {@link KamEdge kam edge}
+     * @return the {@link List} of {@link BelStatement statements}, which will
+     *         not be {@code null}
+     * @throws IllegalArgumentException
+     *             Thrown if a parameter is {@code null}
+     */
+    public List<BelStatement> getSupportingEvidence(final KamIdentifier kamId,
+            final KamEdge edge) {
+        if (kamId == null || edge == null) {
+            throw new IllegalArgumentException("Null parameter");
+        }
+
+        checkCompiledTime(kamId);
+        final CacheKey key = new CacheKey(kamId, edge.getId(), null);
+        List<BelStatement> cached = evidence.get(key);
+        if (cached == null) {
+            final String previousTag = CallContext.setKamTag(kamId.toString());
+            try {
+                cached = await(loader.loadSupportingEvidence(edge));
+            } finally {
+                CallContext.restoreKamTag(previousTag);
+            }
+            evidence.put(key, cached);
+        }
+        return new ArrayList<BelStatement>(cached);
+    }
+
+    /**
+     * Retrieves the supporting {@link BelTerm terms} for a {@link KamNode kam
+     * node} of a KAM without blocking.  A cached result is returned as a
+     * completed future, otherwise it is fetched through the
+     * {@link KamServiceLoader loader} and its result is cached.
+     *
+     * @param kamId
+     *            the {@link KamIdentifier} of the KAM that holds the node
+     * @param node
+     *            the {@link KamNode kam node}
+     * @return the {@link KamServiceFuture future} {@link List} of
+     *         {@link BelTerm terms}
+     * @throws IllegalArgumentException
+     *             Thrown if a parameter is {@code null}
+     * @see #getSupportingTerms(KamIdentifier, KamNode)
+     */
+    public KamServiceFuture<List<BelTerm>> getSupportingTermsAsync(
+            final KamIdentifier kamId, final KamNode node) {
+        if (kamId == null || node == null) {
+            throw new IllegalArgumentException("Null parameter");
+        }
+
+        checkCompiledTime(kamId);
+        final CacheKey key = new CacheKey(kamId, node.getId(), null);
+        final List<BelTerm> cached = terms.get(key);
+        if (cached != null) {
+            return KamServiceFuture.completed(new ArrayList<BelTerm>(cached));
+        }
+        final String previousTag = CallContext.setKamTag(kamId.toString());
+        try {
+            return loader.loadSupportingTerms(node).transform(
+                    new CachePut<BelTerm>(terms, key));
+        } finally {
+            CallContext.restoreKamTag(previousTag);
+        }
+    }
+
+    /**
+     * Retrieves the supporting {@link BelStatement statements} for a
+     * {@link KamEdge kam edge} of a KAM without blocking.  A cached result is
+     * returned as a completed future, otherwise it is fetched through the
+     * {@link KamServiceLoader loader} and its result is cached.
+     *
+     * @param kamId
+     *            the {@link KamIdentifier} of the KAM that holds the edge
+     * @param edge
+     *            the {@link KamEdge kam edge}
+     * @return the {@link KamServiceFuture future} {@link List} of
+     *         {@link BelStatement statements}
+     * @throws IllegalArgumentException
+     *             Thrown if a parameter is {@code null}
+     * @see #getSupportingEvidence(KamIdentifier, KamEdge)
+     */
+    public KamServiceFuture<List<BelStatement>> getSupportingEvidenceAsync(
+            final KamIdentifier kamId, final KamEdge edge) {
+        if (kamId == null || edge == null) {
+            throw new IllegalArgumentException("Null parameter");
+        }
+
+        checkCompiledTime(kamId);
+        final CacheKey key = new CacheKey(kamId, edge.getId(), null);
+        final List<BelStatement> cached = evidence.get(key);
+        if (cached != null) {
+            return KamServiceFuture.completed(new ArrayList<BelStatement>(
+                    cached));
+        }
+        final String previousTag = CallContext.setKamTag(kamId.toString());
+        try {
+            return loader.loadSupportingEvidence(edge).transform(
+                    new CachePut<BelStatement>(evidence, key));
+        } finally {
+            CallContext.restoreKamTag(previousTag);
+        }
+    }
+
+    /**
+     * Retrieves the adjacent {@link KamEdge kam edges} of a {@link KamNode kam
+     * node} of a loaded KAM, using the cache when possible.
+     *
+     * @param kamId
+     *            the {@link KamIdentifier} of the loaded KAM that holds the
+     *            node
+     * @param node
+     *            the {@link KamNode kam node}
+     * @param direction
+     *            the {@link EdgeDirectionType direction} of the edges
+     * @return the {@link List} of {@link KamEdge kam edges}, which will not
+     *         be {@code null}
+     * @throws IllegalArgumentException
+     *             Thrown if a parameter is {@code null}
+     */
+    public List<KamEdge> getAdjacentKamEdges(final KamIdentifier kamId,
+            final KamNode node, final EdgeDirectionType direction) {
+        final List<KamEdge> cached = getCachedAdjacentKamEdges(kamId, node,
+                direction);
+        if (cached != null) {
+            return cached;
+        }
+
+        final List<KamEdge> edges;
+        final String previousTag = CallContext.setKamTag(kamId.toString());
+        try {
+            edges = await(loader.loadAdjacentKamEdges(KamSession.getInstance()
+                    .getDialectHandle(kamId), node, direction));
+        } finally {
+            CallContext.restoreKamTag(previousTag);
+        }
+        adjacency.put(new CacheKey(kamId, node.getId(), direction), edges);
+        return new ArrayList<KamEdge>(edges);
+    }
+
+    /**
+     * Retrieves the adjacent {@link KamEdge kam edges} of a {@link KamNode kam
+     * node} of a loaded KAM without blocking.  A cached result is returned as
+     * a completed future, otherwise it is fetched through the
+     * {@link KamServiceLoader loader} and its result is cached.
+     *
+     * @param kamId
+     *            the {@link KamIdentifier} of the loaded KAM that holds the
+     *            node
+     * @param node
+     *            the {@link KamNode kam node}
+     * @param direction
+     *            the {@link EdgeDirectionType direction} of the edges
+     * @return the {@link KamServiceFuture future} {@link List} of
+     *         {@link KamEdge kam edges}
+     * @throws IllegalArgumentException
+     *             Thrown if a parameter is {@code null}
+     * @see #getAdjacentKamEdges(KamIdentifier, KamNode, EdgeDirectionType)
+     */
+    public KamServiceFuture<List<KamEdge>> getAdjacentKamEdgesAsync(
+            final KamIdentifier kamId, final KamNode node,
+            final EdgeDirectionType direction) {
+        final List<KamEdge> cached = getCachedAdjacentKamEdges(kamId, node,
+                direction);
+        if (cached != null) {
+            return KamServiceFuture.completed(cached);
+        }
+
+        final String previousTag = CallContext.setKamTag(kamId.toString());
+        try {
+            return loader.loadAdjacentKamEdges(
+                    KamSession.getInstance().getDialectHandle(kamId), node,
+                    direction).transform(
+                    new CachePut<KamEdge>(adjacency, new CacheKey(kamId, node
+                            .getId(), direction)));
+        } finally {
+            CallContext.restoreKamTag(previousTag);
+        }
+    }
+
+    /**
+     * Returns the cached adjacent {@link KamEdge kam edges} of a
+     * {@link KamNode kam node} without calling the web service. A cached
+     * {@link EdgeDirectionType#BOTH BOTH} result also answers
+     * {@link EdgeDirectionType#FORWARD FORWARD} and
+     * {@link EdgeDirectionType#REVERSE REVERSE} lookups.
+     *
+     * @param kamId
+     *            the {@link KamIdentifier} of the KAM that holds the node
+     * @param node
+     *            the {@link KamNode kam node}
+     * @param direction
+     *            the {@link EdgeDirectionType direction} of the edges
+     * @return the {@link List} of {@link KamEdge kam edges}, or {@code null}
+     *         if not cached
+     * @throws IllegalArgumentException
+     *             Thrown if a parameter is {@code null}
+     */
+    public List<KamEdge> getCachedAdjacentKamEdges(final KamIdentifier kamId,
+            final KamNode node, final EdgeDirectionType direction) {
+        if (kamId == null || node == null || direction == null) {
+            throw new IllegalArgumentException("Null parameter");
+        }
+
+        checkCompiledTime(kamId);
+        final List<KamEdge> cached = adjacency.get(new CacheKey(kamId, node
+                .getId(), direction));
+        if (cached != null) {
+            return new ArrayList<KamEdge>(cached);
+        }
+        if (direction == EdgeDirectionType.BOTH) {
+            return null;
+        }
+
+        final List<KamEdge> both = adjacency.get(new CacheKey(kamId, node
+                .getId(), EdgeDirectionType.BOTH));
+        if (both == null) {
+            return null;
+        }
+
+        // forward edges leave the node, reverse edges enter it
+        final boolean forward = direction == EdgeDirectionType.FORWARD;
+        final List<KamEdge> edges = new ArrayList<KamEdge>();
+        for (final KamEdge edge : both) {
+            final KamNode end = forward ? edge.getSource() : edge.getTarget();
+            if (node.getId().equals(end.getId())) {
+                edges.add(edge);
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Drops all cached entries for a KAM.
+     *
+     * @param kamId
+     *            the {@link KamIdentifier} of the KAM
+     */
+    public void invalidate(final KamIdentifier kamId) {
+        invalidate(kamId, false);
+    }
+
+    /**
+     * Drops all cached entries.
+     */
+    public void invalidateAll() {
+        terms.invalidateAll();
+        evidence.invalidateAll();
+        adjacency.invalidateAll();
+    }
+
+    /**
+     * Returns the number of cached lookups that found a value.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return terms.getHitCount() + evidence.getHitCount()
+                + adjacency.getHitCount();
+    }
+
+    /**
+     * Returns the number of cached lookups that did not find a value.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return terms.getMissCount() + evidence.getMissCount()
+                + adjacency.getMissCount();
+    }
+
+    /**
+     * Returns the number of cached entries evicted by a bound or by expiry.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return terms.getEvictionCount() + evidence.getEvictionCount()
+                + adjacency.getEvictionCount();
+    }
+
+    private void checkCompiledTime(final KamIdentifier kamId) {
+        final String kam = kamKey(kamId.getName(), kamId.getWsdlUrl());
+        final Long compiled = Long.valueOf(kamId.getCompiledTime());
+        final Long previous;
+        synchronized (compiledTimes) {
+            previous = compiledTimes.put(kam, compiled);
+        }
+
+        if (previous != null && !previous.equals(compiled)) {
+            // KAM was recompiled, drop entries of the older compiles
+            invalidate(kamId, true);
+        }
+    }
+
+    private void invalidate(final KamIdentifier kamId,
+            final boolean keepCurrent) {
+        for (final CacheKey key : terms.keys()) {
+            if (key.matches(kamId, keepCurrent)) {
+                terms.invalidate(key);
+            }
+        }
+        for (final CacheKey key : evidence.keys()) {
+            if (key.matches(kamId, keepCurrent)) {
+                evidence.invalidate(key);
+            }
+        }
+        for (final CacheKey key : adjacency.keys()) {
+            if (key.matches(kamId, keepCurrent)) {
+                adjacency.invalidate(key);
+            }
+        }
+    }
+
+    private static <T> T await(final KamServiceFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for kam service",
+                    e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    private static String kamKey(final String name, final String wsdlUrl) {
+        return name + "|" + wsdlUrl;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reloadClientConnector() {
+        kamService.reloadClientConnector();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByNamespaceValues(KamHandle kamHandle,
+            DialectHandle dialectHandle, List<NamespaceValue> namespaceValues,
+            NodeFilter nodeFilter) {
+        return kamService.findKamNodesByNamespaceValues(kamHandle,
+                dialectHandle, namespaceValues, nodeFilter);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<NamespaceValue> findNamespaceValues(
+            Collection<String> patterns, Collection<Namespace> namespaces) {
+        return kamService.findNamespaceValues(patterns, namespaces);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<NamespaceDescriptor> getAllNamespaces() {
+        return kamService.getAllNamespaces();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Kam> getCatalog() {
+        return kamService.getCatalog();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DialectHandle getDefaultDialect(KamHandle kamHandle) {
+        return kamService.getDefaultDialect(kamHandle);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LoadKamResponse loadKam(Kam kam) {
+        return kamService.loadKam(kam);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Cached as {@link #getSupportingTerms(KamIdentifier, KamNode)} when the
+     * {@link CallContext#getKamTag() kam tag} of the call names a loaded KAM.
+     */
+    @Override
+    public List<BelTerm> getSupportingTerms(KamNode node) {
+        final KamIdentifier kamId = KamSession.getInstance().getKamIdentifier(
+                CallContext.getKamTag());
+        if (kamId == null || node == null) {
+            return kamService.getSupportingTerms(node);
+        }
+        return getSupportingTerms(kamId, node);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Cached as {@link #getSupportingEvidence(KamIdentifier, KamEdge)} when
+     * the {@link CallContext#getKamTag() kam tag} of the call names a loaded
+     * KAM.
+     */
+    @Override
+    public List<BelStatement> getSupportingEvidence(KamEdge edge) {
+        final KamIdentifier kamId = KamSession.getInstance().getKamIdentifier(
+                CallContext.getKamTag());
+        if (kamId == null || edge == null) {
+            return kamService.getSupportingEvidence(edge);
+        }
+        return getSupportingEvidence(kamId, edge);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByFunction(KamHandle kamHandle,
+            DialectHandle dialectHandle, FunctionType function) {
+        return kamService.findKamNodesByFunction(kamHandle, dialectHandle,
+                function);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByPatterns(KamHandle kamHandle,
+            DialectHandle dialectHandle, String regex, NodeFilter nf) {
+        return kamService.findKamNodesByPatterns(kamHandle, dialectHandle,
+                regex, nf);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Cached as
+     * {@link #getAdjacentKamEdges(KamIdentifier, KamNode, EdgeDirectionType)}
+     * when there is no {@link EdgeFilter edge filter} and the
+     * {@link DialectHandle dialect handle} is the default dialect of a loaded
+     * KAM.
+     */
+    @Override
+    public List<KamEdge> getAdjacentKamEdges(DialectHandle dialectHandle,
+            KamNode node, EdgeDirectionType direction, EdgeFilter ef) {
+        final KamIdentifier kamId = ef == null ? KamSession.getInstance()
+                .getKamIdentifier(dialectHandle) : null;
+        if (kamId == null || node == null || direction == null) {
+            return kamService.getAdjacentKamEdges(dialectHandle, node,
+                    direction, ef);
+        }
+        return getAdjacentKamEdges(kamId, node, direction);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SimplePath> interconnect(DialectHandle dialectHandle,
+            Collection<KamNode> sources, Integer maxDepth) {
+        return kamService.interconnect(dialectHandle, sources, maxDepth);
+    }
+
+    /**
+     * Caches the result of a call and returns a copy of it.
+     */
+    private static final class CachePut<T> implements
+            KamServiceTransform<List<T>, List<T>> {
+        private final LruCache<CacheKey, List<T>> cache;
+        private final CacheKey key;
+
+        private CachePut(final LruCache<CacheKey, List<T>> cache,
+                final CacheKey key) {
+            this.cache = cache;
+            this.key = key;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public List<T> apply(List<T> result) {
+            cache.put(key, result);
+            return new ArrayList<T>(result);
+        }
+    }
+
+    /**
+     * Weighs a cached {@link List} by its size.
+     */
+    private static final class ListWeigher<T> implements
+            LruCache.Weigher<List<T>> {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int weigh(List<T> value) {
+            return Math.max(1, value.size());
+        }
+    }
+
+    /**
+     * Cache key of a KAM, a node or edge id and, for adjacency, a direction.
+     */
+    private static final class CacheKey {
+        private final KamIdentifier kamId;
+        private final String id;
+        private final EdgeDirectionType direction;
+
+        private CacheKey(final KamIdentifier kamId, final String id,
+                final EdgeDirectionType direction) {
+            this.kamId = kamId;
+            this.id = id;
+            this.direction = direction;
+        }
+
+        private boolean matches(final KamIdentifier other,
+                final boolean skipSameCompile) {
+            if (!kamId.getName().equals(other.getName())
+                    || !kamId.getWsdlUrl().equals(other.getWsdlUrl())) {
+                return false;
+            }
+            return !skipSameCompile
+                    || kamId.getCompiledTime() != other.getCompiledTime();
+        }
+
+        @Override
+        public int hashCode() {
+            int result = 31 * kamId.hashCode() + (id == null ? 0 : id.hashCode());
+            return 31 * result + (direction == null ? 0 : direction.hashCode());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            final CacheKey other = (CacheKey) obj;
+            return kamId.equals(other.kamId)
+                    && (id == null ? other.id == null : id.equals(other.id))
+                    && direction == other.direction;
+        }
+    }
+}
@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -32,12 +33,13 @@ import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import javax.swing.table.AbstractTableModel;
 
-import org.openbel.cytoscape.webservice.KamService;
-import org.openbel.cytoscape.webservice.KamServiceFactory;
+import org.openbel.cytoscape.webservice.KamServiceCallback;
+import org.openbel.cytoscape.webservice.KamServiceFuture;
 
 import org.openbel.framework.ws.model.Annotation;
 import org.openbel.framework.ws.model.BelStatement;
@@ -49,17 +51,24 @@ import org.openbel.framework.ws.model.KamNode;
 import cytoscape.CyEdge;
 import cytoscape.CyNode;
 import cytoscape.Cytoscape;
+import cytoscape.logger.CyLogger;
 import cytoscape.view.cytopanels.CytoPanelImp;
 
 /**
  * {@link DetailsView} provides the UI to show kam node/edge info in the result
  * panel of cytoscape.
  *
+ * <p>
+ * Supporting terms and evidence are retrieved off the event dispatch thread,
+ * only the result of the latest selection is shown.
+ * </p>
+ *
  * @author Anthony Bargnesi &lt;abargnesi@selventa.com&gt;
  */
 public class DetailsView {
+    private static final CyLogger log = CyLogger.getLogger(DetailsView.class);
     private static DetailsView instance;
-    private final KamService kamService;
+    private final CachingKamService kamService;
     private final CytoPanelImp resultsPanel;
     private final JPanel nodeDetailPanel;
     private final JPanel edgeDetailPanel;
@@ -67,6 +76,8 @@ public class DetailsView {
     private final StatementTableModel stmtTableModel;
     private final AnnotationTableModel annTableModel;
     private final CitationTableModel citTableModel;
+    // latest details request, only accessed on the event dispatch thread
+    private KamServiceFuture<?> pending;
 
     public static DetailsView getInstance() {
         if (instance == null) {
@@ -79,7 +90,7 @@ public class DetailsView {
     private DetailsView() {
         resultsPanel = (CytoPanelImp) Cytoscape.getDesktop()
                 .getCytoPanel(SwingConstants.EAST);
-        this.kamService = KamServiceFactory.getInstance().getKAMService();
+        this.kamService = CachingKamService.getInstance();
 
         // build node details panel and add to results panel
         nodeDetailPanel = new JPanel();
@@ -183,6 +194,7 @@ public class DetailsView {
      * @param node the {@link CyNode cytoscape node} that is active
      */
     public void showNodeDetails(final CyNode node) {
+        cancelPending();
         clearEdgeModels();
         
         final KamNode kamNode = NetworkUtility.getKAMNode(node);
@@ -192,15 +204,21 @@ public class DetailsView {
             return;
         }
 
-        final List<BelTerm> terms = kamService.getSupportingTerms(kamNode);
-
-        // set node details and show results panel
-        termTableModel.setTerms(terms);
+        final KamServiceFuture<List<BelTerm>> future = kamService
+                .getSupportingTermsAsync(new KamIdentifier(node), kamNode);
+        pending = future;
+        future.addCallback(new DetailsCallback<List<BelTerm>>(future) {
+            @Override
+            protected void show(final List<BelTerm> terms) {
+                // set node details and show results panel
+                termTableModel.setTerms(terms);
 
-        // show node details panel
-        int nodeTabIdx = resultsPanel.indexOfComponent(nodeDetailPanel);
-        resultsPanel.setSelectedIndex(nodeTabIdx);
-        nodeDetailPanel.setVisible(true);
+                // show node details panel
+                int nodeTabIdx = resultsPanel.indexOfComponent(nodeDetailPanel);
+                resultsPanel.setSelectedIndex(nodeTabIdx);
+                nodeDetailPanel.setVisible(true);
+            }
+        });
     }
 
     /**
@@ -210,6 +228,7 @@ public class DetailsView {
      * @param edge the {@link CyEdge cytoscape edge} that is active
      */
     public void showEdgeDetails(final CyEdge edge) {
+        cancelPending();
         termTableModel.clear();
         
         final KamEdge kamEdge = NetworkUtility.getKAMEdge(edge);
@@ -219,16 +238,34 @@ public class DetailsView {
             return;
         }
 
-        final List<BelStatement> statements = kamService
-                .getSupportingEvidence(kamEdge);
-
-        // set edge details and show results panel
-        stmtTableModel.setStatements(statements);
+        // edges take their KAM from the source node
+        final KamServiceFuture<List<BelStatement>> future = kamService
+                .getSupportingEvidenceAsync(new KamIdentifier((CyNode) edge
+                        .getSource()), kamEdge);
+        pending = future;
+        future.addCallback(new DetailsCallback<List<BelStatement>>(future) {
+            @Override
+            protected void show(final List<BelStatement> statements) {
+                // set edge details and show results panel
+                stmtTableModel.setStatements(statements);
+
+                // show edge details panel
+                int edgeTabIdx = resultsPanel.indexOfComponent(edgeDetailPanel);
+                resultsPanel.setSelectedIndex(edgeTabIdx);
+                edgeDetailPanel.setVisible(true);
+            }
+        });
+    }
 
-        // show edge details panel
-        int edgeTabIdx = resultsPanel.indexOfComponent(edgeDetailPanel);
-        resultsPanel.setSelectedIndex(edgeTabIdx);
-        edgeDetailPanel.setVisible(true);
+    /**
+     * Cancels the details request of the previous selection, if it is still
+     * running.
+     */
+    private void cancelPending() {
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
     }
     
     private void clearEdgeModels() {
@@ -237,6 +274,53 @@ public class DetailsView {
         annTableModel.clear();
     }
 
+    /**
+     * Shows the result of a details request on the event dispatch thread,
+     * unless a later selection has replaced the request.
+     */
+    private abstract class DetailsCallback<T> implements KamServiceCallback<T> {
+        private final KamServiceFuture<T> future;
+
+        private DetailsCallback(final KamServiceFuture<T> future) {
+            this.future = future;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onSuccess(final T result) {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    if (pending != future) {
+                        return;
+                    }
+                    pending = null;
+                    show(result);
+                }
+            });
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onFailure(final Throwable t) {
+            if (!(t instanceof CancellationException)) {
+                log.warn("Error retrieving KAM details", t);
+            }
+        }
+
+        /**
+         * Shows the result, called on the event dispatch thread.
+         *
+         * @param result
+         *            the result of the request
+         */
+        protected abstract void show(T result);
+    }
+
     /**
      * The {@link AbstractTableModel table model} for the BEL terms of the
      * active node.
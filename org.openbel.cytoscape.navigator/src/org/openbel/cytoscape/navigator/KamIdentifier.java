@@ -73,6 +73,15 @@ public class KamIdentifier {
         return wsdlUrl;
     }
 
+    /**
+     * Returns the name and compile time of the kam, which tags its calls in
+     * the {@link org.openbel.cytoscape.webservice.KamServiceMetrics metrics}.
+     */
+    @Override
+    public String toString() {
+        return name + "@" + compiledTime;
+    }
+
     // TODO review and replace autogenerated hashcode / equals
     @Override
     public int hashCode() {
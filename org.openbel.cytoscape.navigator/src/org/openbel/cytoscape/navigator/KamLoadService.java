@@ -0,0 +1,372 @@
+/*
+ * KAM Navigator Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openbel.cytoscape.navigator.KamLoader.KAMLoadException;
+import org.openbel.cytoscape.webservice.CallContext;
+import org.openbel.cytoscape.webservice.Configuration;
+import org.openbel.cytoscape.webservice.KamService;
+import org.openbel.cytoscape.webservice.KamServiceCallback;
+import org.openbel.cytoscape.webservice.KamServiceFactory;
+import org.openbel.cytoscape.webservice.KamServiceFuture;
+import org.openbel.cytoscape.webservice.RequestLane;
+
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.KAMLoadStatus;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamHandle;
+import org.openbel.framework.ws.model.LoadKamResponse;
+
+import cytoscape.task.TaskMonitor;
+
+/**
+ * {@link KamLoadService} loads {@link Kam kams} asynchronously.
+ *
+ * <p>
+ * A load polls {@link KamService#loadKam(Kam)} until the KAM is loaded,
+ * starting after {@link #INITIAL_POLL_MS} and doubling the delay up to
+ * {@link #MAX_POLL_MS}, so small KAMs load quickly and large ones don't flood
+ * the server. On completion the {@link KamHandle kam handle} and default
+ * {@link DialectHandle dialect} are stored in the {@link KamSession}.
+ * </p>
+ *
+ * <p>
+ * Loads of the same {@link KamIdentifier} share one polling loop, each
+ * caller gets its own {@link KamServiceFuture future}. Cancelling a future
+ * detaches that caller, and polling stops once every caller has cancelled.
+ * </p>
+ *
+ * <p>
+ * Polls run in the {@link CallContext call context} of the caller that
+ * started the load, or of the first interactive caller to join a bulk load,
+ * so they are scheduled in that caller's lane and within its deadline.
+ * </p>
+ *
+ * <p>
+ * This class is a singleton to share loads across the plugin.
+ * </p>
+ */
+public class KamLoadService {
+    /**
+     * The delay before the first poll of a loading KAM, in milliseconds.
+     */
+    public static final long INITIAL_POLL_MS = 100;
+    /**
+     * The maximum delay between polls of a loading KAM, in milliseconds.
+     */
+    public static final long MAX_POLL_MS = 8000;
+    private static final int POLL_THREADS = 2;
+    private static final String THREAD_PREFIX = "kam-load-";
+    private static KamLoadService instance;
+
+    private final KamService kamService;
+    private final ScheduledExecutorService poller;
+    private final Map<KamIdentifier, Load> loads = new HashMap<KamIdentifier, Load>();
+
+    /**
+     * Retrieve the singleton instance of {@link KamLoadService}.
+     *
+     * @return the singleton instance
+     */
+    public static synchronized KamLoadService getInstance() {
+        if (instance == null) {
+            instance = new KamLoadService();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Private constructor for singleton.
+     */
+    private KamLoadService() {
+        this.kamService = KamServiceFactory.getInstance().getKAMService();
+        this.poller = Executors.newScheduledThreadPool(POLL_THREADS,
+                new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        final Thread t = new Thread(r, THREAD_PREFIX
+                                + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+
+    /**
+     * Loads a {@link Kam} identified by a {@link KamIdentifier}.
+     *
+     * @param kamId
+     *            the {@link KamIdentifier} of the KAM to load
+     * @param monitor
+     *            the {@link TaskMonitor monitor} to report progress to, can
+     *            be {@code null}
+     * @return the {@link KamServiceFuture future} {@link KamHandle kam
+     *         handle}, which fails with a {@link KAMLoadException} if the KAM
+     *         can't be loaded
+     */
+    public KamServiceFuture<KamHandle> load(final KamIdentifier kamId,
+            final TaskMonitor monitor) {
+        if (kamId == null) {
+            throw new IllegalArgumentException("kamId is null");
+        }
+
+        final KamServiceFuture<KamHandle> future = new KamServiceFuture<KamHandle>();
+        final Load load;
+        final boolean start;
+        synchronized (loads) {
+            Load existing = loads.get(kamId);
+            start = existing == null;
+            if (start) {
+                existing = new Load(kamId);
+                loads.put(kamId, existing);
+            } else if (CallContext.getLane() == RequestLane.INTERACTIVE
+                    && existing.lane == RequestLane.BULK) {
+                // poll in the interactive lane from now on
+                existing.adoptContext();
+            }
+            existing.subscribers.put(future, monitor);
+            load = existing;
+        }
+
+        if (monitor != null) {
+            monitor.setStatus("Loading \"" + kamId.getName() + "\" KAM.");
+            monitor.setPercentCompleted(-1);
+        }
+
+        future.addCallback(new KamServiceCallback<KamHandle>() {
+            @Override
+            public void onSuccess(KamHandle result) {
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (t instanceof CancellationException) {
+                    load.unsubscribe(future);
+                }
+            }
+        });
+
+        if (start) {
+            poller.execute(load);
+        }
+        return future;
+    }
+
+    /**
+     * Loads a {@link Kam} from the currently configured web service.
+     *
+     * @param kam
+     *            the {@link Kam} to load
+     * @param monitor
+     *            the {@link TaskMonitor monitor} to report progress to, can
+     *            be {@code null}
+     * @return the {@link KamServiceFuture future} {@link KamHandle kam
+     *         handle}
+     * @see #load(KamIdentifier, TaskMonitor)
+     */
+    public KamServiceFuture<KamHandle> load(final Kam kam,
+            final TaskMonitor monitor) {
+        return load(new KamIdentifier(kam, Configuration.getInstance()
+                .getWSDLURL()), monitor);
+    }
+
+    /**
+     * A shared polling loop for one KAM, each run is one poll.
+     */
+    private final class Load implements Runnable {
+        private final KamIdentifier kamId;
+        private final long started = System.currentTimeMillis();
+        // guarded by loads
+        private final Map<KamServiceFuture<KamHandle>, TaskMonitor> subscribers =
+                new LinkedHashMap<KamServiceFuture<KamHandle>, TaskMonitor>();
+        private ScheduledFuture<?> next;
+        private boolean cancelled = false;
+        // the lane and context polls run in, replaced by adoptContext
+        private volatile RequestLane lane;
+        private volatile Callable<Void> poll;
+        // only touched by the poll in progress
+        private Kam kam;
+        private long delay = INITIAL_POLL_MS;
+
+        private Load(final KamIdentifier kamId) {
+            this.kamId = kamId;
+            adoptContext();
+        }
+
+        /**
+         * Runs the following polls in the {@link CallContext call context}
+         * of the calling thread.
+         */
+        private void adoptContext() {
+            lane = CallContext.getLane();
+            poll = CallContext.propagate(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    poll();
+                    return null;
+                }
+            });
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run() {
+            try {
+                poll.call();
+            } catch (Exception e) {
+                finish(null, new KAMLoadException("KAM Load Failed", e));
+            }
+        }
+
+        private void poll() {
+            synchronized (loads) {
+                if (cancelled) {
+                    return;
+                }
+            }
+
+            try {
+                if (kam == null) {
+                    kam = resolve();
+                }
+
+                final LoadKamResponse res = kamService.loadKam(kam);
+                if (res.getLoadStatus() == KAMLoadStatus.COMPLETE) {
+                    final KamHandle kamHandle = res.getHandle();
+                    final DialectHandle dialectHandle = kamService
+                            .getDefaultDialect(kamHandle);
+                    KamSession.getInstance().addKam(kam, kamHandle,
+                            dialectHandle);
+                    finish(kamHandle, null);
+                } else if (res.getLoadStatus() == KAMLoadStatus.FAILED) {
+                    finish(null, new KAMLoadException("KAM Load Failed"));
+                } else {
+                    progress();
+                    synchronized (loads) {
+                        if (!cancelled) {
+                            next = poller.schedule(this, delay,
+                                    TimeUnit.MILLISECONDS);
+                        }
+                    }
+                    delay = Math.min(delay * 2, MAX_POLL_MS);
+                }
+            } catch (KAMLoadException e) {
+                finish(null, e);
+            } catch (RuntimeException e) {
+                finish(null, new KAMLoadException("KAM Load Failed", e));
+            }
+        }
+
+        private Kam resolve() throws KAMLoadException {
+            final String wsdlURL = Configuration.getInstance().getWSDLURL();
+            if (!wsdlURL.equals(kamId.getWsdlUrl())) {
+                throw new KAMLoadException("Currently configured around WSDL "
+                        + wsdlURL + " does not match KAM WSDL "
+                        + kamId.getWsdlUrl());
+            }
+
+            for (final Kam k : kamService.getCatalog()) {
+                if (k.getName().equals(kamId.getName())
+                        && k.getLastCompiled().toGregorianCalendar()
+                                .getTimeInMillis() == kamId.getCompiledTime()) {
+                    return k;
+                }
+            }
+            throw new KAMLoadException("Couldn't find KAM " + kamId.getName()
+                    + " in KAM catalog");
+        }
+
+        private void progress() {
+            final List<TaskMonitor> monitors;
+            synchronized (loads) {
+                monitors = new ArrayList<TaskMonitor>(subscribers.values());
+            }
+
+            final long waited = (System.currentTimeMillis() - started) / 1000;
+            for (final TaskMonitor monitor : monitors) {
+                if (monitor != null) {
+                    monitor.setStatus("Loading \"" + kamId.getName()
+                            + "\" KAM (" + waited + "s).");
+                }
+            }
+        }
+
+        private void finish(final KamHandle kamHandle, final Throwable error) {
+            final Map<KamServiceFuture<KamHandle>, TaskMonitor> done;
+            synchronized (loads) {
+                if (loads.get(kamId) == this) {
+                    loads.remove(kamId);
+                }
+                done = new LinkedHashMap<KamServiceFuture<KamHandle>, TaskMonitor>(
+                        subscribers);
+                subscribers.clear();
+            }
+
+            for (final Map.Entry<KamServiceFuture<KamHandle>, TaskMonitor> e : done
+                    .entrySet()) {
+                if (error != null) {
+                    e.getKey().fail(error);
+                    continue;
+                }
+                if (e.getValue() != null) {
+                    e.getValue().setPercentCompleted(100);
+                }
+                e.getKey().complete(kamHandle);
+            }
+        }
+
+        private void unsubscribe(final KamServiceFuture<KamHandle> future) {
+            synchronized (loads) {
+                subscribers.remove(future);
+                if (!subscribers.isEmpty() || cancelled) {
+                    return;
+                }
+
+                // nobody is waiting anymore, stop polling
+                cancelled = true;
+                if (loads.get(kamId) == this) {
+                    loads.remove(kamId);
+                }
+                if (next != null) {
+                    next.cancel(false);
+                }
+            }
+        }
+    }
+}
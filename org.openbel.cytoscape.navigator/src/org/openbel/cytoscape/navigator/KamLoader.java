@@ -19,107 +19,90 @@
  */
 package org.openbel.cytoscape.navigator;
 
-import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 import org.openbel.cytoscape.webservice.Configuration;
-import org.openbel.cytoscape.webservice.KamService;
-import org.openbel.cytoscape.webservice.KamServiceFactory;
+import org.openbel.cytoscape.webservice.KamServiceFuture;
 
-import org.openbel.framework.ws.model.DialectHandle;
-import org.openbel.framework.ws.model.KAMLoadStatus;
 import org.openbel.framework.ws.model.Kam;
 import org.openbel.framework.ws.model.KamHandle;
-import org.openbel.framework.ws.model.LoadKamResponse;
+
+import cytoscape.task.TaskMonitor;
 
 /**
  * Class to handle loading of Kams
  * 
+ * <p>
+ * Blocking wrapper around the {@link KamLoadService}, which polls the Web
+ * API and shares loads of the same {@link Kam} between loaders.
+ * </p>
+ * 
  * @author James McMahon &lt;jmcmahon@selventa.com&gt;
  */
 public class KamLoader {
 
-    private final KamService kamService;
-    private final int SLEEP_TIME_MS = 1000;
     // marked as volatile in case halt is called by multiple threads
     private volatile boolean halt = false;
-
-    public KamLoader() {
-        this.kamService = KamServiceFactory.getInstance().getKAMService();
-    }
+    private volatile KamServiceFuture<KamHandle> current;
 
     public void halt() {
         this.halt = true;
-    }
 
-    public KamHandle load(KamIdentifier kamId) throws KAMLoadException {
-        if (!Configuration.getInstance().getWSDLURL()
-                .equals(kamId.getWsdlUrl())) {
-            throw new KAMLoadException("Currently configured around WSDL "
-                    + Configuration.getInstance().getWSDLURL()
-                    + " does not match KAM WSDL " + kamId.getWsdlUrl());
-        }
-
-        List<Kam> kamCatalog = kamService.getCatalog();
-        Kam kam = null;
-        for (Kam k : kamCatalog) {
-            if (k.getName().equals(kamId.getName())
-                    && k.getLastCompiled().toGregorianCalendar()
-                            .getTimeInMillis() == kamId.getCompiledTime()) {
-                kam = k;
-                break;
-            }
+        final KamServiceFuture<KamHandle> future = current;
+        if (future != null) {
+            future.cancel(false);
         }
-        if (kam == null) {
-            throw new KAMLoadException("Couldn't find KAM " + kamId.getName()
-                    + " in KAM catalog");
-        }
-        return load(kam);
     }
 
-    public KamHandle load(Kam kam) throws KAMLoadException {
-        KamHandle kamHandle = loadKAMHandle(kam);
-        storeKamHandle(kam, kamHandle);
-        return kamHandle;
+    public KamHandle load(KamIdentifier kamId) throws KAMLoadException {
+        return load(kamId, null);
     }
 
     /**
-     * Calls out to Web API using {@link KAMServices} and loads a specific
-     * {@link Kam kam}.
-     * 
+     * Loads a {@link Kam}, blocking until it is loaded or this loader is
+     * halted.
+     *
+     * @param kamId
+     *            the {@link KamIdentifier} of the KAM to load
+     * @param monitor
+     *            the {@link TaskMonitor monitor} to report progress to, can
+     *            be {@code null}
+     * @return the {@link KamHandle kam handle}, or {@code null} if halted
      * @throws KAMLoadException
-     * 
-     * @see KAMServices#loadKam(Kam)
+     *             Thrown if the KAM could not be loaded
      */
-    private KamHandle loadKAMHandle(Kam kam) throws KAMLoadException {
-
-        LoadKamResponse res = kamService.loadKam(kam);
-        while (!halt && res.getLoadStatus() == KAMLoadStatus.IN_PROCESS) {
-            // sleep and then retry
-            try {
-                Thread.sleep(SLEEP_TIME_MS);
-            } catch (InterruptedException e) {
-                halt = true;
-            }
-
-            res = kamService.loadKam(kam);
+    public KamHandle load(KamIdentifier kamId, TaskMonitor monitor)
+            throws KAMLoadException {
+        final KamServiceFuture<KamHandle> future = KamLoadService
+                .getInstance().load(kamId, monitor);
+        current = future;
+        if (halt) {
+            // halted before the load was published
+            future.cancel(false);
         }
 
-        if (res.getLoadStatus() == KAMLoadStatus.COMPLETE) {
-            return res.getHandle();
-        } else if (res.getLoadStatus() == KAMLoadStatus.FAILED) {
-            throw new KAMLoadException("KAM Load Failed");
+        try {
+            return future.get();
+        } catch (CancellationException e) {
+            return null;
+        } catch (InterruptedException e) {
+            halt();
+            return null;
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof KAMLoadException) {
+                throw (KAMLoadException) cause;
+            }
+            throw new KAMLoadException("KAM Load Failed", cause);
+        } finally {
+            current = null;
         }
-        // else still in progress and was canceled
-        return null;
     }
 
-    private void storeKamHandle(Kam kam, KamHandle kamHandle) {
-        if (kamHandle == null) {
-            return;
-        }
-        // load default dialect handle
-        DialectHandle dialectHandle = kamService.getDefaultDialect(kamHandle);
-        KamSession.getInstance().addKam(kam, kamHandle, dialectHandle);
+    public KamHandle load(Kam kam) throws KAMLoadException {
+        return load(new KamIdentifier(kam, Configuration.getInstance()
+                .getWSDLURL()));
     }
 
     public static class KAMLoadException extends Exception {
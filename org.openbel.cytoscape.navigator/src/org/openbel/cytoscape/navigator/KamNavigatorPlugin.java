@@ -31,11 +31,15 @@ import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 
+import javax.swing.JFileChooser;
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
 
 import org.openbel.cytoscape.navigator.dialog.SearchKamDialog;
 import org.openbel.cytoscape.navigator.dialog.SearchKamListDialog;
+import org.openbel.cytoscape.navigator.task.KamTasks;
+import org.openbel.cytoscape.webservice.KamServiceMetrics;
 import org.openbel.cytoscape.webservice.dialog.SettingsDialog;
 
 import cytoscape.CyNetwork;
@@ -142,6 +146,12 @@ public class KamNavigatorPlugin extends CytoscapePlugin {
 
         // add to "KAM Navigator" menu if KAM Plugin is available
         kiMenu.add(new SettingsDialogAction());
+
+        // add "Refresh KAM Catalog" action to submenu
+        kiMenu.add(new RefreshMetadataAction());
+
+        // add "Dump KAM Service Metrics" action to submenu
+        kiMenu.add(new DumpMetricsAction());
         
         // add "Send Feedback" action to submenu
         JMenuItem feedbackItem = kiMenu.add(new FeedbackMailToAction());
@@ -173,6 +183,12 @@ public class KamNavigatorPlugin extends CytoscapePlugin {
             updateMenuState(Cytoscape.NETWORK_DESTROYED.equals(e
                     .getPropertyName()));
         }
+
+        if (Cytoscape.NETWORK_DESTROYED.equals(e.getPropertyName())
+                && e.getNewValue() instanceof String) {
+            // release per network state, such as the kam node index
+            KamSession.getInstance().removeNetwork((String) e.getNewValue());
+        }
     }
     
     private static void updateMenuState(boolean networkDestroyed) {
@@ -411,4 +427,59 @@ public class KamNavigatorPlugin extends CytoscapePlugin {
             settingsDialog.setVisible(true);
         }
     }
+
+    /**
+     * Defines a {@link CytoscapeAction cytoscape action} to reload the cached
+     * KAM catalog and namespaces from the BELFramework Web API.
+     */
+    private static final class RefreshMetadataAction extends CytoscapeAction {
+        private static final long serialVersionUID = -3184262215093418826L;
+
+        public RefreshMetadataAction() {
+            super("Refresh KAM Catalog");
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void actionPerformed(ActionEvent event) {
+            KamTasks.refreshMetadata();
+        }
+    }
+
+    /**
+     * Defines a {@link CytoscapeAction cytoscape action} to write the
+     * {@link KamServiceMetrics kam service metrics} to a file.
+     */
+    private static final class DumpMetricsAction extends CytoscapeAction {
+        private static final long serialVersionUID = 6051478862013427354L;
+
+        public DumpMetricsAction() {
+            super("Dump KAM Service Metrics");
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void actionPerformed(ActionEvent event) {
+            final JFileChooser chooser = new JFileChooser();
+            chooser.setSelectedFile(new File("kam-service-metrics.tsv"));
+            final int choice = chooser.showSaveDialog(Cytoscape.getDesktop());
+            if (choice != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+
+            final File file = chooser.getSelectedFile();
+            try {
+                KamServiceMetrics.getInstance().dump(file);
+            } catch (IOException e) {
+                log.error("Error writing KAM service metrics", e);
+                JOptionPane.showMessageDialog(Cytoscape.getDesktop(),
+                        "Unable to write " + file + ": " + e.getMessage(),
+                        "Dump KAM Service Metrics", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
 }
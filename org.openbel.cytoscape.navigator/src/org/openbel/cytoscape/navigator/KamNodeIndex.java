@@ -0,0 +1,167 @@
+/*
+ * KAM Navigator Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator;
+
+import static org.openbel.cytoscape.navigator.KamNavigatorPlugin.KAM_NODE_ID_ATTR;
+import giny.model.GraphPerspectiveChangeEvent;
+import giny.model.GraphPerspectiveChangeListener;
+import giny.model.Node;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import cytoscape.CyNetwork;
+import cytoscape.CyNode;
+import cytoscape.Cytoscape;
+import cytoscape.data.CyAttributes;
+
+/**
+ * {@link KamNodeIndex} maps KAM node ids to the {@link CyNode cytoscape nodes}
+ * of a single {@link CyNetwork cytoscape network}.
+ *
+ * <p>
+ * The index is built lazily on first use, which covers networks restored from
+ * session files, and is then kept up to date by listening for nodes that are
+ * added to or removed from the network.
+ * </p>
+ *
+ * <p>
+ * Instances should be obtained from
+ * {@link KamSession#getKamNodeIndex(CyNetwork)}.
+ * </p>
+ */
+class KamNodeIndex implements GraphPerspectiveChangeListener {
+    private static final CyAttributes nodeAtt = Cytoscape.getNodeAttributes();
+
+    private final CyNetwork cyn;
+    private Map<String, CyNode> nodes;
+
+    KamNodeIndex(CyNetwork cyn) {
+        this.cyn = cyn;
+        cyn.addGraphPerspectiveChangeListener(this);
+    }
+
+    /**
+     * Returns the {@link CyNode cytoscape node} in the network for a KAM node
+     * id.
+     *
+     * @param kamNodeId
+     *            the KAM node id
+     * @return the {@link CyNode cytoscape node}, or {@code null} if the
+     *         network does not contain the KAM node
+     */
+    synchronized CyNode get(String kamNodeId) {
+        if (kamNodeId == null) {
+            return null;
+        }
+
+        final CyNode node = index().get(kamNodeId);
+        if (node != null && !cyn.containsNode(node)) {
+            // missed a removal, drop the stale entry
+            nodes.remove(kamNodeId);
+            return null;
+        }
+        return node;
+    }
+
+    /**
+     * Records a {@link CyNode cytoscape node} that has been added to the
+     * network for a KAM node id.
+     *
+     * @param kamNodeId
+     *            the KAM node id
+     * @param node
+     *            the {@link CyNode cytoscape node}
+     */
+    synchronized void put(String kamNodeId, CyNode node) {
+        if (nodes != null) {
+            nodes.put(kamNodeId, node);
+        }
+    }
+
+    /**
+     * Stops tracking the network.
+     */
+    synchronized void dispose() {
+        cyn.removeGraphPerspectiveChangeListener(this);
+        nodes = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void graphPerspectiveChanged(
+            GraphPerspectiveChangeEvent e) {
+        if (nodes == null) {
+            // not built yet, nothing to maintain
+            return;
+        }
+
+        if (e.isNodesHiddenType()) {
+            final Node[] hidden = e.getHiddenNodes();
+            if (hidden == null) {
+                // can't tell what was removed, rebuild on next lookup
+                nodes = null;
+                return;
+            }
+            for (final Node node : hidden) {
+                final String kamNodeId = nodeAtt.getStringAttribute(
+                        node.getIdentifier(), KAM_NODE_ID_ATTR);
+                if (kamNodeId != null && node.equals(nodes.get(kamNodeId))) {
+                    nodes.remove(kamNodeId);
+                }
+            }
+        }
+
+        if (e.isNodesRestoredType()) {
+            final Node[] restored = e.getRestoredNodes();
+            if (restored == null) {
+                nodes = null;
+                return;
+            }
+            for (final Node node : restored) {
+                final String kamNodeId = nodeAtt.getStringAttribute(
+                        node.getIdentifier(), KAM_NODE_ID_ATTR);
+                if (kamNodeId != null && node instanceof CyNode) {
+                    nodes.put(kamNodeId, (CyNode) node);
+                }
+            }
+        }
+    }
+
+    private Map<String, CyNode> index() {
+        if (nodes == null) {
+            @SuppressWarnings("unchecked")
+            final List<CyNode> cynodes = cyn.nodesList();
+            nodes = new HashMap<String, CyNode>(cynodes.size());
+            for (final CyNode node : cynodes) {
+                final String kamNodeId = nodeAtt.getStringAttribute(
+                        node.getIdentifier(), KAM_NODE_ID_ATTR);
+                // if the kamNodeId is null, the node isn't a kam node
+                if (kamNodeId != null) {
+                    nodes.put(kamNodeId, node);
+                }
+            }
+        }
+        return nodes;
+    }
+}
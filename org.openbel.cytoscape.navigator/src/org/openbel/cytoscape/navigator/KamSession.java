@@ -20,6 +20,7 @@
 package org.openbel.cytoscape.navigator;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
@@ -49,6 +50,7 @@ public class KamSession {
     private Map<KamIdentifier, DialectHandle> dialectHandles = new HashMap<KamIdentifier, DialectHandle>();
     // right there should only be one kam associated with any given network
     private Map<CyNetwork, KamIdentifier> networkKamIds = new HashMap<CyNetwork, KamIdentifier>();
+    private Map<CyNetwork, KamNodeIndex> kamNodeIndices = new HashMap<CyNetwork, KamNodeIndex>();
 
     public static synchronized KamSession getInstance() {
         if (instance == null) {
@@ -79,6 +81,53 @@ public class KamSession {
         return dialectHandles.get(kamIdentifier);
     }
     
+    /**
+     * Finds the loaded KAM a {@link DialectHandle dialect handle} belongs to.
+     *
+     * @param dialectHandle
+     *            the {@link DialectHandle dialect handle}
+     * @return the {@link KamIdentifier} of the loaded KAM, or {@code null} if
+     *         the handle is not one of a loaded KAM
+     */
+    public synchronized KamIdentifier getKamIdentifier(
+            DialectHandle dialectHandle) {
+        if (dialectHandle == null || dialectHandle.getHandle() == null) {
+            return null;
+        }
+        for (final Map.Entry<KamIdentifier, DialectHandle> e : dialectHandles
+                .entrySet()) {
+            if (dialectHandle.getHandle().equals(e.getValue().getHandle())) {
+                return e.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the loaded KAM with a {@link KamIdentifier#toString() kam tag}.
+     *
+     * @param kamTag
+     *            the kam tag
+     * @return the {@link KamIdentifier} of the loaded KAM, or {@code null} if
+     *         no loaded KAM, or more than one, has the tag
+     */
+    public synchronized KamIdentifier getKamIdentifier(String kamTag) {
+        if (kamTag == null) {
+            return null;
+        }
+        KamIdentifier found = null;
+        for (final KamIdentifier kamId : kamHandles.keySet()) {
+            if (kamTag.equals(kamId.toString())) {
+                if (found != null) {
+                    // loaded from more than one server
+                    return null;
+                }
+                found = kamId;
+            }
+        }
+        return found;
+    }
+
     public KamIdentifier getCurrentNetworkKamIdentifier() {
         return getKamIdentifier(Cytoscape.getCurrentNetwork());
     }
@@ -115,6 +164,46 @@ public class KamSession {
         networkKamIds.put(network, kamId);
     }
 
+    /**
+     * Retrieves the {@link KamNodeIndex index} of KAM node ids to
+     * {@link CyNode cytoscape nodes} for a network, creating it if needed.
+     *
+     * @param network
+     *            the {@link CyNetwork cytoscape network}
+     * @return the {@link KamNodeIndex index}, never {@code null}
+     */
+    synchronized KamNodeIndex getKamNodeIndex(CyNetwork network) {
+        KamNodeIndex index = kamNodeIndices.get(network);
+        if (index == null) {
+            index = new KamNodeIndex(network);
+            kamNodeIndices.put(network, index);
+        }
+        return index;
+    }
+
+    /**
+     * Releases all state held for a network that is being destroyed.
+     *
+     * @param networkId
+     *            the identifier of the destroyed {@link CyNetwork network}
+     */
+    public synchronized void removeNetwork(String networkId) {
+        for (Iterator<CyNetwork> it = kamNodeIndices.keySet().iterator(); it
+                .hasNext();) {
+            CyNetwork network = it.next();
+            if (network.getIdentifier().equals(networkId)) {
+                kamNodeIndices.get(network).dispose();
+                it.remove();
+            }
+        }
+        for (Iterator<CyNetwork> it = networkKamIds.keySet().iterator(); it
+                .hasNext();) {
+            if (it.next().getIdentifier().equals(networkId)) {
+                it.remove();
+            }
+        }
+    }
+
     private KamSession() {
         // singleton. use get instance
     }
@@ -31,6 +31,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -57,6 +59,26 @@ public class NetworkUtility {
 
     private static final CyAttributes nodeAtt = Cytoscape.getNodeAttributes();
     private static final CyAttributes edgeAtt = Cytoscape.getEdgeAttributes();
+    // elements created between progress updates and halt checks
+    private static final int PROGRESS_INTERVAL = 500;
+
+    /**
+     * Receives the progress of a batch add and tells it to stop, usually
+     * backed by a {@link cytoscape.task.Task task} and its
+     * {@link cytoscape.task.TaskMonitor monitor}.
+     */
+    public interface BatchMonitor {
+
+        /**
+         * Returns {@code true} if the batch should stop adding elements.
+         */
+        boolean isHalted();
+
+        /**
+         * Reports the percentage of the batch completed.
+         */
+        void setPercentCompleted(int percent);
+    }
 
     /**
      * Adds a {@link KamNode kam node} to the {@link CyNetwork cytoscape
@@ -69,8 +91,16 @@ public class NetworkUtility {
      */
     public static CyNode addNode(CyNetwork cyn, KamIdentifier kamId,
             KamNode kamNode) {
+        final KamNodeIndex index = KamSession.getInstance().getKamNodeIndex(
+                cyn);
+        CyNode cynode = index.get(kamNode.getId());
+        if (cynode != null) {
+            // already in the network
+            return cynode;
+        }
+
         // create cytoscape node and attach KAM attributes
-        CyNode cynode = Cytoscape.getCyNode(kamNode.getLabel(), true);
+        cynode = Cytoscape.getCyNode(kamNode.getLabel(), true);
         nodeAtt.setAttribute(cynode.getIdentifier(), KAM_NODE_ID_ATTR,
                 kamNode.getId());
         nodeAtt.setAttribute(cynode.getIdentifier(), KAM_NODE_FUNCTION_ATTR,
@@ -85,6 +115,7 @@ public class NetworkUtility {
                 kamId.getWsdlUrl());
 
         cyn.addNode(cynode);
+        index.put(kamNode.getId(), cynode);
         return cynode;
     }
 
@@ -102,18 +133,12 @@ public class NetworkUtility {
         // link up the source node
         final KamNode srckn = (KamNode) edge.getSource();
 
-        CyNode cynsource = findCyNode(cyn, srckn);
-        if (cynsource == null) {
-            cynsource = addNode(cyn, kamId, srckn);
-        }
+        final CyNode cynsource = addNode(cyn, kamId, srckn);
 
         // link up the target node
         final KamNode tgtkn = (KamNode) edge.getTarget();
 
-        CyNode cyntarget = findCyNode(cyn, tgtkn);
-        if (cyntarget == null) {
-            cyntarget = addNode(cyn, kamId, tgtkn);
-        }
+        final CyNode cyntarget = addNode(cyn, kamId, tgtkn);
 
         // create cytoscape edge and attach KAM edge id as hidden attribute
         CyEdge cye = Cytoscape.getCyEdge(cynsource, cyntarget,
@@ -127,6 +152,154 @@ public class NetworkUtility {
         return cye;
     }
 
+    /**
+     * Adds a {@link Collection} of {@link KamNode kam nodes} to the
+     * {@link CyNetwork cytoscape network} as a single batch.
+     * 
+     * @see #addNodes(CyNetwork, KamIdentifier, Collection, BatchMonitor)
+     */
+    public static Set<CyNode> addNodes(CyNetwork cyn, KamIdentifier kamId,
+            Collection<KamNode> kamNodes) {
+        return addNodes(cyn, kamId, kamNodes, null);
+    }
+
+    /**
+     * Adds a {@link Collection} of {@link KamNode kam nodes} to the
+     * {@link CyNetwork cytoscape network} as a single batch.
+     * 
+     * <p>
+     * Duplicate {@link KamNode kam nodes} are ignored and nodes already in the
+     * network are reused. New nodes are added to the network in one
+     * operation and a single {@link Cytoscape#NETWORK_MODIFIED} event is
+     * fired, the caller is responsible for redrawing the view.
+     * </p>
+     * 
+     * <p>
+     * Progress is reported to the {@link BatchMonitor monitor} while the
+     * nodes are created. If it is halted, only the nodes created so far are
+     * added.
+     * </p>
+     * 
+     * @param cyn
+     *            the {@link CyNetwork cytoscape network} to add to
+     * @param kamId
+     *            the {@link KamIdentifier} of the kam the nodes belong to
+     * @param kamNodes
+     *            the {@link KamNode kam nodes} to add
+     * @param monitor
+     *            the {@link BatchMonitor monitor}, can be {@code null}
+     * @return the {@link CyNode cytoscape nodes} for the {@link KamNode kam
+     *         nodes} that were added, in input order, which will not be
+     *         {@code null}
+     */
+    public static Set<CyNode> addNodes(CyNetwork cyn, KamIdentifier kamId,
+            Collection<KamNode> kamNodes, BatchMonitor monitor) {
+        KamSession.getInstance().associateNetworkWithKam(cyn, kamId);
+
+        final Map<String, CyNode> cynodes = resolveNodes(cyn, kamId,
+                kamNodes, monitor, 0, 100);
+        fireNetworkModified(cyn);
+        return new LinkedHashSet<CyNode>(cynodes.values());
+    }
+
+    /**
+     * Adds a {@link Collection} of {@link KamEdge kam edges}, and their source
+     * and target {@link KamNode kam nodes}, to the {@link CyNetwork cytoscape
+     * network} as a single batch.
+     * 
+     * @see #addEdges(CyNetwork, KamIdentifier, Collection, BatchMonitor)
+     */
+    public static Set<CyEdge> addEdges(CyNetwork cyn, KamIdentifier kamId,
+            Collection<KamEdge> kamEdges) {
+        return addEdges(cyn, kamId, kamEdges, null);
+    }
+
+    /**
+     * Adds a {@link Collection} of {@link KamEdge kam edges}, and their source
+     * and target {@link KamNode kam nodes}, to the {@link CyNetwork cytoscape
+     * network} as a single batch.
+     * 
+     * <p>
+     * Duplicate {@link KamEdge kam edges} are ignored and elements already in
+     * the network are reused. New elements are added to the network in one
+     * operation and a single {@link Cytoscape#NETWORK_MODIFIED} event is
+     * fired, the caller is responsible for redrawing the view.
+     * </p>
+     * 
+     * <p>
+     * Progress is reported to the {@link BatchMonitor monitor}, the first
+     * half for the nodes and the second for the edges. If it is halted, only
+     * the elements created so far are added.
+     * </p>
+     * 
+     * @param cyn
+     *            the {@link CyNetwork cytoscape network} to add to
+     * @param kamId
+     *            the {@link KamIdentifier} of the kam the edges belong to
+     * @param kamEdges
+     *            the {@link KamEdge kam edges} to add
+     * @param monitor
+     *            the {@link BatchMonitor monitor}, can be {@code null}
+     * @return the {@link CyEdge cytoscape edges} for the {@link KamEdge kam
+     *         edges} that were added, in input order, which will not be
+     *         {@code null}
+     */
+    public static Set<CyEdge> addEdges(CyNetwork cyn, KamIdentifier kamId,
+            Collection<KamEdge> kamEdges, BatchMonitor monitor) {
+        KamSession.getInstance().associateNetworkWithKam(cyn, kamId);
+
+        // dedupe edges by id
+        final Map<String, KamEdge> uniqueEdges = new LinkedHashMap<String, KamEdge>(
+                kamEdges.size());
+        final List<KamNode> endpoints = new ArrayList<KamNode>(
+                kamEdges.size() * 2);
+        for (final KamEdge edge : kamEdges) {
+            if (!uniqueEdges.containsKey(edge.getId())) {
+                uniqueEdges.put(edge.getId(), edge);
+                endpoints.add((KamNode) edge.getSource());
+                endpoints.add((KamNode) edge.getTarget());
+            }
+        }
+
+        // link up source and target nodes in one pass
+        final Map<String, CyNode> cynodes = resolveNodes(cyn, kamId,
+                endpoints, monitor, 0, 50);
+
+        final Set<CyEdge> cyedges = new LinkedHashSet<CyEdge>(
+                uniqueEdges.size());
+        final List<CyEdge> newEdges = new ArrayList<CyEdge>();
+        final int total = uniqueEdges.size();
+        int done = 0;
+        for (final KamEdge edge : uniqueEdges.values()) {
+            if (done++ % PROGRESS_INTERVAL == 0
+                    && !progress(monitor, done, total, 50, 100)) {
+                break;
+            }
+
+            final CyNode cynsource = cynodes.get(edge.getSource().getId());
+            final CyNode cyntarget = cynodes.get(edge.getTarget().getId());
+            if (cynsource == null || cyntarget == null) {
+                // halted before the endpoints were created
+                break;
+            }
+
+            final CyEdge cye = Cytoscape.getCyEdge(cynsource, cyntarget,
+                    Semantics.INTERACTION, edge.getRelationship().toString(),
+                    true, true);
+            if (cyedges.add(cye) && !cyn.containsEdge(cye)) {
+                newEdges.add(cye);
+                edgeAtt.setAttribute(cye.getIdentifier(), KAM_EDGE_ID_ATTR,
+                        edge.getId());
+            }
+        }
+
+        if (!newEdges.isEmpty()) {
+            cyn.restoreEdges(newEdges);
+        }
+        fireNetworkModified(cyn);
+        return cyedges;
+    }
+
     /**
      * Retrieve all the {@link KamNode kam nodes} for a {@link Collection} of
      * {@link CyNode cytoscape nodes}.
@@ -291,18 +464,124 @@ public class NetworkUtility {
         return map.keySet().iterator().next();
     }
 
-    private static CyNode findCyNode(CyNetwork cyn, KamNode kamNode) {
-        @SuppressWarnings("unchecked")
-        final List<CyNode> nodes = cyn.nodesList();
-        for (final CyNode node : nodes) {
-            final String kamNodeId = nodeAtt.getStringAttribute(
-                    node.getIdentifier(), KAM_NODE_ID_ATTR);
-            // if the kamNodeId is null, the node isn't a kam node
-            if (kamNodeId != null && kamNodeId.equals(kamNode.getId())) {
-                return node;
+    /**
+     * Finds the {@link CyNode cytoscape node} for a {@link KamNode kam node}
+     * in a {@link CyNetwork cytoscape network}.
+     * 
+     * @param cyn
+     *            the {@link CyNetwork cytoscape network} to search
+     * @param kamNode
+     *            the {@link KamNode kam node} to find
+     * @return the {@link CyNode cytoscape node}, or {@code null} if the
+     *         {@link KamNode kam node} is not in the network
+     */
+    public static CyNode findCyNode(CyNetwork cyn, KamNode kamNode) {
+        return KamSession.getInstance().getKamNodeIndex(cyn)
+                .get(kamNode.getId());
+    }
+
+    /**
+     * Resolves the {@link CyNode cytoscape nodes} for {@link KamNode kam
+     * nodes}, creating and adding those not yet in the network in one batch.
+     * Progress is reported between {@code from} and {@code to} percent, and
+     * creation stops when the {@link BatchMonitor monitor} is halted.
+     * 
+     * @return the {@link CyNode cytoscape nodes} keyed by kam node id, in
+     *         input order
+     */
+    private static Map<String, CyNode> resolveNodes(CyNetwork cyn,
+            KamIdentifier kamId, Collection<KamNode> kamNodes,
+            BatchMonitor monitor, int from, int to) {
+        final KamNodeIndex index = KamSession.getInstance().getKamNodeIndex(
+                cyn);
+
+        final Map<String, CyNode> cynodes = new LinkedHashMap<String, CyNode>(
+                kamNodes.size());
+        final Map<String, KamNode> newKamNodes = new LinkedHashMap<String, KamNode>();
+        for (final KamNode kamNode : kamNodes) {
+            final String id = kamNode.getId();
+            if (cynodes.containsKey(id) || newKamNodes.containsKey(id)) {
+                continue;
+            }
+
+            final CyNode cynode = index.get(id);
+            if (cynode == null) {
+                newKamNodes.put(id, kamNode);
+            } else {
+                cynodes.put(id, cynode);
             }
         }
 
-        return null;
+        if (newKamNodes.isEmpty()) {
+            return cynodes;
+        }
+
+        // create nodes and attach KAM attributes, kam level values are
+        // shared by all nodes
+        final String kamName = kamId.getName();
+        final String compiledTime = Long.toString(kamId.getCompiledTime());
+        final String wsdlUrl = kamId.getWsdlUrl();
+        final List<CyNode> newNodes = new ArrayList<CyNode>(newKamNodes.size());
+        final int total = newKamNodes.size();
+        int done = 0;
+        for (final KamNode kamNode : newKamNodes.values()) {
+            if (done++ % PROGRESS_INTERVAL == 0
+                    && !progress(monitor, done, total, from, to)) {
+                break;
+            }
+
+            final CyNode cynode = Cytoscape.getCyNode(kamNode.getLabel(), true);
+            final String id = cynode.getIdentifier();
+            nodeAtt.setAttribute(id, KAM_NODE_ID_ATTR, kamNode.getId());
+            nodeAtt.setAttribute(id, KAM_NODE_FUNCTION_ATTR, kamNode
+                    .getFunction().name());
+            nodeAtt.setAttribute(id, KAM_NODE_LABEL_ATTR, kamNode.getLabel());
+            nodeAtt.setAttribute(id, KAM_NAME_ATTR, kamName);
+            nodeAtt.setAttribute(id, KAM_COMPILE_DATE_ATTR, compiledTime);
+            nodeAtt.setAttribute(id, WSDL_URL_ATTR, wsdlUrl);
+            newNodes.add(cynode);
+            cynodes.put(kamNode.getId(), cynode);
+            index.put(kamNode.getId(), cynode);
+        }
+
+        // add all new nodes to the network in one operation
+        if (!newNodes.isEmpty()) {
+            cyn.restoreNodes(newNodes);
+        }
+
+        // restore input order
+        final Map<String, CyNode> ordered = new LinkedHashMap<String, CyNode>(
+                cynodes.size());
+        for (final KamNode kamNode : kamNodes) {
+            final CyNode cynode = cynodes.get(kamNode.getId());
+            if (cynode != null) {
+                ordered.put(kamNode.getId(), cynode);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Reports progress of {@code done} out of {@code total} elements, scaled
+     * between {@code from} and {@code to} percent.
+     * 
+     * @return {@code false} if the {@link BatchMonitor monitor} is halted,
+     *         {@code true} otherwise
+     */
+    private static boolean progress(BatchMonitor monitor, int done,
+            int total, int from, int to) {
+        if (monitor == null) {
+            return true;
+        }
+        if (monitor.isHalted()) {
+            return false;
+        }
+        monitor.setPercentCompleted(from + (int) ((long) (to - from) * done
+                / total));
+        return true;
+    }
+
+    private static void fireNetworkModified(CyNetwork cyn) {
+        Cytoscape.firePropertyChange(Cytoscape.NETWORK_MODIFIED, null, cyn);
     }
 }
@@ -25,10 +25,15 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+import org.openbel.cytoscape.webservice.CallContext;
+import org.openbel.cytoscape.webservice.Configuration;
+import org.openbel.cytoscape.webservice.KamService;
+import org.openbel.cytoscape.webservice.RequestLane;
 import org.openbel.framework.ws.model.FunctionType;
 
 import cytoscape.Cytoscape;
 import cytoscape.task.Task;
+import cytoscape.task.TaskMonitor;
 import cytoscape.task.ui.JTaskConfig;
 import cytoscape.task.util.TaskManager;
 
@@ -55,7 +60,9 @@ public class Utility {
 
     /**
      * Executes the {@link Task task} using the cytoscape {@link TaskManager
-     * task manager}.
+     * task manager}. The task runs with a {@link CallContext deadline} of
+     * {@link Configuration#getTaskTimeout()} from now, shared by all of its
+     * {@link KamService kam service} calls.
      * 
      * @param task
      *            the {@link Task task} to execute, which cannot be null
@@ -66,6 +73,27 @@ public class Utility {
      *             Thrown if {@code task} is {@code null}
      */
     public static boolean executeTask(final Task task) {
+        return executeTask(task, null);
+    }
+
+    /**
+     * Executes the {@link Task task} as {@link #executeTask(Task)} does, with
+     * its {@link KamService kam service} calls tagged with a
+     * {@link KamIdentifier kam} in the
+     * {@link org.openbel.cytoscape.webservice.KamServiceMetrics metrics}.
+     *
+     * @param task
+     *            the {@link Task task} to execute, which cannot be null
+     * @param kamId
+     *            the {@link KamIdentifier kam} the task works on, can be null
+     * @return true value indicates that task completed successfully. false
+     *         value indicates that task was halted by user or task encountered
+     *         an error.
+     * @throws IllegalArgumentException
+     *             Thrown if {@code task} is {@code null}
+     */
+    public static boolean executeTask(final Task task,
+            final KamIdentifier kamId) {
         if (task == null) {
             throw new IllegalArgumentException("task cannot be null");
         }
@@ -75,7 +103,8 @@ public class Utility {
         taskcfg.displayCancelButton(true);
         taskcfg.displayStatus(true);
         taskcfg.setAutoDispose(true);
-        return TaskManager.executeTask(task, taskcfg);
+        return TaskManager.executeTask(new DeadlineTask(task,
+                kamId != null ? kamId.toString() : null), taskcfg);
     }
 
     /**
@@ -119,4 +148,65 @@ public class Utility {
     private Utility() {
         // prevent instantiation
     }
+
+    /**
+     * Runs a {@link Task task} with a {@link CallContext deadline} set on the
+     * task thread, and its calls in the {@link RequestLane#BULK bulk lane}
+     * tagged with the {@link CallContext#setKamTag(String) kam tag}.
+     */
+    private static class DeadlineTask implements Task {
+        private final Task task;
+        private final String kamTag;
+
+        private DeadlineTask(final Task task, final String kamTag) {
+            this.task = task;
+            this.kamTag = kamTag;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void run() {
+            final long timeout = Configuration.getInstance().getTaskTimeout()
+                    * 1000L;
+            final long previous = CallContext.setDeadline(System
+                    .currentTimeMillis() + timeout);
+            final RequestLane previousLane = CallContext
+                    .setLane(RequestLane.BULK);
+            final String previousTag = CallContext.setKamTag(kamTag);
+            try {
+                task.run();
+            } finally {
+                CallContext.restoreKamTag(previousTag);
+                CallContext.restoreLane(previousLane);
+                CallContext.restore(previous);
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void halt() {
+            task.halt();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void setTaskMonitor(TaskMonitor monitor)
+                throws IllegalThreadStateException {
+            task.setTaskMonitor(monitor);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getTitle() {
+            return task.getTitle();
+        }
+    }
 }
@@ -26,15 +26,13 @@ import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CancellationException;
 
 import javax.swing.BorderFactory;
 import javax.swing.ButtonGroup;
@@ -63,18 +61,21 @@ import javax.swing.table.AbstractTableModel;
 import javax.swing.table.TableModel;
 import javax.swing.table.TableRowSorter;
 
-import org.openbel.cytoscape.webservice.KamService;
-import org.openbel.cytoscape.webservice.KamServiceFactory;
-import org.openbel.cytoscape.navigator.KamLoader;
+import org.openbel.cytoscape.navigator.CachingKamService;
+import org.openbel.cytoscape.navigator.KamLoadService;
 import org.openbel.cytoscape.navigator.KamSession;
 import org.openbel.cytoscape.navigator.KamIdentifier;
 import org.openbel.cytoscape.navigator.NetworkUtility;
 import org.openbel.cytoscape.navigator.KamLoader.KAMLoadException;
 import org.openbel.cytoscape.navigator.task.KamTasks;
+import org.openbel.cytoscape.webservice.KamServiceCallback;
+import org.openbel.cytoscape.webservice.KamServiceFuture;
+import org.openbel.cytoscape.webservice.KamServiceTransform;
 
 import org.openbel.framework.ws.model.EdgeDirectionType;
 import org.openbel.framework.ws.model.FunctionType;
 import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamHandle;
 import org.openbel.framework.ws.model.KamNode;
 import org.openbel.framework.ws.model.RelationshipType;
 
@@ -101,7 +102,7 @@ public class KnowledgeNeighborhoodDialog extends JDialog implements
     private static final String DIALOG_TITLE = "Knowledge Neighborhood";
     private static final String ALL_SELECTION = "All";
     
-    private final KamService kamService;
+    private final CachingKamService kamService;
     // used to keep track of currently selected nodes in kam form
     private final Set<String> selectedKamNodeIds = new HashSet<String>();
     // networks that this instance is registered as a listener on
@@ -111,10 +112,9 @@ public class KnowledgeNeighborhoodDialog extends JDialog implements
     // kam that nodes were last selected on
     private KamIdentifier currentKamId;
     
-    // Executor for loading the knowledge neighborhood
-    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor();
-    private volatile boolean loading = false;
-    private volatile boolean haltLoading = false;
+    // the knowledge neighborhood load in progress, only touched on the
+    // swing thread
+    private KamServiceFuture<List<KamEdge>> pending;
     
     /**
      * Construct the {@link JDialog dialog} and initialize the UI.
@@ -123,7 +123,7 @@ public class KnowledgeNeighborhoodDialog extends JDialog implements
      */
     public KnowledgeNeighborhoodDialog() {
         super(Cytoscape.getDesktop(), DIALOG_TITLE, false);
-        this.kamService = KamServiceFactory.getInstance().getKAMService();
+        this.kamService = CachingKamService.getInstance();
 
         initUI();
 
@@ -165,13 +165,7 @@ public class KnowledgeNeighborhoodDialog extends JDialog implements
             }
         }
 
-        if (loading) {
-            haltLoading = true;
-            while (loading) {
-                // wait until previous task finishes
-            }
-        }
-        loadExecutor.shutdown();
+        cancelPending();
     }
 
     /**
@@ -353,15 +347,8 @@ public class KnowledgeNeighborhoodDialog extends JDialog implements
      * Load (or reload) the edges around the selected nodes, update UI to match
      */
     private void loadNeighborhood() {
-        if (loading) {
-            // halt previous load
-            haltLoading = true;
-            while (loading) {
-                // wait until previous task finishes
-            }
-            // reset halt for new load
-            haltLoading = false;
-        }
+        // supersede the previous load
+        cancelPending();
         
         // Quick and dirty indication that the table is loading
         resultsLabel.setText("Loading...");
@@ -410,77 +397,104 @@ public class KnowledgeNeighborhoodDialog extends JDialog implements
             }
         }
         
-        // put this a thread so it doesn't lock the UI
-        loadExecutor.execute(new Runnable() {
-            
-            @Override
-            public void run() {
-                // start loading
-                loading = true;
-                
-                try {
-                    try {
-                        // No need to hold on the KamHandle
-                        // just need to load to work on KamNode
-                        new KamLoader().load(currentKamId);
-                    } catch (KAMLoadException e) {
-                        JOptionPane.showMessageDialog(getContentPane(),
-                                "Error loading \"" + currentKamId.getName()
-                                        + "\" KAM.\n", "Kam Load Error",
-                                JOptionPane.ERROR_MESSAGE);
-                        return;
+        // load the KAM and the adjacent edges without locking the UI
+        final KamIdentifier kamId = currentKamId;
+        final KamServiceFuture<List<KamEdge>> future = KamLoadService
+                .getInstance().load(kamId, null)
+                .then(new KamServiceTransform<KamHandle,
+                        KamServiceFuture<List<List<KamEdge>>>>() {
+                    @Override
+                    public KamServiceFuture<List<List<KamEdge>>> apply(
+                            KamHandle kamHandle) {
+                        final List<KamServiceFuture<List<KamEdge>>> lookups =
+                                new ArrayList<KamServiceFuture<List<KamEdge>>>();
+                        for (final KamNode kamNode : kamNodes) {
+                            lookups.add(kamService.getAdjacentKamEdgesAsync(
+                                    kamId, kamNode, EdgeDirectionType.BOTH));
+                        }
+                        return KamServiceFuture.all(lookups);
                     }
-                    
-                    final List<KamEdge> edges = new ArrayList<KamEdge>();
-                    for (KamNode kamNode : kamNodes) {
-                        if (haltLoading) {
-                            break;
+                })
+                .transform(new KamServiceTransform<List<List<KamEdge>>,
+                        List<KamEdge>>() {
+                    @Override
+                    public List<KamEdge> apply(List<List<KamEdge>> lookups) {
+                        final List<KamEdge> edges = new ArrayList<KamEdge>();
+                        for (final List<KamEdge> adjacent : lookups) {
+                            edges.addAll(adjacent);
                         }
-
-                        edges.addAll(kamService.getAdjacentKamEdges(
-                                KamSession.getInstance().getDialectHandle(currentKamId), 
-                                kamNode,
-                                EdgeDirectionType.BOTH, null));
+                        return edges;
                     }
-                    model.addEdges(edges);
-
-                    if (!haltLoading) {
-                        try {
-                            // Execute UI updates inside swing thread to prevent
-                            //  issues
-                            SwingUtilities.invokeAndWait(new Runnable() {
-                                
-                                @Override
-                                public void run() {
-                                    model.fireTableDataChanged();
-                                    // update filters combo boxes
-                                    // TODO separate function box data update 
-                                    //  from UI events and move data update out
-                                    //  of UI thread to reduce time UI is locked
-                                    ((SourceFunctionComboBoxModel) sourceFunctionCombo
-                                            .getModel()).updateEdges(edges);
-                                    ((TargetFunctionComboBoxModel) targetFunctionCombo
-                                            .getModel()).updateEdges(edges);
-                                    ((RelationshipComboBoxModel) edgeRelationshipCombo
-                                            .getModel()).updateEdges(edges);
-                                    // resort filters after update
-                                    sort();
-                                }
-                            });
-                        } catch (InterruptedException e) {
-                            log.warn("Error loading knowledge neighborhood", e);
-                        } catch (InvocationTargetException e) {
-                            log.warn("Error loading knowledge neighborhood", e);
+                });
+        pending = future;
+        future.addCallback(new KamServiceCallback<List<KamEdge>>() {
+            @Override
+            public void onSuccess(final List<KamEdge> edges) {
+                // Execute UI updates inside swing thread to prevent issues
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (pending != future) {
+                            // superseded by a later selection
+                            return;
                         }
-                        
+                        pending = null;
+
+                        model.addEdges(edges);
+                        model.fireTableDataChanged();
+                        // update filters combo boxes
+                        // TODO separate function box data update from UI
+                        //  events and move data update out of UI thread to
+                        //  reduce time UI is locked
+                        ((SourceFunctionComboBoxModel) sourceFunctionCombo
+                                .getModel()).updateEdges(edges);
+                        ((TargetFunctionComboBoxModel) targetFunctionCombo
+                                .getModel()).updateEdges(edges);
+                        ((RelationshipComboBoxModel) edgeRelationshipCombo
+                                .getModel()).updateEdges(edges);
+                        // resort filters after update
+                        sort();
                     }
-                } finally {
-                    // finished loading
-                    loading = false;
+                });
+            }
+
+            @Override
+            public void onFailure(final Throwable t) {
+                if (t instanceof CancellationException) {
+                    return;
                 }
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (pending != future) {
+                            return;
+                        }
+                        pending = null;
+
+                        if (t instanceof KAMLoadException) {
+                            JOptionPane.showMessageDialog(getContentPane(),
+                                    "Error loading \"" + kamId.getName()
+                                            + "\" KAM.\n", "Kam Load Error",
+                                    JOptionPane.ERROR_MESSAGE);
+                        } else {
+                            log.warn("Error loading knowledge neighborhood", t);
+                        }
+                        resultsLabel.setText("Found 0 edges");
+                    }
+                });
             }
         });
-        
+    }
+
+    /**
+     * Cancels the load of the knowledge neighborhood in progress, if any.
+     */
+    private void cancelPending() {
+        final KamServiceFuture<List<KamEdge>> future = pending;
+        pending = null;
+        if (future != null) {
+            future.cancel(true);
+        }
     }
 
     /**
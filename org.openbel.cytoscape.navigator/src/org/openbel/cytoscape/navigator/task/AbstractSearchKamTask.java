@@ -24,14 +24,13 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
-import org.openbel.cytoscape.webservice.KamService;
+import org.openbel.cytoscape.webservice.AsyncKamService;
 import org.openbel.cytoscape.webservice.KamServiceFactory;
+import org.openbel.cytoscape.webservice.KamServiceFuture;
+import org.openbel.cytoscape.webservice.KamServiceTransform;
 import org.openbel.cytoscape.navigator.KamLoader;
 import org.openbel.cytoscape.navigator.KamSession;
 import org.openbel.cytoscape.navigator.KamIdentifier;
@@ -67,13 +66,15 @@ public abstract class AbstractSearchKamTask implements Task {
     private final FunctionType function;
     private final Namespace namespace;
     private final Collection<String> identifiers;
-    private final KamService kamService;
+    private final AsyncKamService kamService;
     private final boolean functionOnly;
 
     private TaskMonitor monitor;
 
     // marked as volatile in case halt is called by multiple threads
     private volatile boolean halt = false;
+    private volatile KamServiceFuture<List<KamNode>> search;
+    private final KamLoader kamLoader = new KamLoader();
 
     public AbstractSearchKamTask(KamIdentifier kamId,
             FunctionType function) {
@@ -97,7 +98,7 @@ public abstract class AbstractSearchKamTask implements Task {
         this.namespace = namespace;
         this.identifiers = identifiers;
 
-        this.kamService = KamServiceFactory.getInstance().getKAMService();
+        this.kamService = KamServiceFactory.getInstance().getAsyncKAMService();
         if (function != null && namespace == null) {
             functionOnly = true;
         } else {
@@ -136,6 +137,12 @@ public abstract class AbstractSearchKamTask implements Task {
     @Override
     public void halt() {
         this.halt = true;
+        kamLoader.halt();
+
+        final KamServiceFuture<List<KamNode>> future = search;
+        if (future != null) {
+            future.cancel(true);
+        }
     }
 
     /**
@@ -145,15 +152,16 @@ public abstract class AbstractSearchKamTask implements Task {
     public void run() {
         KamHandle kamHandle = KamSession.getInstance().getKamHandle(kamId);
         if (kamHandle == null) {
-            monitor.setStatus("Loading \"" + kamId.getName() + "\" KAM.");
-
-            monitor.setPercentCompleted(0);
-            // FIXME add ablity to cancel KAM Load
             try {
-                kamHandle = new KamLoader().load(kamId);
+                kamHandle = kamLoader.load(kamId, monitor);
             } catch (KAMLoadException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
+                log.warn("Error loading kam", e);
+                monitor.setException(e, "Error loading \"" + kamId.getName()
+                        + "\" KAM.");
+                return;
+            }
+            if (kamHandle == null) {
+                // halted while loading
                 return;
             }
             monitor.setPercentCompleted(100);
@@ -188,48 +196,40 @@ public abstract class AbstractSearchKamTask implements Task {
     }
 
     private List<KamNode> searchKAMNodes() {
-        ExecutorService e = Executors.newSingleThreadExecutor();
-        Future<List<KamNode>> future = e.submit(buildCallable());
-
-        while (!(future.isDone() || future.isCancelled()) && !e.isShutdown()) {
-            try {
-                if (halt) {
-                    // this should not block
-                    // but be aware that if the thread in the executor is
-                    // blocked it will continue to live on
-                    e.shutdownNow();
-
-                    future.cancel(true);
-                }
-                // sleep thread to enable interrupt
-                Thread.sleep(100);
-            } catch (InterruptedException ex) {
-                halt = true;
-            }
+        final KamServiceFuture<List<KamNode>> future = startSearch();
+        search = future;
+        if (halt) {
+            // halted before the search was published
+            future.cancel(true);
         }
 
-        if (future.isCancelled()) {
-            return null;
-        }
         try {
             return future.get();
+        } catch (CancellationException ex) {
+            return null;
         } catch (InterruptedException ex) {
-            log.warn("Error searching kam nodes", ex);
+            halt();
             return null;
         } catch (ExecutionException ex) {
             log.warn("Error searching kam nodes", ex);
             return null;
+        } finally {
+            search = null;
         }
     }
 
-    private Callable<List<KamNode>> buildCallable() {
-        KamHandle kamHandle = KamSession.getInstance().getKamHandle(kamId);
-        DialectHandle dialectHandle = KamSession.getInstance()
+    /**
+     * Starts the search on the {@link AsyncKamService}, a namespace search
+     * pipelines the node lookup after the namespace value lookup.
+     */
+    private KamServiceFuture<List<KamNode>> startSearch() {
+        final KamHandle kamHandle = KamSession.getInstance().getKamHandle(kamId);
+        final DialectHandle dialectHandle = KamSession.getInstance()
                 .getDialectHandle(kamId);
 
         if (functionOnly) {
-            return new SingleFunctionSearch(kamHandle, dialectHandle, function,
-                    kamService);
+            return kamService.findKamNodesByFunction(kamHandle, dialectHandle,
+                    function);
         }
 
         NodeFilter nodeFilter = null;
@@ -250,8 +250,26 @@ public abstract class AbstractSearchKamTask implements Task {
             patterns = buildRegexPatterns(identifiers, rightOnlyWildcard);
         }
 
-        return new NamespaceSearch(kamHandle, dialectHandle, nodeFilter,
-                namespaces, patterns, kamService);
+        // TODO we don't need to use patterns, can construct namespace value
+        // directly, at least for existing searches
+        final NodeFilter nf = nodeFilter;
+        return kamService.findNamespaceValues(patterns, namespaces).then(
+                new KamServiceTransform<List<NamespaceValue>,
+                        KamServiceFuture<List<KamNode>>>() {
+                    @Override
+                    public KamServiceFuture<List<KamNode>> apply(
+                            List<NamespaceValue> namespaceValues) {
+                        if (Utility.isEmpty(namespaceValues)) {
+                            // nothing found, different from null being
+                            // returned
+                            return KamServiceFuture
+                                    .<List<KamNode>> completed(new ArrayList<KamNode>());
+                        }
+
+                        return kamService.findKamNodesByNamespaceValues(
+                                kamHandle, dialectHandle, namespaceValues, nf);
+                    }
+                });
     }
 
     private static NodeFilter buildFunctionFilter(FunctionType function) {
@@ -279,81 +297,4 @@ public abstract class AbstractSearchKamTask implements Task {
         }
         return patterns;
     }
-
-    private static class SingleFunctionSearch implements
-            Callable<List<KamNode>> {
-
-        private final KamHandle kamHandle;
-        private final DialectHandle dialectHandle;
-        private final FunctionType function;
-        private final KamService kamService;
-
-        public SingleFunctionSearch(KamHandle kamHandle,
-                DialectHandle dialectHandle, FunctionType function,
-                KamService kamService) {
-            if (kamHandle == null || dialectHandle == null || function == null
-                    || kamService == null) {
-                throw new IllegalArgumentException("Null parameter");
-            }
-
-            this.kamHandle = kamHandle;
-            this.dialectHandle = dialectHandle;
-            this.function = function;
-            this.kamService = kamService;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public List<KamNode> call() throws Exception {
-            // find kam nodes by function
-            return kamService.findKamNodesByFunction(kamHandle, dialectHandle,
-                    function);
-        }
-    }
-
-    // TODO we don't need to use patterns, can construct namespace value
-    // directly, at least for existing searches
-    private class NamespaceSearch implements Callable<List<KamNode>> {
-
-        private final KamHandle kamHandle;
-        private final DialectHandle dialectHandle;
-        private final NodeFilter nodeFilter;
-        private final Collection<Namespace> namespaces;
-        private final Collection<String> patterns;
-        private final KamService kamService;
-
-        public NamespaceSearch(KamHandle kamHandle,
-                DialectHandle dialectHandle, NodeFilter nodeFilter,
-                Collection<Namespace> namespaces, Collection<String> patterns,
-                KamService kamService) {
-            this.kamHandle = kamHandle;
-            this.dialectHandle = dialectHandle;
-            this.nodeFilter = nodeFilter;
-            this.namespaces = namespaces;
-            this.patterns = patterns;
-            this.kamService = kamService;
-        }
-
-        /**
-         * {@inheritDoc}
-         */
-        @Override
-        public List<KamNode> call() throws Exception {
-            List<NamespaceValue> namespaceValues = kamService
-                    .findNamespaceValues(patterns, namespaces);
-            if (halt) {
-                return null;
-            }
-
-            if (Utility.isEmpty(namespaceValues)) {
-                // nothing found, different from null being returned
-                return new ArrayList<KamNode>();
-            }
-
-            return kamService.findKamNodesByNamespaceValues(kamHandle,
-                    dialectHandle, namespaceValues, nodeFilter);
-        }
-    }
 }
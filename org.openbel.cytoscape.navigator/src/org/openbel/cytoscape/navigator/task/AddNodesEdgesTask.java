@@ -23,9 +23,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
-import org.openbel.cytoscape.webservice.KamService;
-import org.openbel.cytoscape.webservice.KamServiceFactory;
-import org.openbel.cytoscape.navigator.KamSession;
+import org.openbel.cytoscape.navigator.CachingKamService;
 import org.openbel.cytoscape.navigator.KamIdentifier;
 import org.openbel.cytoscape.navigator.NetworkUtility;
 
@@ -55,17 +53,18 @@ import cytoscape.view.CyNetworkView;
  */
 final class AddNodesEdgesTask extends AddNodesTask {
     private static final String TITLE = "Expanding Edges";
-    private final KamService kamService;
     private final List<KamNode> kamNodes;
     private final EdgeDirectionType direction;
     private final Set<String> kamNodeIds;
+    private final AdjacentEdgeFanout fanout;
 
     AddNodesEdgesTask(CyNetwork cyNetwork, KamIdentifier kamId, List<KamNode> kamNodes,
             EdgeDirectionType direction) {
         super(cyNetwork, kamId, kamNodes);
-        this.kamService = KamServiceFactory.getInstance().getKAMService();
         this.kamNodes = kamNodes;
         this.direction = direction;
+        this.fanout = new AdjacentEdgeFanout(
+                CachingKamService.getInstance(), kamId, direction);
         this.kamNodeIds = new HashSet<String>(kamNodes.size());
         for (final KamNode kamNode : kamNodes) {
             this.kamNodeIds.add(kamNode.getId());
@@ -94,22 +93,14 @@ final class AddNodesEdgesTask extends AddNodesTask {
 
         setStatus();
 
-        for (final KamNode selectedNode : kamNodes) {
-            if (halt) {
-                // stop if halted
-                break;
-            }
-            
-            final List<KamEdge> edges = kamService.getAdjacentKamEdges(
-                    KamSession.getInstance().getDialectHandle(kamId),
-                    selectedNode, direction,
-                    null);
-
-            for (final KamEdge edge : edges) {
-                NetworkUtility.addEdge(cyNetwork, kamId, edge);
-            }
+        final List<KamEdge> edges = fanout.expand(kamNodes, m);
+        if (halt || edges == null) {
+            return;
         }
-        
+
+        // add expanded edges in one batch
+        NetworkUtility.addEdges(cyNetwork, kamId, edges,
+                batchMonitor());
         if (halt) {
             return;
         }
@@ -128,6 +119,15 @@ final class AddNodesEdgesTask extends AddNodesTask {
         m.setPercentCompleted(100);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void halt() {
+        super.halt();
+        fanout.halt();
+    }
+
     private void setStatus() {
         final String edgeType;
         switch (direction) {
@@ -19,17 +19,13 @@
  */
 package org.openbel.cytoscape.navigator.task;
 
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
-import org.openbel.cytoscape.webservice.KamService;
 import org.openbel.cytoscape.webservice.KamServiceFactory;
-import org.openbel.cytoscape.navigator.KamSession;
 import org.openbel.cytoscape.navigator.KamIdentifier;
 import org.openbel.cytoscape.navigator.NetworkUtility;
 
-import org.openbel.framework.ws.model.EdgeDirectionType;
 import org.openbel.framework.ws.model.KamEdge;
 import org.openbel.framework.ws.model.KamNode;
 
@@ -52,21 +48,16 @@ import cytoscape.view.CyNetworkView;
  *
  * @author Anthony Bargnesi &lt;abargnesi@selventa.com&gt;
  */
-// TODO this needs to be redone to use interconnect backend
 final class AddNodesInterconnectTask extends AddNodesTask {
     private static final String TITLE = "Interconnecting Nodes";
-    private final KamService kamService;
     private final List<KamNode> kamNodes;
-    private final Set<String> kamNodeIds;
+    private final ChunkedInterconnect interconnect;
 
     AddNodesInterconnectTask(CyNetwork cyNetwork, KamIdentifier kamId, List<KamNode> kamNodes) {
         super(cyNetwork, kamId, kamNodes);
-        this.kamService = KamServiceFactory.getInstance().getKAMService();
         this.kamNodes = kamNodes;
-        this.kamNodeIds = new HashSet<String>(kamNodes.size());
-        for (final KamNode kamNode : kamNodes) {
-            this.kamNodeIds.add(kamNode.getId());
-        }
+        this.interconnect = new ChunkedInterconnect(KamServiceFactory
+                .getInstance().getKAMService(), kamId);
     }
 
     /**
@@ -80,7 +71,8 @@ final class AddNodesInterconnectTask extends AddNodesTask {
     /**
      * {@inheritDoc}
      *
-     * Adds {@link KamNode kam nodes}, interconnects them adding
+     * Adds {@link KamNode kam nodes}, interconnects them with each other and
+     * with the existing {@link KamNode kam nodes} of the network adding
      * {@link KamEdge kam edges}, adds them all to the
      * {@link CyNetwork cytoscape network}, and re-renders the view.
      */
@@ -91,37 +83,20 @@ final class AddNodesInterconnectTask extends AddNodesTask {
 
         m.setStatus("Interconnecting network for " + kamNodes.size() + " selected nodes.");
 
-        // Add existing KAM nodes to selected
-        kamNodes.addAll(NetworkUtility.getKAMNodes(cyNetwork.nodesList()));
-
-        // If more than one node selected, link up shared edges
-        int numNodes = kamNodes.size();
-        if (numNodes > 1) {
-            for (final KamNode selectedNode : kamNodes) {
-                if (halt) {
-                    // stop if halted
-                    break;
-                }
-                
-                // TODO this should use the backend interconnect method
-                final List<KamEdge> edges = kamService
-                        .getAdjacentKamEdges(
-                                KamSession.getInstance().getDialectHandle(kamId), 
-                                selectedNode, EdgeDirectionType.BOTH, null);
-
-                for (final KamEdge edge : edges) {
-                    final KamNode esrc = (KamNode) edge.getSource();
-                    final KamNode etgt = (KamNode) edge.getTarget();
-
-                    // filter out adjacent edges not between selected nodes
-                    if (kamNodeIds.contains(esrc.getId())
-                            && kamNodeIds.contains(etgt.getId())) {
-                        NetworkUtility.addEdge(cyNetwork, kamId, edge);
-                    }
-                }
-            }
-        }
+        // Interconnect selected nodes with existing KAM nodes
+        @SuppressWarnings("unchecked")
+        final Set<KamNode> existing = NetworkUtility.getKAMNodes(cyNetwork
+                .nodesList());
+        final List<KamEdge> interconnected = interconnect.interconnect(
+                kamNodes, existing, m);
         
+        if (halt || interconnected == null) {
+            return;
+        }
+
+        // add shared edges in one batch
+        NetworkUtility.addEdges(cyNetwork, kamId, interconnected,
+                batchMonitor());
         if (halt) {
             return;
         }
@@ -141,4 +116,13 @@ final class AddNodesInterconnectTask extends AddNodesTask {
 
         m.setPercentCompleted(100);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void halt() {
+        super.halt();
+        interconnect.halt();
+    }
 }
@@ -23,7 +23,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
-import org.openbel.cytoscape.navigator.KamSession;
 import org.openbel.cytoscape.navigator.KamIdentifier;
 import org.openbel.cytoscape.navigator.NetworkUtility;
 
@@ -60,7 +59,8 @@ import cytoscape.view.CyNetworkView;
 class AddNodesTask implements Task {
     private static final String TITLE = "Adding Nodes";
     protected TaskMonitor m;
-    protected boolean halt = false;
+    // marked as volatile in case halt is called by multiple threads
+    protected volatile boolean halt = false;
     protected final CyNetwork cyNetwork;
     protected final KamIdentifier kamId;
     private final List<KamNode> kamNodes;
@@ -108,35 +108,36 @@ class AddNodesTask implements Task {
      */
     protected Set<CyNode> addNodes() {
         m.setStatus("Adding " + kamNodes.size() + " selected nodes.");
-        int percentage = 0;
-        m.setPercentCompleted(percentage);
-
-        // Add the KAM nodes and keep track
-        Set<CyNode> cynodes = new HashSet<CyNode>();
-        // use current percentage to keep track of values less then 1
-        double currentPercentage = 0.0;
-        double nodePercent = (1.0 / kamNodes.size()) * 100;
-        for (final KamNode node : kamNodes) {
-            if (halt) {
-                // stop if halted
-                break;
+        m.setPercentCompleted(0);
+
+        if (halt) {
+            return new HashSet<CyNode>();
+        }
+
+        // Add the KAM nodes in one batch and keep track
+        return NetworkUtility.addNodes(cyNetwork, kamId, kamNodes,
+                batchMonitor());
+    }
+
+    /**
+     * Returns a {@link NetworkUtility.BatchMonitor batch monitor} that reports
+     * to this task's {@link TaskMonitor monitor} and stops when this task is
+     * halted.
+     *
+     * @return the {@link NetworkUtility.BatchMonitor batch monitor}
+     */
+    protected NetworkUtility.BatchMonitor batchMonitor() {
+        return new NetworkUtility.BatchMonitor() {
+            @Override
+            public boolean isHalted() {
+                return halt;
             }
-            
-            KamSession.getInstance().associateNetworkWithKam(cyNetwork, kamId);
-            CyNode cyn = NetworkUtility.addNode(cyNetwork, kamId, node);
-            cynodes.add(cyn);
-            currentPercentage += nodePercent;
-            if (currentPercentage >= 1.0) {
-                // only add to the percent complete if can be rounded to 1 or greater
-                int round = (int) Math.round(currentPercentage);
-                percentage += round;
-                m.setPercentCompleted(percentage);
-                // set to remainder to even out percentages
-                currentPercentage = currentPercentage - round;
+
+            @Override
+            public void setPercentCompleted(int percent) {
+                m.setPercentCompleted(percent);
             }
-        }
-        
-        return cynodes;
+        };
     }
 
     @Override
@@ -0,0 +1,219 @@
+/*
+ * KAM Navigator Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator.task;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.openbel.cytoscape.navigator.CachingKamService;
+import org.openbel.cytoscape.navigator.KamIdentifier;
+import org.openbel.cytoscape.webservice.AdaptiveLimiter;
+import org.openbel.cytoscape.webservice.KamService;
+import org.openbel.cytoscape.webservice.KamServiceCallback;
+import org.openbel.cytoscape.webservice.KamServiceFuture;
+import org.openbel.cytoscape.webservice.KamServiceLoader;
+
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamNode;
+
+import cytoscape.task.TaskMonitor;
+
+/**
+ * Package-protected helper that retrieves the {@link KamEdge adjacent kam
+ * edges} of many {@link KamNode kam nodes} with a bounded number of
+ * concurrent {@link KamService#getAdjacentKamEdges getAdjacentKamEdges}
+ * requests.
+ *
+ * <p>
+ * Requests are queued with the {@link KamServiceLoader}, which deduplicates
+ * them, and the number in flight follows the {@link AdaptiveLimiter}.
+ * Results are merged in the order of the requested nodes and deduplicated by
+ * edge id.
+ * </p>
+ *
+ * <p>
+ * Nodes whose adjacent edges are already cached by the
+ * {@link CachingKamService} are answered without a request.
+ * </p>
+ */
+final class AdjacentEdgeFanout {
+    private final CachingKamService kamService;
+    private final KamIdentifier kamId;
+    private final EdgeDirectionType direction;
+    private final List<Future<List<KamEdge>>> pending = new ArrayList<Future<List<KamEdge>>>();
+    // marked as volatile in case halt is called by multiple threads
+    private volatile boolean halt = false;
+
+    AdjacentEdgeFanout(CachingKamService kamService, KamIdentifier kamId,
+            EdgeDirectionType direction) {
+        this.kamService = kamService;
+        this.kamId = kamId;
+        this.direction = direction;
+    }
+
+    /**
+     * Retrieves the adjacent {@link KamEdge kam edges} for each
+     * {@link KamNode kam node}, reporting per node progress to the
+     * {@link TaskMonitor monitor}.
+     *
+     * @param kamNodes
+     *            the {@link KamNode kam nodes} to expand
+     * @param monitor
+     *            the {@link TaskMonitor monitor} to report progress to
+     * @return the {@link KamEdge kam edges} in node order without duplicates,
+     *         or {@code null} if halted
+     * @throws RuntimeException
+     *             Thrown if a request failed
+     */
+    List<KamEdge> expand(final Collection<KamNode> kamNodes,
+            final TaskMonitor monitor) {
+        final List<KamNode> nodes = new ArrayList<KamNode>(kamNodes);
+        if (nodes.isEmpty()) {
+            return new ArrayList<KamEdge>();
+        }
+
+        // answer cached nodes up front, only the rest need a request
+        final List<List<KamEdge>> results = new ArrayList<List<KamEdge>>(
+                nodes.size());
+        final List<KamNode> uncached = new ArrayList<KamNode>();
+        for (final KamNode kamNode : nodes) {
+            final List<KamEdge> cached = kamService.getCachedAdjacentKamEdges(
+                    kamId, kamNode, direction);
+            results.add(cached);
+            if (cached == null) {
+                uncached.add(kamNode);
+            }
+        }
+
+        final BlockingQueue<Future<List<KamEdge>>> completed = new LinkedBlockingQueue<Future<List<KamEdge>>>();
+        final List<Future<List<KamEdge>>> futures = new ArrayList<Future<List<KamEdge>>>(
+                uncached.size());
+
+        try {
+            // the loader bounds the requests in flight
+            for (final KamNode kamNode : uncached) {
+                if (!submit(kamNode, futures, completed)) {
+                    return null;
+                }
+            }
+
+            // report progress as each node completes
+            final int cachedCount = nodes.size() - uncached.size();
+            monitor.setPercentCompleted(cachedCount * 100 / nodes.size());
+            for (int done = 1; done <= uncached.size(); done++) {
+                final Future<List<KamEdge>> future = completed.take();
+                if (halt || future.isCancelled()) {
+                    return null;
+                }
+                get(future);
+                monitor.setPercentCompleted((cachedCount + done) * 100
+                        / nodes.size());
+            }
+
+            // merge in node order, dropping edges shared between nodes
+            final Map<String, KamEdge> edges = new LinkedHashMap<String, KamEdge>();
+            int next = 0;
+            for (final List<KamEdge> result : results) {
+                final List<KamEdge> nodeEdges = result != null ? result
+                        : get(futures.get(next++));
+                for (final KamEdge edge : nodeEdges) {
+                    if (!edges.containsKey(edge.getId())) {
+                        edges.put(edge.getId(), edge);
+                    }
+                }
+            }
+            return new ArrayList<KamEdge>(edges.values());
+        } catch (InterruptedException e) {
+            halt();
+            return null;
+        } finally {
+            // cancel anything still in flight after a halt or failure
+            synchronized (pending) {
+                for (final Future<List<KamEdge>> future : pending) {
+                    future.cancel(true);
+                }
+                pending.clear();
+            }
+        }
+    }
+
+    /**
+     * Halts the expansion, cancelling any outstanding requests.
+     */
+    void halt() {
+        halt = true;
+        synchronized (pending) {
+            for (final Future<List<KamEdge>> future : pending) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private boolean submit(final KamNode kamNode,
+            final List<Future<List<KamEdge>>> futures,
+            final BlockingQueue<Future<List<KamEdge>>> completed) {
+        synchronized (pending) {
+            if (halt) {
+                return false;
+            }
+
+            final KamServiceFuture<List<KamEdge>> future = kamService
+                    .getAdjacentKamEdgesAsync(kamId, kamNode, direction);
+            future.addCallback(new KamServiceCallback<List<KamEdge>>() {
+                @Override
+                public void onSuccess(List<KamEdge> result) {
+                    completed.add(future);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    completed.add(future);
+                }
+            });
+            futures.add(future);
+            pending.add(future);
+            return true;
+        }
+    }
+
+    private static List<KamEdge> get(final Future<List<KamEdge>> future)
+            throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("Error expanding kam nodes", cause);
+        } catch (CancellationException e) {
+            return new ArrayList<KamEdge>();
+        }
+    }
+}
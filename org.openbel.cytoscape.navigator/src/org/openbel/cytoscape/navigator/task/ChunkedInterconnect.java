@@ -0,0 +1,230 @@
+/*
+ * KAM Navigator Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator.task;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import org.openbel.cytoscape.navigator.KamIdentifier;
+import org.openbel.cytoscape.navigator.KamSession;
+import org.openbel.cytoscape.webservice.KamService;
+import org.openbel.cytoscape.webservice.KamServiceExecutor;
+import org.openbel.cytoscape.webservice.KamServiceFuture;
+
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.SimplePath;
+
+import cytoscape.task.TaskMonitor;
+
+/**
+ * Package-protected helper that interconnects {@link KamNode kam nodes} using
+ * the backend {@link KamService#interconnect interconnect} operation.
+ *
+ * <p>
+ * Source sets larger than {@link #MAX_SOURCES} are split into chunks of half
+ * that size and each chunk holding primary nodes is paired with every later
+ * chunk in its own request. An edge between sources in different chunks is
+ * found by exactly one request. An edge within a chunk is found by every
+ * request holding that chunk, so a chunk is only sent alone when it is the
+ * last one and has no later chunk to pair with. Edges from all requests are
+ * merged and deduplicated by edge id.
+ * </p>
+ *
+ * <p>
+ * Requests run on the shared {@link KamServiceExecutor}, so a halt cancels
+ * the request in flight.
+ * </p>
+ */
+final class ChunkedInterconnect {
+    /**
+     * The maximum number of sources sent in a single interconnect request.
+     */
+    static final int MAX_SOURCES = 500;
+    // interconnect should always have a max depth of 1, otherwise it is a
+    // pathfind
+    private static final int INTERCONNECT_DEPTH = 1;
+
+    private final KamService kamService;
+    private final KamIdentifier kamId;
+    // marked as volatile in case halt is called by multiple threads
+    private volatile boolean halt = false;
+    private volatile KamServiceFuture<List<SimplePath>> current;
+
+    ChunkedInterconnect(KamService kamService, KamIdentifier kamId) {
+        this.kamService = kamService;
+        this.kamId = kamId;
+    }
+
+    /**
+     * Finds the {@link KamEdge kam edges} between the {@code primary}
+     * {@link KamNode kam nodes}, and between the {@code primary} and
+     * {@code secondary} {@link KamNode kam nodes}. Edges solely between
+     * {@code secondary} nodes are only found when they share a request with
+     * a primary node.
+     *
+     * @param primary
+     *            the {@link KamNode kam nodes} that must be interconnected
+     * @param secondary
+     *            additional {@link KamNode kam nodes} to connect the primary
+     *            nodes to, can be empty
+     * @param monitor
+     *            the {@link TaskMonitor monitor} to report progress to
+     * @return the {@link KamEdge kam edges} without duplicates, or
+     *         {@code null} if halted
+     * @throws RuntimeException
+     *             Thrown if a request failed
+     */
+    List<KamEdge> interconnect(final Collection<KamNode> primary,
+            final Collection<KamNode> secondary, final TaskMonitor monitor) {
+        // dedupe sources by id, primary nodes first
+        final Map<String, KamNode> sources = new LinkedHashMap<String, KamNode>();
+        for (final KamNode kamNode : primary) {
+            sources.put(kamNode.getId(), kamNode);
+        }
+        final int primaryCount = sources.size();
+        for (final KamNode kamNode : secondary) {
+            if (!sources.containsKey(kamNode.getId())) {
+                sources.put(kamNode.getId(), kamNode);
+            }
+        }
+
+        final List<KamEdge> edges = new ArrayList<KamEdge>();
+        if (primaryCount == 0 || sources.size() < 2) {
+            return edges;
+        }
+
+        final List<KamNode> nodes = new ArrayList<KamNode>(sources.values());
+        final List<List<KamNode>> requests = new ArrayList<List<KamNode>>();
+        if (nodes.size() <= MAX_SOURCES) {
+            requests.add(nodes);
+        } else {
+            final int chunkSize = MAX_SOURCES / 2;
+            final List<List<KamNode>> chunks = new ArrayList<List<KamNode>>();
+            for (int i = 0; i < nodes.size(); i += chunkSize) {
+                chunks.add(nodes.subList(i,
+                        Math.min(i + chunkSize, nodes.size())));
+            }
+
+            // primary nodes come first, so only the leading chunks hold them
+            final int primaryChunks = (primaryCount + chunkSize - 1)
+                    / chunkSize;
+            for (int i = 0; i < primaryChunks; i++) {
+                if (i == chunks.size() - 1) {
+                    // no later chunk covers the pairs within the last chunk
+                    requests.add(chunks.get(i));
+                }
+                for (int j = i + 1; j < chunks.size(); j++) {
+                    final List<KamNode> pair = new ArrayList<KamNode>(
+                            chunks.get(i));
+                    pair.addAll(chunks.get(j));
+                    requests.add(pair);
+                }
+            }
+        }
+
+        final DialectHandle dialectHandle = KamSession.getInstance()
+                .getDialectHandle(kamId);
+        final Map<String, KamEdge> merged = new LinkedHashMap<String, KamEdge>();
+        monitor.setPercentCompleted(0);
+        for (int r = 0; r < requests.size(); r++) {
+            if (halt) {
+                return null;
+            }
+
+            final List<KamNode> request = requests.get(r);
+            if (request.size() < 2) {
+                continue;
+            }
+
+            final List<SimplePath> paths = interconnect(dialectHandle, request);
+            if (paths == null) {
+                return null;
+            }
+            for (final SimplePath path : paths) {
+                for (final KamEdge edge : path.getEdges()) {
+                    if (!merged.containsKey(edge.getId())) {
+                        merged.put(edge.getId(), edge);
+                    }
+                }
+            }
+            monitor.setPercentCompleted((r + 1) * 100 / requests.size());
+        }
+
+        if (halt) {
+            return null;
+        }
+        edges.addAll(merged.values());
+        return edges;
+    }
+
+    /**
+     * Halts the interconnect before the next request is sent.
+     */
+    void halt() {
+        halt = true;
+
+        final KamServiceFuture<List<SimplePath>> future = current;
+        if (future != null) {
+            future.cancel(true);
+        }
+    }
+
+    private List<SimplePath> interconnect(final DialectHandle dialectHandle,
+            final List<KamNode> request) {
+        final KamServiceFuture<List<SimplePath>> future = KamServiceExecutor
+                .getInstance().submit(new Callable<List<SimplePath>>() {
+                    @Override
+                    public List<SimplePath> call() throws Exception {
+                        return kamService.interconnect(dialectHandle, request,
+                                INTERCONNECT_DEPTH);
+                    }
+                });
+        current = future;
+        if (halt) {
+            // halted before the request was published
+            future.cancel(true);
+        }
+
+        try {
+            return future.get();
+        } catch (CancellationException e) {
+            return null;
+        } catch (InterruptedException e) {
+            halt();
+            return null;
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException("Error interconnecting kam nodes", cause);
+        } finally {
+            current = null;
+        }
+    }
+}
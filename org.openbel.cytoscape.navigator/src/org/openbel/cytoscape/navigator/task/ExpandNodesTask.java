@@ -19,14 +19,10 @@
  */
 package org.openbel.cytoscape.navigator.task;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Set;
 
-import org.openbel.cytoscape.webservice.KamService;
-import org.openbel.cytoscape.webservice.KamServiceFactory;
-import org.openbel.cytoscape.navigator.KamSession;
+import org.openbel.cytoscape.navigator.CachingKamService;
 import org.openbel.cytoscape.navigator.KamIdentifier;
 import org.openbel.cytoscape.navigator.NetworkUtility;
 
@@ -51,16 +47,15 @@ import cytoscape.task.Task;
  */
 final class ExpandNodesTask extends AddEdgesTask {
 
-    private final EdgeDirectionType direction;
     private final Set<CyNode> cynodes;
-    private final KamService kamService;
+    private final AdjacentEdgeFanout fanout;
 
     ExpandNodesTask(CyNetwork cyNetwork, KamIdentifier kamId, Set<CyNode> cynodes,
             EdgeDirectionType direction) {
         super(cyNetwork, kamId, null);
         this.cynodes = cynodes;
-        this.direction = direction;
-        this.kamService = KamServiceFactory.getInstance().getKAMService();
+        this.fanout = new AdjacentEdgeFanout(
+                CachingKamService.getInstance(), kamId, direction);
     }
 
     /**
@@ -69,17 +64,16 @@ final class ExpandNodesTask extends AddEdgesTask {
     @Override
     protected Collection<KamEdge> getEdgesToAdd() {
         final Collection<KamNode> kamNodes = NetworkUtility.getKAMNodes(cynodes);
-        List<KamEdge> edges = new ArrayList<KamEdge>();
-        for (KamNode kamNode : kamNodes) {
-            if (halt) {
-                break;
-            }
-
-            edges.addAll(kamService.getAdjacentKamEdges(
-                    KamSession.getInstance().getDialectHandle(kamId), 
-                    kamNode, direction, null));
-        }
-        return edges;
+        monitor.setStatus("Expanding " + kamNodes.size() + " nodes");
+        return fanout.expand(kamNodes, monitor);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void halt() {
+        super.halt();
+        fanout.halt();
+    }
 }
@@ -19,25 +19,16 @@
  */
 package org.openbel.cytoscape.navigator.task;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
+import java.util.Collections;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
-import org.openbel.cytoscape.webservice.KamService;
 import org.openbel.cytoscape.webservice.KamServiceFactory;
-import org.openbel.cytoscape.navigator.KamSession;
 import org.openbel.cytoscape.navigator.KamIdentifier;
 import org.openbel.cytoscape.navigator.NetworkUtility;
 
 import org.openbel.framework.ws.model.KamEdge;
 import org.openbel.framework.ws.model.KamNode;
-import org.openbel.framework.ws.model.SimplePath;
 
 import cytoscape.CyNetwork;
 import cytoscape.CyNode;
@@ -58,17 +49,15 @@ import cytoscape.task.Task;
 final class InterconnectNodesTask extends AddEdgesTask {
     
     private static final CyLogger log = CyLogger.getLogger(InterconnectNodesTask.class);
-    // interconnect should always have a max depth of 1, otherwise it is a 
-    // pathfind
-    private static final int INTERCONNECT_DEPTH = 1;
 
     private final Set<CyNode> cynodes;
-    private final KamService kamService;
+    private final ChunkedInterconnect interconnect;
 
     InterconnectNodesTask(CyNetwork cyNetwork, KamIdentifier kamId, Set<CyNode> cynodes) {
         super(cyNetwork, kamId, null);
         this.cynodes = cynodes;
-        this.kamService = KamServiceFactory.getInstance().getKAMService();
+        this.interconnect = new ChunkedInterconnect(KamServiceFactory
+                .getInstance().getKAMService(), kamId);
 
         if (cynodes == null || cynodes.size() < 2) {
             throw new IllegalArgumentException(
@@ -82,65 +71,21 @@ final class InterconnectNodesTask extends AddEdgesTask {
     @Override
     protected Collection<KamEdge> getEdgesToAdd() {
         final Collection<KamNode> kamNodes = NetworkUtility.getKAMNodes(cynodes);
-        final List<SimplePath> paths = interconnect(kamNodes);
-        if (paths == null) {
-            return null;
-        }
-
-        final List<KamEdge> edges = new ArrayList<KamEdge>();
-        for (final SimplePath path : paths) {
-            if (halt) {
-                break;
-            }
-
-            edges.addAll(path.getEdges());
-        }
-        return edges;
-    }
-
-    // TODO this method of interrupting the executor is taken directly
-    // from the node search, can we push it up somewhere?
-    private List<SimplePath> interconnect(final Collection<KamNode> kamNodes) {
-        ExecutorService e = Executors.newSingleThreadExecutor();
-        Future<List<SimplePath>> future = e
-                .submit(new Callable<List<SimplePath>>() {
-                    @Override
-                    public List<SimplePath> call() throws Exception {
-                        return kamService.interconnect(
-                                KamSession.getInstance().getDialectHandle(kamId),
-                                kamNodes,
-                                INTERCONNECT_DEPTH);
-                    }
-                });
-
-        while (!(future.isDone() || future.isCancelled()) && !e.isShutdown()) {
-            try {
-                if (halt) {
-                    // this should not block
-                    // but be aware that if the thread in the executor is
-                    // blocked it will continue to live on
-                    e.shutdownNow();
-
-                    future.cancel(true);
-                }
-                // sleep thread to enable interrupt
-                Thread.sleep(100);
-            } catch (InterruptedException ex) {
-                halt = true;
-            }
-        }
-
-        if (future.isCancelled()) {
-            return null;
-        }
         try {
-            return future.get();
-        } catch (InterruptedException ex) {
-            log.warn("Error interconnecting nodes", ex);
-            return null;
-        } catch (ExecutionException ex) {
+            return interconnect.interconnect(kamNodes,
+                    Collections.<KamNode> emptyList(), monitor);
+        } catch (RuntimeException ex) {
             log.warn("Error interconnecting nodes", ex);
             return null;
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void halt() {
+        super.halt();
+        interconnect.halt();
+    }
 }
@@ -53,7 +53,8 @@ public class KamTasks {
      */
     public static void addNodes(CyNetwork cyNetwork, KamIdentifier kamId,
             List<KamNode> kamNodes) {
-        Utility.executeTask(new AddNodesTask(cyNetwork, kamId, kamNodes));
+        Utility.executeTask(new AddNodesTask(cyNetwork, kamId, kamNodes),
+                kamId);
     }
 
     /**
@@ -67,7 +68,8 @@ public class KamTasks {
      */
     public static void addEdges(CyNetwork cyNetwork, KamIdentifier kamId,
             List<KamEdge> kamEdges) {
-        Utility.executeTask(new AddEdgesTask(cyNetwork, kamId, kamEdges));
+        Utility.executeTask(new AddEdgesTask(cyNetwork, kamId, kamEdges),
+                kamId);
     }
 
     /**
@@ -83,7 +85,7 @@ public class KamTasks {
             KamIdentifier kamId, List<KamNode> kamNodes,
             EdgeDirectionType direction) {
         Utility.executeTask(new AddNodesEdgesTask(cyNetwork, kamId, kamNodes,
-                direction));
+                direction), kamId);
     }
 
     /**
@@ -98,7 +100,7 @@ public class KamTasks {
     public static void addNodesAndInterconnect(CyNetwork cyNetwork,
             KamIdentifier kamId, List<KamNode> kamNodes) {
         Utility.executeTask(new AddNodesInterconnectTask(cyNetwork, kamId,
-                kamNodes));
+                kamNodes), kamId);
     }
 
     /**
@@ -114,7 +116,7 @@ public class KamTasks {
     public static void expandNodes(CyNetwork cyNetwork, KamIdentifier kamId,
             Set<CyNode> cynodes, EdgeDirectionType direction) {
         Utility.executeTask(new ExpandNodesTask(cyNetwork, kamId, cynodes,
-                direction));
+                direction), kamId);
     }
 
     /**
@@ -128,7 +130,17 @@ public class KamTasks {
      */
     public static void interconnectNodes(CyNetwork cyNetwork,
             KamIdentifier kamId, Set<CyNode> cynodes) {
-        Utility.executeTask(new InterconnectNodesTask(cyNetwork, kamId, cynodes));
+        Utility.executeTask(new InterconnectNodesTask(cyNetwork, kamId, cynodes),
+                kamId);
+    }
+
+    /**
+     * Call the {@link RefreshMetadataTask}.
+     *
+     * @see RefreshMetadataTask#run()
+     */
+    public static void refreshMetadata() {
+        Utility.executeTask(new RefreshMetadataTask());
     }
 
     private KamTasks() {
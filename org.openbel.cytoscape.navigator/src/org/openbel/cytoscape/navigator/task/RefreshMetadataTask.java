@@ -0,0 +1,92 @@
+/*
+ * KAM Navigator Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.navigator.task;
+
+import org.openbel.cytoscape.webservice.KamMetadataCache;
+import org.openbel.cytoscape.webservice.KamServiceFactory;
+
+import cytoscape.task.Task;
+import cytoscape.task.TaskMonitor;
+
+/**
+ * Package-protected {@link Task task} to reload the KAM catalog and
+ * namespaces held by the {@link KamMetadataCache metadata cache}.
+ *
+ * <p>
+ * This {@link Task task} should be called by
+ * {@link KamTasks#refreshMetadata()}.
+ * </p>
+ */
+final class RefreshMetadataTask implements Task {
+    private static final String TITLE = "Refreshing KAM Catalog";
+    private TaskMonitor monitor;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+        monitor.setStatus("Reloading KAM catalog and namespaces");
+        monitor.setPercentCompleted(-1);
+
+        final KamMetadataCache cache = KamServiceFactory.getInstance()
+                .getMetadataCache();
+        if (cache == null) {
+            // metadata cache not configured, nothing is held
+            monitor.setPercentCompleted(100);
+            return;
+        }
+
+        try {
+            cache.refresh();
+        } catch (RuntimeException e) {
+            monitor.setException(e, "Error refreshing KAM catalog");
+            return;
+        }
+        monitor.setPercentCompleted(100);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The refresh can't be halted, stale metadata is kept until it
+     * completes.
+     */
+    @Override
+    public void halt() {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setTaskMonitor(TaskMonitor monitor)
+            throws IllegalThreadStateException {
+        this.monitor = monitor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getTitle() {
+        return TITLE;
+    }
+}
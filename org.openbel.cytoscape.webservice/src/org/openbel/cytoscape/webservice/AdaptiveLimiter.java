@@ -0,0 +1,206 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import cytoscape.logger.CyLogger;
+
+/**
+ * {@link AdaptiveLimiter} sets how many remote {@link KamService kam service}
+ * requests may be in flight at once, using additive increase and
+ * multiplicative decrease (AIMD).
+ *
+ * <p>
+ * While the limit is in use and requests answer within {@link #TOLERANCE}
+ * times the median latency of their {@link KamOperation operation}, the
+ * limit grows by one per limit's worth of requests. A slower answer cuts it
+ * by {@link #LATENCY_BACKOFF} and a request that gets no answer cuts it by
+ * {@link #ERROR_BACKOFF}. Only requests started after the last cut can cut it
+ * again, so one burst of slow answers counts once.
+ * </p>
+ *
+ * <p>
+ * The limit stays between {@link #MIN_LIMIT} and {@link #getMaxLimit()} and
+ * starts at {@link Configuration#getConcurrentRequests()}. If
+ * {@link Configuration#isAdaptiveConcurrency() adaptive concurrency} is off
+ * the limit is fixed at {@link Configuration#getConcurrentRequests()}.
+ * Every fan-out path is covered, since each request is admitted by the
+ * {@link LaneScheduler} against this limit.
+ * </p>
+ *
+ * <p>
+ * This class is a singleton as the limit is shared by all plugins.
+ * </p>
+ */
+public final class AdaptiveLimiter {
+    private static final CyLogger log = CyLogger
+            .getLogger(AdaptiveLimiter.class);
+    /**
+     * The lowest limit.
+     */
+    public static final int MIN_LIMIT = 1;
+    /**
+     * The multiple of the median latency above which an answer counts as
+     * slow.
+     */
+    static final double TOLERANCE = 2.0;
+    static final double LATENCY_BACKOFF = 0.9;
+    static final double ERROR_BACKOFF = 0.5;
+    private static AdaptiveLimiter instance;
+    private double limit;
+    private long lastDecrease = 0;
+
+    /**
+     * Retrieve the singleton instance of {@link AdaptiveLimiter}.
+     *
+     * @return the singleton instance
+     */
+    public static synchronized AdaptiveLimiter getInstance() {
+        if (instance == null) {
+            instance = new AdaptiveLimiter();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Private constructor for singleton.
+     */
+    private AdaptiveLimiter() {
+        limit = Configuration.getInstance().getConcurrentRequests();
+    }
+
+    /**
+     * Returns the number of requests that may currently be in flight.
+     *
+     * @return the current limit
+     */
+    public int getLimit() {
+        final Configuration cfg = Configuration.getInstance();
+        if (!cfg.isAdaptiveConcurrency()) {
+            return cfg.getConcurrentRequests();
+        }
+        synchronized (this) {
+            return Math.max(MIN_LIMIT, Math.min((int) limit, getMaxLimit()));
+        }
+    }
+
+    /**
+     * Returns the highest limit, the larger of
+     * {@link Configuration#getConcurrentRequests()} and
+     * {@link Configuration#getConnectionPoolSize()} in adaptive mode.
+     *
+     * @return the highest limit
+     */
+    public int getMaxLimit() {
+        final Configuration cfg = Configuration.getInstance();
+        if (!cfg.isAdaptiveConcurrency()) {
+            return cfg.getConcurrentRequests();
+        }
+        return Math.max(cfg.getConcurrentRequests(), cfg
+                .getConnectionPoolSize());
+    }
+
+    /**
+     * Returns the number of requests in flight.
+     *
+     * @return the number of requests in flight
+     */
+    public int getInFlight() {
+        return LaneScheduler.getInstance().getRunning();
+    }
+
+    /**
+     * Returns the number of requests waiting for the limit.
+     *
+     * @return the queue depth
+     */
+    public int getQueueDepth() {
+        return LaneScheduler.getInstance().getWaiting();
+    }
+
+    /**
+     * Records an answered request.
+     *
+     * @param start
+     *            the time the request was sent in epoch milliseconds
+     * @param latency
+     *            the latency of the request in milliseconds
+     * @param median
+     *            the median latency of the operation in milliseconds, or -1
+     *            if not known yet
+     * @param inFlight
+     *            the number of requests in flight when it was sent
+     */
+    void onSuccess(final long start, final long latency, final long median,
+            final int inFlight) {
+        if (median >= 0 && latency > median * TOLERANCE) {
+            decrease(start, LATENCY_BACKOFF, "latency " + latency
+                    + " ms over median " + median + " ms");
+            return;
+        }
+
+        final boolean raised;
+        synchronized (this) {
+            // only grow a limit that is in use
+            if (inFlight < (int) limit || limit >= getMaxLimit()) {
+                return;
+            }
+            final int before = (int) limit;
+            limit = Math.min(limit + 1 / limit, getMaxLimit());
+            raised = (int) limit > before;
+        }
+        if (raised) {
+            log.debug("Raised request limit to " + getLimit());
+            LaneScheduler.getInstance().limitChanged();
+        }
+    }
+
+    /**
+     * Records a request that got no answer.
+     *
+     * @param start
+     *            the time the request was sent in epoch milliseconds
+     */
+    void onDropped(final long start) {
+        decrease(start, ERROR_BACKOFF, "request failed");
+    }
+
+    /**
+     * Resets the limit to {@link Configuration#getConcurrentRequests()},
+     * after the configuration changed.
+     */
+    void reset() {
+        synchronized (this) {
+            limit = Configuration.getInstance().getConcurrentRequests();
+            lastDecrease = 0;
+        }
+        LaneScheduler.getInstance().limitChanged();
+    }
+
+    private synchronized void decrease(final long start, final double factor,
+            final String reason) {
+        if (start < lastDecrease) {
+            return;
+        }
+        lastDecrease = System.currentTimeMillis();
+        limit = Math.max(MIN_LIMIT, limit * factor);
+        log.debug("Lowered request limit to " + (int) limit + ", " + reason);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.EdgeFilter;
+import org.openbel.framework.ws.model.FunctionType;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamHandle;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.LoadKamResponse;
+import org.openbel.framework.ws.model.Namespace;
+import org.openbel.framework.ws.model.NamespaceDescriptor;
+import org.openbel.framework.ws.model.NamespaceValue;
+import org.openbel.framework.ws.model.NodeFilter;
+import org.openbel.framework.ws.model.SimplePath;
+
+/**
+ * {@link AsyncKamService} is the asynchronous companion of {@link KamService}.
+ * Each call returns at once with a {@link KamServiceFuture future} that can
+ * be waited on, cancelled, {@link KamServiceFuture#transform transformed},
+ * {@link KamServiceFuture#then pipelined}, {@link KamServiceFuture#all
+ * combined} or given
+ * {@link KamServiceCallback callbacks}.
+ *
+ * <p>
+ * The calls have the same meaning and failures as the matching
+ * {@link KamService} methods, failures are reported through the future.
+ * </p>
+ *
+ * @see KamServiceFactory#getAsyncKAMService()
+ */
+public interface AsyncKamService {
+
+    /**
+     * Reloads the {@link ClientConnector} in this {@link AsyncKamService}.
+     * Unlike the other calls this is done on the calling thread.
+     */
+    void reloadClientConnector();
+
+    /**
+     * @see KamService#findKamNodesByNamespaceValues(KamHandle, DialectHandle,
+     *      List, NodeFilter)
+     */
+    KamServiceFuture<List<KamNode>> findKamNodesByNamespaceValues(
+            KamHandle kamHandle, DialectHandle dialectHandle,
+            List<NamespaceValue> namespaceValues, NodeFilter nodeFilter);
+
+    /**
+     * @see KamService#findNamespaceValues(Collection, Collection)
+     */
+    KamServiceFuture<List<NamespaceValue>> findNamespaceValues(
+            Collection<String> patterns, Collection<Namespace> namespaces);
+
+    /**
+     * @see KamService#getAllNamespaces()
+     */
+    KamServiceFuture<List<NamespaceDescriptor>> getAllNamespaces();
+
+    /**
+     * @see KamService#getCatalog()
+     */
+    KamServiceFuture<List<Kam>> getCatalog();
+
+    /**
+     * @see KamService#getDefaultDialect(KamHandle)
+     */
+    KamServiceFuture<DialectHandle> getDefaultDialect(KamHandle kamHandle);
+
+    /**
+     * @see KamService#loadKam(Kam)
+     */
+    KamServiceFuture<LoadKamResponse> loadKam(Kam kam);
+
+    /**
+     * @see KamService#getSupportingTerms(KamNode)
+     */
+    KamServiceFuture<List<BelTerm>> getSupportingTerms(KamNode node);
+
+    /**
+     * @see KamService#getSupportingEvidence(KamEdge)
+     */
+    KamServiceFuture<List<BelStatement>> getSupportingEvidence(KamEdge edge);
+
+    /**
+     * @see KamService#findKamNodesByFunction(KamHandle, DialectHandle,
+     *      FunctionType)
+     */
+    KamServiceFuture<List<KamNode>> findKamNodesByFunction(
+            KamHandle kamHandle, DialectHandle dialectHandle,
+            FunctionType function);
+
+    /**
+     * @see KamService#findKamNodesByPatterns(KamHandle, DialectHandle, String,
+     *      NodeFilter)
+     */
+    KamServiceFuture<List<KamNode>> findKamNodesByPatterns(
+            KamHandle kamHandle, DialectHandle dialectHandle, String regex,
+            NodeFilter nf);
+
+    /**
+     * @see KamService#getAdjacentKamEdges(DialectHandle, KamNode,
+     *      EdgeDirectionType, EdgeFilter)
+     */
+    KamServiceFuture<List<KamEdge>> getAdjacentKamEdges(
+            DialectHandle dialectHandle, KamNode node,
+            EdgeDirectionType direction, EdgeFilter ef);
+
+    /**
+     * @see KamService#interconnect(DialectHandle, Collection, Integer)
+     */
+    KamServiceFuture<List<SimplePath>> interconnect(
+            DialectHandle dialectHandle, Collection<KamNode> sources,
+            Integer maxDepth);
+}
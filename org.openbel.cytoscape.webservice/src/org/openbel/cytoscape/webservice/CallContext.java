@@ -0,0 +1,231 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.concurrent.Callable;
+
+/**
+ * {@link CallContext} carries the deadline of the current task on its
+ * thread, so every {@link KamService kam service} call made for the task,
+ * directly or through the {@link KamServiceExecutor executor}, finishes or
+ * fails by the same time.  It also carries the {@link RequestLane lane} the
+ * calls are scheduled in and the KAM tag their
+ * {@link KamServiceMetrics metrics} are recorded under.
+ *
+ * <p>
+ * A task sets its deadline before making calls and restores the previous
+ * deadline when done:
+ *
+ * <pre>
+ * final long previous = CallContext.setDeadline(deadline);
+ * try {
+ *     // kam service calls
+ * } finally {
+ *     CallContext.restore(previous);
+ * }
+ * </pre>
+ *
+ * </p>
+ */
+public final class CallContext {
+    /**
+     * The value of {@link #getDeadline()} when there is no deadline.
+     */
+    public static final long NO_DEADLINE = 0;
+    private static final ThreadLocal<Long> deadline = new ThreadLocal<Long>();
+    private static final ThreadLocal<RequestLane> lane = new ThreadLocal<RequestLane>();
+    private static final ThreadLocal<String> kamTag = new ThreadLocal<String>();
+
+    private CallContext() {
+        // static utility class
+    }
+
+    /**
+     * Returns the deadline of the current thread.
+     *
+     * @return the deadline in {@link System#currentTimeMillis() epoch
+     *         milliseconds}, or {@link #NO_DEADLINE}
+     */
+    public static long getDeadline() {
+        final Long d = deadline.get();
+        return d != null ? d : NO_DEADLINE;
+    }
+
+    /**
+     * Sets the deadline of the current thread, a deadline later than the one
+     * already set is ignored so nested tasks can only shorten it.
+     *
+     * @param deadlineMillis
+     *            the deadline in {@link System#currentTimeMillis() epoch
+     *            milliseconds}
+     * @return the previous deadline, to pass to {@link #restore(long)}
+     */
+    public static long setDeadline(final long deadlineMillis) {
+        final long previous = getDeadline();
+        if (previous == NO_DEADLINE || deadlineMillis < previous) {
+            deadline.set(deadlineMillis);
+        }
+        return previous;
+    }
+
+    /**
+     * Restores a deadline returned by {@link #setDeadline(long)}.
+     *
+     * @param previous
+     *            the previous deadline
+     */
+    public static void restore(final long previous) {
+        if (previous == NO_DEADLINE) {
+            deadline.remove();
+        } else {
+            deadline.set(previous);
+        }
+    }
+
+    /**
+     * Returns the time left until the deadline of the current thread.
+     *
+     * @return the remaining milliseconds, zero or less once the deadline has
+     *         passed, or {@link Long#MAX_VALUE} if there is no deadline
+     */
+    public static long remainingMillis() {
+        final long d = getDeadline();
+        if (d == NO_DEADLINE) {
+            return Long.MAX_VALUE;
+        }
+        return d - System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the {@link RequestLane lane} of the current thread.
+     *
+     * @return the {@link RequestLane lane}, {@link RequestLane#INTERACTIVE}
+     *         unless set
+     */
+    public static RequestLane getLane() {
+        final RequestLane l = lane.get();
+        return l != null ? l : RequestLane.INTERACTIVE;
+    }
+
+    /**
+     * Sets the {@link RequestLane lane} of the current thread.
+     *
+     * @param requestLane
+     *            the {@link RequestLane lane}, which can not be null
+     * @return the previous {@link RequestLane lane}, to pass to
+     *         {@link #restoreLane(RequestLane)}
+     */
+    public static RequestLane setLane(final RequestLane requestLane) {
+        if (requestLane == null) {
+            throw new IllegalArgumentException("requestLane can not be null");
+        }
+        final RequestLane previous = getLane();
+        lane.set(requestLane);
+        return previous;
+    }
+
+    /**
+     * Restores a {@link RequestLane lane} returned by
+     * {@link #setLane(RequestLane)}.
+     *
+     * @param previous
+     *            the previous {@link RequestLane lane}
+     */
+    public static void restoreLane(final RequestLane previous) {
+        if (previous == RequestLane.INTERACTIVE) {
+            lane.remove();
+        } else {
+            lane.set(previous);
+        }
+    }
+
+    /**
+     * Returns the tag of the KAM the calls of the current thread are made
+     * for.
+     *
+     * @return the KAM tag, or {@code null} if not set
+     */
+    public static String getKamTag() {
+        return kamTag.get();
+    }
+
+    /**
+     * Sets the tag of the KAM the calls of the current thread are made for.
+     *
+     * @param tag
+     *            the KAM tag, {@code null} to clear it
+     * @return the previous KAM tag, to pass to {@link #restoreKamTag(String)}
+     */
+    public static String setKamTag(final String tag) {
+        final String previous = kamTag.get();
+        restoreKamTag(tag);
+        return previous;
+    }
+
+    /**
+     * Restores a KAM tag returned by {@link #setKamTag(String)}.
+     *
+     * @param previous
+     *            the previous KAM tag, may be {@code null}
+     */
+    public static void restoreKamTag(final String previous) {
+        if (previous == null) {
+            kamTag.remove();
+        } else {
+            kamTag.set(previous);
+        }
+    }
+
+    /**
+     * Wraps a call so it runs with the deadline, {@link RequestLane lane} and
+     * KAM tag of the current thread on whichever thread executes it.
+     *
+     * @param callable
+     *            the {@link Callable call}
+     * @return the wrapped {@link Callable call}, or {@code callable} itself
+     *         if the current thread has no deadline, the default lane and no
+     *         KAM tag
+     */
+    public static <T> Callable<T> propagate(final Callable<T> callable) {
+        final long d = getDeadline();
+        final RequestLane l = getLane();
+        final String tag = getKamTag();
+        if (d == NO_DEADLINE && l == RequestLane.INTERACTIVE && tag == null) {
+            return callable;
+        }
+
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                final long previous = d != NO_DEADLINE ? setDeadline(d)
+                        : getDeadline();
+                final RequestLane previousLane = setLane(l);
+                final String previousTag = setKamTag(tag);
+                try {
+                    return callable.call();
+                } finally {
+                    restoreKamTag(previousTag);
+                    restoreLane(previousLane);
+                    restore(previous);
+                }
+            }
+        };
+    }
+}
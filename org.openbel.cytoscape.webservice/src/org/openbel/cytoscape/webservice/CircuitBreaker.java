@@ -0,0 +1,310 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import cytoscape.logger.CyLogger;
+
+/**
+ * {@link CircuitBreaker} guards the {@link ClientConnector connector} so an
+ * unreachable server fails calls fast instead of every call reconnecting.
+ *
+ * <ul>
+ * <li>{@link State#CLOSED closed}: calls are allowed, consecutive
+ * connection failures are counted and {@link #FAILURE_THRESHOLD} of them
+ * open the breaker.</li>
+ * <li>{@link State#OPEN open}: calls fail fast with a
+ * {@link ConnectionUnavailableException}, while a background health probe
+ * checks the server with exponential backoff between
+ * {@link #INITIAL_PROBE_MS} and {@link #MAX_PROBE_MS}.</li>
+ * <li>{@link State#HALF_OPEN half-open}: the probe succeeded, one trial call
+ * is allowed through. It closes the breaker on success or opens it again on
+ * failure.</li>
+ * </ul>
+ *
+ * <p>
+ * {@link Listener Listeners} are told about every state change, so the UI
+ * can report an outage once rather than on every call.
+ * </p>
+ */
+public class CircuitBreaker {
+    private static final CyLogger log = CyLogger
+            .getLogger(CircuitBreaker.class);
+    /**
+     * The number of consecutive connection failures that open the breaker.
+     */
+    static final int FAILURE_THRESHOLD = 3;
+    static final long INITIAL_PROBE_MS = 1000;
+    static final long MAX_PROBE_MS = 60000;
+
+    private final Callable<Boolean> probe;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+    private State state = State.CLOSED;
+    private int failures = 0;
+    private boolean trialInFlight = false;
+    private long probeDelay = INITIAL_PROBE_MS;
+    private ScheduledExecutorService prober;
+    private ScheduledFuture<?> scheduledProbe;
+
+    /**
+     * The states of the breaker.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Receives breaker state changes. Listeners are called on the thread
+     * that caused the change and must not block.
+     */
+    public interface Listener {
+        /**
+         * Called when the breaker changes state.
+         *
+         * @param from
+         *            the previous {@link State state}
+         * @param to
+         *            the new {@link State state}
+         */
+        void stateChanged(State from, State to);
+    }
+
+    /**
+     * Creates a closed breaker.
+     *
+     * @param probe
+     *            the health check run while the breaker is open, returns
+     *            {@code true} if the server is reachable
+     */
+    CircuitBreaker(final Callable<Boolean> probe) {
+        this.probe = probe;
+    }
+
+    /**
+     * Checks whether a call may proceed, a call that may proceed must be
+     * followed by {@link #recordSuccess()}, {@link #recordFailure()} or
+     * {@link #release()}.
+     *
+     * @throws ConnectionUnavailableException
+     *             Thrown if the breaker is open, or half-open with the trial
+     *             call already in flight
+     */
+    public void acquire() {
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return;
+            }
+            if (state == State.HALF_OPEN && !trialInFlight) {
+                trialInFlight = true;
+                return;
+            }
+        }
+        throw new ConnectionUnavailableException(
+                "The BELFramework Web Services are unavailable.");
+    }
+
+    /**
+     * Records a call that reached the server, closing a half-open breaker.
+     */
+    public void recordSuccess() {
+        final State from;
+        synchronized (this) {
+            failures = 0;
+            trialInFlight = false;
+            if (state == State.CLOSED) {
+                return;
+            }
+            from = state;
+            close();
+        }
+        fire(from, State.CLOSED);
+    }
+
+    /**
+     * Records a call that could not reach the server, opening the breaker
+     * after {@link #FAILURE_THRESHOLD} consecutive failures or after a
+     * failed trial call.
+     */
+    public void recordFailure() {
+        final State from;
+        synchronized (this) {
+            trialInFlight = false;
+            failures++;
+            if (state == State.OPEN
+                    || (state == State.CLOSED && failures < FAILURE_THRESHOLD)) {
+                return;
+            }
+            from = state;
+            open();
+        }
+        fire(from, State.OPEN);
+    }
+
+    /**
+     * Releases a call that ended without telling whether the server is
+     * reachable, such as one that timed out waiting for a stub or for the
+     * answer to a slow request.
+     */
+    public synchronized void release() {
+        trialInFlight = false;
+    }
+
+    /**
+     * Opens the breaker immediately, for example when the connector could
+     * not be configured.
+     */
+    public void trip() {
+        final State from;
+        synchronized (this) {
+            trialInFlight = false;
+            if (state == State.OPEN) {
+                return;
+            }
+            from = state;
+            open();
+        }
+        fire(from, State.OPEN);
+    }
+
+    /**
+     * Closes the breaker immediately, for example after the connector was
+     * reconfigured successfully.
+     */
+    public void reset() {
+        final State from;
+        synchronized (this) {
+            failures = 0;
+            trialInFlight = false;
+            if (state == State.CLOSED) {
+                return;
+            }
+            from = state;
+            close();
+        }
+        fire(from, State.CLOSED);
+    }
+
+    /**
+     * Returns the current {@link State state}.
+     *
+     * @return the {@link State state}
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    public void addListener(final Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(final Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // called while holding the lock
+    private void open() {
+        state = State.OPEN;
+        probeDelay = INITIAL_PROBE_MS;
+        scheduleProbe();
+    }
+
+    // called while holding the lock
+    private void close() {
+        state = State.CLOSED;
+        if (scheduledProbe != null) {
+            scheduledProbe.cancel(false);
+            scheduledProbe = null;
+        }
+    }
+
+    // called while holding the lock
+    private void scheduleProbe() {
+        if (prober == null) {
+            prober = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            final Thread t = new Thread(r, "kam-health-probe");
+                            t.setDaemon(true);
+                            t.setPriority(Thread.MIN_PRIORITY);
+                            return t;
+                        }
+                    });
+        }
+        if (scheduledProbe != null) {
+            scheduledProbe.cancel(false);
+        }
+        scheduledProbe = prober.schedule(new Runnable() {
+            @Override
+            public void run() {
+                probe();
+            }
+        }, probeDelay, TimeUnit.MILLISECONDS);
+    }
+
+    private void probe() {
+        boolean healthy;
+        try {
+            healthy = Boolean.TRUE.equals(probe.call());
+        } catch (Exception e) {
+            log.debug("Health probe failed", e);
+            healthy = false;
+        }
+
+        synchronized (this) {
+            if (state != State.OPEN) {
+                // closed or reset while probing
+                return;
+            }
+            if (!healthy) {
+                probeDelay = Math.min(probeDelay * 2, MAX_PROBE_MS);
+                scheduleProbe();
+                return;
+            }
+            state = State.HALF_OPEN;
+            scheduledProbe = null;
+        }
+        log.info("BELFramework Web Services reachable again, allowing a"
+                + " trial request");
+        fire(State.OPEN, State.HALF_OPEN);
+    }
+
+    private void fire(final State from, final State to) {
+        if (to == State.OPEN) {
+            log.warn("BELFramework Web Services unavailable, failing calls"
+                    + " fast until the server responds");
+        }
+        for (final Listener listener : listeners) {
+            try {
+                listener.stateChanged(from, to);
+            } catch (RuntimeException e) {
+                log.warn("Error notifying circuit breaker listener", e);
+            }
+        }
+    }
+}
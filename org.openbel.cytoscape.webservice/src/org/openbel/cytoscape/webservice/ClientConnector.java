@@ -19,11 +19,22 @@
  */
 package org.openbel.cytoscape.webservice;
 
-import java.net.MalformedURLException;
+import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.xml.namespace.QName;
-import javax.xml.ws.BindingProvider;
 
 import org.openbel.framework.ws.model.WebAPI;
 import org.openbel.framework.ws.model.WebAPIService;
@@ -32,6 +43,7 @@ import cytoscape.data.webservice.CyWebServiceEvent;
 import cytoscape.data.webservice.CyWebServiceException;
 import cytoscape.data.webservice.WebServiceClientImpl;
 import cytoscape.data.webservice.WebServiceClientManager;
+import cytoscape.logger.CyLogger;
 
 /**
  * {@link ClientConnector} defines the BELFramework webservice to register with
@@ -43,11 +55,49 @@ public class ClientConnector extends WebServiceClientImpl<WebAPI> {
     private static final long serialVersionUID = -6685554742203767122L;
     private static final String CLIENT = "belframework";
     private static final String DISPLAY_NAME = "BEL Framework Web Services Connection";
-    private static final String REQUEST_TIMEOUT_KEY =
-            "com.sun.xml.internal.ws.request.timeout";
+    private static final QName SERVICE_NAME = new QName(
+            "http://belframework.org/ws/schemas", "WebAPIService");
+    private static final CyLogger log = CyLogger
+            .getLogger(ClientConnector.class);
     private static final Configuration cfg = Configuration.getInstance();
+    private static final AtomicBoolean maxConnectionsApplied =
+            new AtomicBoolean();
     private static ClientConnector instance;
-    private boolean valid = false;
+    private final AtomicLong generations = new AtomicLong();
+    private final AtomicReference<ConnectionSnapshot> snapshot =
+            new AtomicReference<ConnectionSnapshot>(new ConnectionSnapshot(
+                    null, null, 0, 0));
+    private volatile State state = State.NEW;
+    private final CountDownLatch initialized = new CountDownLatch(1);
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(
+            new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return probe();
+                }
+            });
+
+    /**
+     * The initialization state of the connector.
+     */
+    public enum State {
+        /**
+         * Not configured yet.
+         */
+        NEW,
+        /**
+         * Being configured by the background initializer.
+         */
+        INITIALIZING,
+        /**
+         * Configured with a valid connection.
+         */
+        READY,
+        /**
+         * Configured, but the connection is not valid.
+         */
+        FAILED
+    }
 
     public static synchronized ClientConnector getInstance() {
         if (instance == null) {
@@ -58,11 +108,85 @@ public class ClientConnector extends WebServiceClientImpl<WebAPI> {
     }
 
     /**
-     * Private constructor for singleton instance.
+     * Private constructor for singleton instance. The connection is not
+     * configured until {@link #initializeInBackground()} or
+     * {@link #reconfigure()} is called.
      */
     private ClientConnector() {
         super(CLIENT, DISPLAY_NAME);
-        configure();
+    }
+
+    /**
+     * Configures the connection on a background thread, so retrieving the
+     * WSDL does not hold up cytoscape startup. Does nothing if the connector
+     * has already been configured or is being configured.
+     * <p>
+     * Once the connection is ready the KAM catalog and namespaces are
+     * prefetched into the {@link KamMetadataCache metadata cache}. If
+     * {@link Configuration#isWarmUp() warm-up} is enabled, the same thread
+     * then runs a {@link ConnectionWarmUp warm-up} at minimum priority.
+     * </p>
+     *
+     * @see #awaitInitialized(long)
+     */
+    public void initializeInBackground() {
+        synchronized (initialized) {
+            if (state != State.NEW) {
+                return;
+            }
+            state = State.INITIALIZING;
+        }
+
+        final Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (ClientConnector.this) {
+                    if (initialized.getCount() > 0) {
+                        configure();
+                    }
+                }
+                if (!isValid()) {
+                    log.warn("Unable to connect to the BELFramework Web"
+                            + " Services at " + cfg.getWSDLURL());
+                    circuitBreaker.trip();
+                    return;
+                }
+                prefetchMetadata();
+                if (cfg.isWarmUp()) {
+                    Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+                    new ConnectionWarmUp(ClientConnector.this).run();
+                }
+            }
+        }, "belframework-connector-init");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Waits for the first configuration of the connection to finish.
+     *
+     * @param timeoutMillis
+     *            the maximum time to wait in milliseconds
+     * @return {@code true} if the connector has been configured, either
+     *         {@link State#READY ready} or {@link State#FAILED failed},
+     *         {@code false} if the wait timed out or was interrupted
+     */
+    public boolean awaitInitialized(long timeoutMillis) {
+        try {
+            return initialized.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Returns the initialization {@link State state} of the connector.
+     *
+     * @return the {@link State state}
+     */
+    public State getState() {
+        return state;
     }
 
     /**
@@ -72,35 +196,219 @@ public class ClientConnector extends WebServiceClientImpl<WebAPI> {
      */
     public synchronized void reconfigure() {
         configure();
+        AdaptiveLimiter.getInstance().reset();
+        KamServiceExecutor.getInstance().reconfigure();
+        KamServiceLoader.getInstance().reconfigure();
         
         // reload client connector in kam service after reconfigure
         KamServiceFactory.getInstance().getKAMService().reloadClientConnector();
+
+        if (isValid()) {
+            circuitBreaker.reset();
+            prefetchMetadata();
+        } else {
+            circuitBreaker.trip();
+        }
+    }
+
+    /**
+     * Starts loading the KAM catalog and namespaces into the
+     * {@link KamMetadataCache metadata cache} in the background, once the
+     * connection is {@link State#READY ready}.
+     */
+    private static void prefetchMetadata() {
+        final KamMetadataCache cache = KamServiceFactory.getInstance()
+                .getMetadataCache();
+        if (cache != null) {
+            cache.prefetch();
+        }
+    }
+
+    /**
+     * Runs {@link #reconfigure()} on a background thread, so the caller, for
+     * example the swing thread, never waits for the WSDL to be retrieved.
+     * Calls in flight keep using the current snapshot until the new one is
+     * published.
+     *
+     * @return the {@link KamServiceFuture future} result, {@code true} if the
+     *         new connection is valid, {@code false} if not
+     */
+    public KamServiceFuture<Boolean> reconfigureInBackground() {
+        final KamServiceFuture<Boolean> future = new KamServiceFuture<Boolean>(
+                new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        reconfigure();
+                        return isValid();
+                    }
+                });
+        final Thread t = new Thread(future,
+                "belframework-connector-reconfigure");
+        t.setDaemon(true);
+        t.start();
+        return future;
+    }
+
+    /**
+     * Checks whether the server is reachable for the
+     * {@link CircuitBreaker circuit breaker}, configuring the connector first
+     * if it is not valid. The stubs may be built from a cached WSDL, so the
+     * WSDL URL is requested to check that the server itself responds.
+     *
+     * @return {@code true} if the server responded, {@code false} if not
+     * @throws IOException
+     *             Thrown if the server could not be reached
+     */
+    private boolean probe() throws IOException {
+        synchronized (this) {
+            if (!isValid()) {
+                configure();
+            }
+        }
+        if (!isValid()) {
+            return false;
+        }
+
+        final int timeout = cfg.getTimeout() * 1000;
+        final URLConnection conn = new URL(cfg.getWSDLURL()).openConnection();
+        conn.setConnectTimeout(timeout);
+        conn.setReadTimeout(timeout);
+        conn.setUseCaches(false);
+        if (conn instanceof HttpURLConnection) {
+            final HttpURLConnection http = (HttpURLConnection) conn;
+            try {
+                return http.getResponseCode() < 500;
+            } finally {
+                http.disconnect();
+            }
+        }
+        conn.getInputStream().close();
+        return true;
     }
 
     /**
-     * Configures webservice settings and validates connection.
+     * Returns the {@link CircuitBreaker circuit breaker} that fails calls
+     * fast while the server is unreachable.
+     *
+     * @return the {@link CircuitBreaker circuit breaker}
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Configures webservice settings and validates connection, then
+     * publishes the result as the new {@link ConnectionSnapshot snapshot}.
+     * Calls in flight keep using the snapshot they started with.
      */
     private void configure() {
-        URL wsdlURL;
+        final int timeout = cfg.getTimeout();
+        URL wsdlURL = null;
+        WebAPIStubPool pool = null;
         try {
             wsdlURL = new URL(cfg.getWSDLURL());
-        } catch (MalformedURLException e) {
-            valid = false;
+
+            // setup stub pool, each stub configures its own timeout
+            applyMaxConnections();
+            WebAPIService service = createService(wsdlURL);
+            pool = new WebAPIStubPool(service, cfg.getConnectionPoolSize(),
+                    timeout, httpHeaders());
+            setClientStub(pool.createUnpooled());
+        } catch (Throwable e) {
+            // malformed URL or the service could not be created
+            pool = null;
+        } finally {
+            final ConnectionSnapshot next = new ConnectionSnapshot(wsdlURL,
+                    pool, timeout, generations.incrementAndGet());
+            snapshot.set(next);
+            state = next.isValid() ? State.READY : State.FAILED;
+            initialized.countDown();
+        }
+    }
+
+    /**
+     * Returns the HTTP headers for the configured compression and keep-alive
+     * settings. The JAX-WS HTTP transport inflates gzip responses and
+     * compresses the request body when the {@code Content-Encoding} request
+     * header is gzip. With keep-alive off each SOAP request asks for its
+     * connection to be closed, leaving other HTTP clients in the JVM alone.
+     *
+     * @return the HTTP request headers, can be empty
+     */
+    private static Map<String, List<String>> httpHeaders() {
+        final Map<String, List<String>> headers =
+                new HashMap<String, List<String>>();
+        if (cfg.isCompressResponses()) {
+            headers.put("Accept-Encoding", Collections.singletonList("gzip"));
+        }
+        if (cfg.isCompressRequests()) {
+            headers.put("Content-Encoding", Collections.singletonList("gzip"));
+        }
+        if (!cfg.isKeepAlive()) {
+            headers.put("Connection", Collections.singletonList("close"));
+        }
+        return headers;
+    }
+
+    /**
+     * Applies the maximum number of persistent connections to the JDK HTTP
+     * client, which the JAX-WS transport uses. The JDK reads this property
+     * once, when its HTTP client is first used, so it is set only on the first
+     * configure and only if nothing else in the JVM has set it; a change
+     * takes effect after a restart.
+     */
+    private static void applyMaxConnections() {
+        if (!maxConnectionsApplied.compareAndSet(false, true)) {
             return;
         }
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", cfg.getMaxConnections()
+                    .toString());
+        }
+    }
 
-        try {
-            // setup stub and configure timeout
-            WebAPI stub = new WebAPIService(wsdlURL, new QName(
-                    "http://belframework.org/ws/schemas", "WebAPIService"))
-                    .getWebAPISoap11();
-            setClientStub(stub);
-            ((BindingProvider) stub).getRequestContext().put(
-                    REQUEST_TIMEOUT_KEY, cfg.getTimeout() * 1000);
-            valid = true;
-        } catch (Throwable e) {
-            valid = false;
+    /**
+     * Creates the {@link WebAPIService service} from the locally cached copy
+     * of the WSDL, falling back to the remote WSDL if the cached copy can't
+     * be used.
+     *
+     * @param wsdlURL
+     *            the remote WSDL {@link URL}
+     * @return the {@link WebAPIService service}
+     */
+    private WebAPIService createService(URL wsdlURL) {
+        URL localURL = WsdlCache.getInstance().resolve(wsdlURL);
+        if (localURL != wsdlURL) {
+            try {
+                return new WebAPIService(localURL, SERVICE_NAME);
+            } catch (Throwable e) {
+                log.warn("Unable to use cached WSDL " + localURL
+                        + ", using the remote copy", e);
+            }
         }
+        return new WebAPIService(wsdlURL, SERVICE_NAME);
+    }
+
+    /**
+     * Returns the current {@link ConnectionSnapshot connection snapshot}. A
+     * call should take the snapshot once and use it throughout.
+     *
+     * @return the current {@link ConnectionSnapshot snapshot}, never
+     *         {@code null}
+     */
+    public ConnectionSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Returns the {@link WebAPIStubPool pool} of webservice stubs of the
+     * current {@link ConnectionSnapshot snapshot}.
+     *
+     * @return the {@link WebAPIStubPool stub pool}, or {@code null} if the
+     *         current configuration is not valid
+     */
+    public WebAPIStubPool getStubPool() {
+        return snapshot.get().getStubPool();
     }
 
     /**
@@ -110,7 +418,7 @@ public class ClientConnector extends WebServiceClientImpl<WebAPI> {
      * @return {@code true} for valid connection, {@code false} for not valid
      */
     public boolean isValid() {
-        return valid;
+        return snapshot.get().isValid();
     }
 
     /**
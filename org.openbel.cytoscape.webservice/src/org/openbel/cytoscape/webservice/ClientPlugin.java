@@ -21,6 +21,8 @@ package org.openbel.cytoscape.webservice;
 
 import java.io.IOException;
 
+import org.openbel.cytoscape.webservice.dialog.ConnectionStatusNotifier;
+
 import cytoscape.data.webservice.WebServiceClientManager;
 import cytoscape.plugin.CytoscapePlugin;
 
@@ -39,7 +41,13 @@ public class ClientPlugin extends CytoscapePlugin {
      */
     public ClientPlugin() {
         onCytoscapeStart();
-        WebServiceClientManager.registerClient(ClientConnector.getInstance());
+
+        // connect in the background, the first kam service call waits for it
+        final ClientConnector connector = ClientConnector.getInstance();
+        WebServiceClientManager.registerClient(connector);
+        connector.getCircuitBreaker().addListener(
+                new ConnectionStatusNotifier());
+        connector.initializeInBackground();
     }
 
     /**
@@ -23,6 +23,11 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import cytoscape.CytoscapeInit;
@@ -41,12 +46,61 @@ public class Configuration {
             "Stores configuration for the BELFramework Web Service cytoscape plugin.";
     private static final String WSDL_KEY = "WSDL_URL";
     private static final String TIMEOUT_KEY = "TIMEOUT";
+    private static final String CONCURRENT_REQUESTS_KEY = "CONCURRENT_REQUESTS";
+    private static final String CONNECTION_POOL_SIZE_KEY = "CONNECTION_POOL_SIZE";
+    private static final String WARM_UP_KEY = "WARM_UP";
+    private static final String OPERATION_TIMEOUT_PREFIX = "TIMEOUT.";
+    private static final String TASK_TIMEOUT_KEY = "TASK_TIMEOUT";
+    private static final String ADAPTIVE_TIMEOUTS_KEY = "ADAPTIVE_TIMEOUTS";
+    private static final String RETRY_ATTEMPTS_KEY = "RETRY_ATTEMPTS";
+    private static final String HEDGING_KEY = "HEDGING";
+    private static final String ADAPTIVE_CONCURRENCY_KEY = "ADAPTIVE_CONCURRENCY";
+    private static final String COMPRESS_RESPONSES_KEY = "COMPRESS_RESPONSES";
+    private static final String COMPRESS_REQUESTS_KEY = "COMPRESS_REQUESTS";
+    private static final String KEEP_ALIVE_KEY = "KEEP_ALIVE";
+    private static final String MAX_CONNECTIONS_KEY = "MAX_CONNECTIONS";
+    private static final String KAM_SERVICE_BACKEND_KEY = "KAM_SERVICE_BACKEND";
+    private static final String KAM_SERVICE_DECORATORS_KEY = "KAM_SERVICE_DECORATORS";
     private static final String DEFAULT_WSDL_URL =
             "http://localhost:8080/openbel-ws/belframework.wsdl";
     private static final int DEFAULT_TIMEOUT = 120;
+    private static final int DEFAULT_CONCURRENT_REQUESTS = 4;
+    private static final int DEFAULT_CONNECTION_POOL_SIZE = 8;
+    private static final boolean DEFAULT_WARM_UP = false;
+    private static final int DEFAULT_TASK_TIMEOUT = 600;
+    private static final boolean DEFAULT_ADAPTIVE_TIMEOUTS = false;
+    private static final int DEFAULT_RETRY_ATTEMPTS = 3;
+    private static final boolean DEFAULT_HEDGING = false;
+    private static final boolean DEFAULT_ADAPTIVE_CONCURRENCY = true;
+    private static final boolean DEFAULT_COMPRESS_RESPONSES = true;
+    private static final boolean DEFAULT_COMPRESS_REQUESTS = false;
+    private static final boolean DEFAULT_KEEP_ALIVE = true;
+    private static final int DEFAULT_MAX_CONNECTIONS = 8;
+    private static final String DEFAULT_KAM_SERVICE_BACKEND = "default";
+    /**
+     * Detail lookups are shown interactively, so they give up sooner than
+     * the global timeout.
+     */
+    private static final int DEFAULT_DETAIL_TIMEOUT = 30;
     private static Configuration instance;
     private String wsdlURL;
     private Integer timeout;
+    private Integer concurrentRequests = DEFAULT_CONCURRENT_REQUESTS;
+    private Integer connectionPoolSize = DEFAULT_CONNECTION_POOL_SIZE;
+    private Boolean warmUp = DEFAULT_WARM_UP;
+    private Integer taskTimeout = DEFAULT_TASK_TIMEOUT;
+    private Boolean adaptiveTimeouts = DEFAULT_ADAPTIVE_TIMEOUTS;
+    private Integer retryAttempts = DEFAULT_RETRY_ATTEMPTS;
+    private Boolean hedging = DEFAULT_HEDGING;
+    private Boolean adaptiveConcurrency = DEFAULT_ADAPTIVE_CONCURRENCY;
+    private Boolean compressResponses = DEFAULT_COMPRESS_RESPONSES;
+    private Boolean compressRequests = DEFAULT_COMPRESS_REQUESTS;
+    private Boolean keepAlive = DEFAULT_KEEP_ALIVE;
+    private Integer maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private String kamServiceBackend = DEFAULT_KAM_SERVICE_BACKEND;
+    private List<String> kamServiceDecorators = null;
+    private final Map<KamOperation, Integer> operationTimeouts =
+            defaultOperationTimeouts();
 
     /**
      * Gets the singleton {@link Configuration} instance.  If the singleton
@@ -70,6 +124,24 @@ public class Configuration {
         if (instance != null) {
             instance.wsdlURL = DEFAULT_WSDL_URL;
             instance.timeout = DEFAULT_TIMEOUT;
+            instance.concurrentRequests = DEFAULT_CONCURRENT_REQUESTS;
+            instance.connectionPoolSize = DEFAULT_CONNECTION_POOL_SIZE;
+            instance.warmUp = DEFAULT_WARM_UP;
+            instance.taskTimeout = DEFAULT_TASK_TIMEOUT;
+            instance.adaptiveTimeouts = DEFAULT_ADAPTIVE_TIMEOUTS;
+            instance.retryAttempts = DEFAULT_RETRY_ATTEMPTS;
+            instance.hedging = DEFAULT_HEDGING;
+            instance.adaptiveConcurrency = DEFAULT_ADAPTIVE_CONCURRENCY;
+            instance.compressResponses = DEFAULT_COMPRESS_RESPONSES;
+            instance.compressRequests = DEFAULT_COMPRESS_REQUESTS;
+            instance.keepAlive = DEFAULT_KEEP_ALIVE;
+            instance.maxConnections = DEFAULT_MAX_CONNECTIONS;
+            instance.kamServiceBackend = DEFAULT_KAM_SERVICE_BACKEND;
+            instance.kamServiceDecorators = null;
+            synchronized (instance.operationTimeouts) {
+                instance.operationTimeouts.clear();
+                instance.operationTimeouts.putAll(defaultOperationTimeouts());
+            }
         }
     }
 
@@ -108,6 +180,306 @@ public class Configuration {
         }
     }
 
+    /**
+     * Returns the maximum number of webservice requests a single operation,
+     * such as expanding many nodes, may have in flight at once.
+     *
+     * @return the maximum number of concurrent requests
+     */
+    public Integer getConcurrentRequests() {
+        return concurrentRequests;
+    }
+
+    public void setConcurrentRequests(final Integer concurrentRequests) {
+        if (concurrentRequests != null && concurrentRequests > 0) {
+            this.concurrentRequests = concurrentRequests;
+        } else {
+            this.concurrentRequests = DEFAULT_CONCURRENT_REQUESTS;
+        }
+    }
+
+    /**
+     * Returns the maximum number of webservice connection stubs that are
+     * kept for concurrent requests.
+     *
+     * @return the connection pool size
+     */
+    public Integer getConnectionPoolSize() {
+        return connectionPoolSize;
+    }
+
+    public void setConnectionPoolSize(final Integer connectionPoolSize) {
+        if (connectionPoolSize != null && connectionPoolSize > 0) {
+            this.connectionPoolSize = connectionPoolSize;
+        } else {
+            this.connectionPoolSize = DEFAULT_CONNECTION_POOL_SIZE;
+        }
+    }
+
+    /**
+     * Returns the timeout of a single {@link KamOperation operation}, which
+     * is the global {@link #getTimeout() timeout} unless the operation has
+     * its own {@code TIMEOUT.<OPERATION>} setting.
+     *
+     * @param operation
+     *            the {@link KamOperation operation}
+     * @return the timeout in seconds
+     */
+    public Integer getTimeout(final KamOperation operation) {
+        synchronized (operationTimeouts) {
+            final Integer timeout = operationTimeouts.get(operation);
+            return timeout != null ? timeout : this.timeout;
+        }
+    }
+
+    /**
+     * Sets the timeout of a single {@link KamOperation operation}.
+     *
+     * @param operation
+     *            the {@link KamOperation operation}
+     * @param timeout
+     *            the timeout in seconds, {@code null} or non-positive to use
+     *            the global {@link #getTimeout() timeout}
+     */
+    public void setTimeout(final KamOperation operation, final Integer timeout) {
+        synchronized (operationTimeouts) {
+            if (timeout != null && timeout > 0) {
+                operationTimeouts.put(operation, timeout);
+            } else {
+                operationTimeouts.remove(operation);
+            }
+        }
+    }
+
+    /**
+     * Returns the time a task, such as a search or an expansion, may spend
+     * on all of its {@link KamService kam service} calls together.
+     *
+     * @return the task timeout in seconds
+     */
+    public Integer getTaskTimeout() {
+        return taskTimeout;
+    }
+
+    public void setTaskTimeout(final Integer taskTimeout) {
+        if (taskTimeout != null && taskTimeout > 0) {
+            this.taskTimeout = taskTimeout;
+        } else {
+            this.taskTimeout = DEFAULT_TASK_TIMEOUT;
+        }
+    }
+
+    /**
+     * Returns {@code true} if operation timeouts should be derived from the
+     * observed latency of each operation, bounded by the configured
+     * timeouts, {@code false} to always use the configured timeouts.
+     *
+     * @return {@code true} for adaptive timeouts, {@code false} if not
+     */
+    public Boolean isAdaptiveTimeouts() {
+        return adaptiveTimeouts;
+    }
+
+    public void setAdaptiveTimeouts(final Boolean adaptiveTimeouts) {
+        if (adaptiveTimeouts != null) {
+            this.adaptiveTimeouts = adaptiveTimeouts;
+        } else {
+            this.adaptiveTimeouts = DEFAULT_ADAPTIVE_TIMEOUTS;
+        }
+    }
+
+    /**
+     * Returns the number of times an {@link KamOperation#isIdempotent()
+     * idempotent} operation is attempted before a transient fault fails it.
+     *
+     * @return the number of attempts, 1 disables retries
+     */
+    public Integer getRetryAttempts() {
+        return retryAttempts;
+    }
+
+    public void setRetryAttempts(final Integer retryAttempts) {
+        if (retryAttempts != null && retryAttempts > 0) {
+            this.retryAttempts = retryAttempts;
+        } else {
+            this.retryAttempts = DEFAULT_RETRY_ATTEMPTS;
+        }
+    }
+
+    /**
+     * Returns {@code true} if a second copy of a slow
+     * {@link KamOperation#isIdempotent() idempotent} request should be sent
+     * once it takes longer than the operation's p95 latency, {@code false} if
+     * not.
+     *
+     * @return {@code true} to hedge requests, {@code false} if not
+     */
+    public Boolean isHedging() {
+        return hedging;
+    }
+
+    public void setHedging(final Boolean hedging) {
+        if (hedging != null) {
+            this.hedging = hedging;
+        } else {
+            this.hedging = DEFAULT_HEDGING;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the number of requests in flight should adapt
+     * to the latency and errors of the server, between one and the larger of
+     * {@link #getConcurrentRequests()} and {@link #getConnectionPoolSize()},
+     * {@code false} to always allow {@link #getConcurrentRequests()}.
+     *
+     * @return {@code true} to adapt concurrency, {@code false} if not
+     * @see AdaptiveLimiter
+     */
+    public Boolean isAdaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    public void setAdaptiveConcurrency(final Boolean adaptiveConcurrency) {
+        if (adaptiveConcurrency != null) {
+            this.adaptiveConcurrency = adaptiveConcurrency;
+        } else {
+            this.adaptiveConcurrency = DEFAULT_ADAPTIVE_CONCURRENCY;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the server should be asked for gzip compressed
+     * responses, {@code false} if not.
+     *
+     * @return {@code true} to accept compressed responses, {@code false} if
+     *         not
+     */
+    public Boolean isCompressResponses() {
+        return compressResponses;
+    }
+
+    public void setCompressResponses(final Boolean compressResponses) {
+        if (compressResponses != null) {
+            this.compressResponses = compressResponses;
+        } else {
+            this.compressResponses = DEFAULT_COMPRESS_RESPONSES;
+        }
+    }
+
+    /**
+     * Returns {@code true} if request bodies should be gzip compressed,
+     * {@code false} if not. The server must accept compressed requests.
+     *
+     * @return {@code true} to compress requests, {@code false} if not
+     */
+    public Boolean isCompressRequests() {
+        return compressRequests;
+    }
+
+    public void setCompressRequests(final Boolean compressRequests) {
+        if (compressRequests != null) {
+            this.compressRequests = compressRequests;
+        } else {
+            this.compressRequests = DEFAULT_COMPRESS_REQUESTS;
+        }
+    }
+
+    /**
+     * Returns {@code true} if HTTP connections should be kept alive and
+     * reused between requests, {@code false} to close each connection. This
+     * applies to the web service connection only and takes effect when the
+     * connection is next configured.
+     *
+     * @return {@code true} for keep-alive, {@code false} if not
+     */
+    public Boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(final Boolean keepAlive) {
+        if (keepAlive != null) {
+            this.keepAlive = keepAlive;
+        } else {
+            this.keepAlive = DEFAULT_KEEP_ALIVE;
+        }
+    }
+
+    /**
+     * Returns the maximum number of idle persistent connections kept per
+     * server. The JDK HTTP client reads this once for the whole JVM, so a
+     * change takes effect after a restart.
+     *
+     * @return the maximum number of persistent connections
+     */
+    public Integer getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(final Integer maxConnections) {
+        if (maxConnections != null && maxConnections > 0) {
+            this.maxConnections = maxConnections;
+        } else {
+            this.maxConnections = DEFAULT_MAX_CONNECTIONS;
+        }
+    }
+
+    /**
+     * Returns the name of the {@link KamServiceProvider backend} that
+     * implements the {@link KamService kam service}.
+     *
+     * @return the backend name
+     */
+    public String getKamServiceBackend() {
+        return kamServiceBackend;
+    }
+
+    public void setKamServiceBackend(final String kamServiceBackend) {
+        if (kamServiceBackend != null && kamServiceBackend.trim().length() > 0) {
+            this.kamServiceBackend = kamServiceBackend.trim();
+        } else {
+            this.kamServiceBackend = DEFAULT_KAM_SERVICE_BACKEND;
+        }
+    }
+
+    /**
+     * Returns the names of the {@link KamServiceProvider decorators} to wrap
+     * the backend with, innermost first.
+     *
+     * @return the decorator names, or {@code null} to use every discovered
+     *         decorator in its default order
+     */
+    public List<String> getKamServiceDecorators() {
+        return kamServiceDecorators;
+    }
+
+    public void setKamServiceDecorators(final List<String> kamServiceDecorators) {
+        if (kamServiceDecorators != null) {
+            this.kamServiceDecorators = Collections
+                    .unmodifiableList(new ArrayList<String>(
+                            kamServiceDecorators));
+        } else {
+            this.kamServiceDecorators = null;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the connection should be warmed up in the
+     * background once it is configured at startup, {@code false} if not.
+     *
+     * @return {@code true} to warm up the connection, {@code false} if not
+     */
+    public Boolean isWarmUp() {
+        return warmUp;
+    }
+
+    public void setWarmUp(final Boolean warmUp) {
+        if (warmUp != null) {
+            this.warmUp = warmUp;
+        } else {
+            this.warmUp = DEFAULT_WARM_UP;
+        }
+    }
+
     /**
      * Saves the configuration state of the webservice client plugin to the
      * plugin properties file {@code belframework-webservice.props}.
@@ -127,6 +499,36 @@ public class Configuration {
         final Properties cfgprops = new Properties();
         cfgprops.put(WSDL_KEY, wsdlURL);
         cfgprops.put(TIMEOUT_KEY, timeout.toString());
+        cfgprops.put(CONCURRENT_REQUESTS_KEY, concurrentRequests.toString());
+        cfgprops.put(CONNECTION_POOL_SIZE_KEY, connectionPoolSize.toString());
+        cfgprops.put(WARM_UP_KEY, warmUp.toString());
+        cfgprops.put(TASK_TIMEOUT_KEY, taskTimeout.toString());
+        cfgprops.put(ADAPTIVE_TIMEOUTS_KEY, adaptiveTimeouts.toString());
+        cfgprops.put(RETRY_ATTEMPTS_KEY, retryAttempts.toString());
+        cfgprops.put(HEDGING_KEY, hedging.toString());
+        cfgprops.put(ADAPTIVE_CONCURRENCY_KEY, adaptiveConcurrency.toString());
+        cfgprops.put(COMPRESS_RESPONSES_KEY, compressResponses.toString());
+        cfgprops.put(COMPRESS_REQUESTS_KEY, compressRequests.toString());
+        cfgprops.put(KEEP_ALIVE_KEY, keepAlive.toString());
+        cfgprops.put(MAX_CONNECTIONS_KEY, maxConnections.toString());
+        cfgprops.put(KAM_SERVICE_BACKEND_KEY, kamServiceBackend);
+        if (kamServiceDecorators != null) {
+            final StringBuilder names = new StringBuilder();
+            for (final String name : kamServiceDecorators) {
+                if (names.length() > 0) {
+                    names.append(',');
+                }
+                names.append(name);
+            }
+            cfgprops.put(KAM_SERVICE_DECORATORS_KEY, names.toString());
+        }
+        synchronized (operationTimeouts) {
+            for (final Map.Entry<KamOperation, Integer> e : operationTimeouts
+                    .entrySet()) {
+                cfgprops.put(OPERATION_TIMEOUT_PREFIX + e.getKey().name(),
+                        e.getValue().toString());
+            }
+        }
         cfgprops.store(new FileWriter(cfg), COMMENTS);
     }
 
@@ -157,21 +559,106 @@ public class Configuration {
                 wsdlURL = DEFAULT_WSDL_URL;
             }
 
-            String timeoutProperty = cfgprops.getProperty(TIMEOUT_KEY);
-            if (timeoutProperty != null) {
-                String remainder = timeoutProperty.replaceFirst("\\d+", "");
-
-                if (remainder.isEmpty()) {
-                    // the timeout property can be parsed as an integer
-                    timeout = Integer.parseInt(timeoutProperty);
-                } else {
-                    timeout = DEFAULT_TIMEOUT;
-                }
-            } else {
-                timeout = DEFAULT_TIMEOUT;
+            timeout = parseInteger(cfgprops, TIMEOUT_KEY, DEFAULT_TIMEOUT);
+            setConcurrentRequests(parseInteger(cfgprops,
+                    CONCURRENT_REQUESTS_KEY, DEFAULT_CONCURRENT_REQUESTS));
+            setConnectionPoolSize(parseInteger(cfgprops,
+                    CONNECTION_POOL_SIZE_KEY, DEFAULT_CONNECTION_POOL_SIZE));
+            setWarmUp(parseBoolean(cfgprops, WARM_UP_KEY, DEFAULT_WARM_UP));
+            setTaskTimeout(parseInteger(cfgprops, TASK_TIMEOUT_KEY,
+                    DEFAULT_TASK_TIMEOUT));
+            setAdaptiveTimeouts(parseBoolean(cfgprops, ADAPTIVE_TIMEOUTS_KEY,
+                    DEFAULT_ADAPTIVE_TIMEOUTS));
+            setRetryAttempts(parseInteger(cfgprops, RETRY_ATTEMPTS_KEY,
+                    DEFAULT_RETRY_ATTEMPTS));
+            setHedging(parseBoolean(cfgprops, HEDGING_KEY, DEFAULT_HEDGING));
+            setAdaptiveConcurrency(parseBoolean(cfgprops,
+                    ADAPTIVE_CONCURRENCY_KEY, DEFAULT_ADAPTIVE_CONCURRENCY));
+            setCompressResponses(parseBoolean(cfgprops,
+                    COMPRESS_RESPONSES_KEY, DEFAULT_COMPRESS_RESPONSES));
+            setCompressRequests(parseBoolean(cfgprops, COMPRESS_REQUESTS_KEY,
+                    DEFAULT_COMPRESS_REQUESTS));
+            setKeepAlive(parseBoolean(cfgprops, KEEP_ALIVE_KEY,
+                    DEFAULT_KEEP_ALIVE));
+            setMaxConnections(parseInteger(cfgprops, MAX_CONNECTIONS_KEY,
+                    DEFAULT_MAX_CONNECTIONS));
+            setKamServiceBackend(cfgprops.getProperty(KAM_SERVICE_BACKEND_KEY));
+            setKamServiceDecorators(parseList(cfgprops,
+                    KAM_SERVICE_DECORATORS_KEY));
+            final Map<KamOperation, Integer> defaults = defaultOperationTimeouts();
+            for (final KamOperation operation : KamOperation.values()) {
+                final Integer fallback = defaults.get(operation);
+                // 0 means no per-operation timeout
+                setTimeout(operation, parseInteger(cfgprops,
+                        OPERATION_TIMEOUT_PREFIX + operation.name(),
+                        fallback != null ? fallback : 0));
             }
         } else {
             Configuration.resetToDefaults();
         }
     }
+
+    private static Map<KamOperation, Integer> defaultOperationTimeouts() {
+        final Map<KamOperation, Integer> timeouts =
+                new EnumMap<KamOperation, Integer>(KamOperation.class);
+        timeouts.put(KamOperation.GET_SUPPORTING_TERMS, DEFAULT_DETAIL_TIMEOUT);
+        timeouts.put(KamOperation.GET_SUPPORTING_EVIDENCE,
+                DEFAULT_DETAIL_TIMEOUT);
+        return timeouts;
+    }
+
+    /**
+     * Reads an integer property, falling back to a default value if the
+     * property is missing or can not be parsed as an integer.
+     */
+    private static Integer parseInteger(final Properties cfgprops,
+            final String key, final int defaultValue) {
+        String property = cfgprops.getProperty(key);
+        if (property != null) {
+            String remainder = property.replaceFirst("\\d+", "");
+
+            if (remainder.isEmpty()) {
+                // the property can be parsed as an integer
+                return Integer.parseInt(property);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Reads a comma separated property, returning {@code null} if the
+     * property is missing.
+     */
+    private static List<String> parseList(final Properties cfgprops,
+            final String key) {
+        final String property = cfgprops.getProperty(key);
+        if (property == null) {
+            return null;
+        }
+
+        final List<String> values = new ArrayList<String>();
+        for (final String value : property.split(",")) {
+            if (value.trim().length() > 0) {
+                values.add(value.trim());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Reads a boolean property, falling back to a default value if the
+     * property is missing or is neither {@code true} nor {@code false}.
+     */
+    private static Boolean parseBoolean(final Properties cfgprops,
+            final String key, final boolean defaultValue) {
+        String property = cfgprops.getProperty(key);
+        if (property != null) {
+            property = property.trim();
+            if ("true".equalsIgnoreCase(property)
+                    || "false".equalsIgnoreCase(property)) {
+                return Boolean.valueOf(property);
+            }
+        }
+        return defaultValue;
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.net.URL;
+
+/**
+ * {@link ConnectionSnapshot} is an immutable view of one configuration of the
+ * {@link ClientConnector connector}: the WSDL {@link URL}, the
+ * {@link WebAPIStubPool stub pool} built from it, the request timeout and a
+ * generation number that increases with every configure.
+ *
+ * <p>
+ * The connector publishes a new snapshot atomically on each configure. A call
+ * takes the current snapshot once and uses it throughout, so a reconfigure
+ * never changes the connection under a call in flight, it only affects calls
+ * that start afterwards.
+ * </p>
+ */
+public final class ConnectionSnapshot {
+    private final URL wsdlURL;
+    private final WebAPIStubPool stubPool;
+    private final int timeout;
+    private final long generation;
+
+    /**
+     * Creates a snapshot.
+     *
+     * @param wsdlURL
+     *            the WSDL {@link URL}, {@code null} if the configured URL is
+     *            malformed
+     * @param stubPool
+     *            the {@link WebAPIStubPool stub pool}, {@code null} if the
+     *            connection could not be configured
+     * @param timeout
+     *            the request timeout in seconds
+     * @param generation
+     *            the generation number
+     */
+    ConnectionSnapshot(final URL wsdlURL, final WebAPIStubPool stubPool,
+            final int timeout, final long generation) {
+        this.wsdlURL = wsdlURL;
+        this.stubPool = stubPool;
+        this.timeout = timeout;
+        this.generation = generation;
+    }
+
+    public URL getWSDLURL() {
+        return wsdlURL;
+    }
+
+    public WebAPIStubPool getStubPool() {
+        return stubPool;
+    }
+
+    /**
+     * Returns the request timeout of the stubs.
+     *
+     * @return the timeout in seconds
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Returns the generation number, which increases with every configure of
+     * the {@link ClientConnector connector}.
+     *
+     * @return the generation number
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns {@code true} if this connection was configured successfully,
+     * {@code false} if not.
+     *
+     * @return {@code true} for a valid connection, {@code false} if not
+     */
+    public boolean isValid() {
+        return stubPool != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "ConnectionSnapshot[generation=" + generation + ", url="
+                + wsdlURL + ", valid=" + isValid() + "]";
+    }
+}
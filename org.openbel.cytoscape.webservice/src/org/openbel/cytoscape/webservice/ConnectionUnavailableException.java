@@ -0,0 +1,58 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+/**
+ * {@link ConnectionUnavailableException} is thrown by the
+ * {@link KamService kam service} when a call fails fast because the
+ * BELFramework Web Services can not be reached, either because the
+ * {@link ClientConnector connector} is not configured or because its
+ * {@link CircuitBreaker circuit breaker} is open.
+ *
+ * <p>
+ * Callers can catch this exception to report the outage in their own way.
+ * </p>
+ */
+public class ConnectionUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 4178249632105532931L;
+
+    /**
+     * Creates the exception with a message.
+     *
+     * @param message
+     *            the detail message
+     */
+    public ConnectionUnavailableException(final String message) {
+        super(message);
+    }
+
+    /**
+     * Creates the exception with a message and cause.
+     *
+     * @param message
+     *            the detail message
+     * @param cause
+     *            the cause
+     */
+    public ConnectionUnavailableException(final String message,
+            final Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+import org.openbel.framework.ws.model.ObjectFactory;
+import org.openbel.framework.ws.model.WebAPI;
+
+import cytoscape.logger.CyLogger;
+
+/**
+ * {@link ConnectionWarmUp} pays the one-time costs of the first
+ * {@link KamService kam service} call ahead of time, so the first call made
+ * by the user is as fast as later ones.
+ *
+ * <p>
+ * The warm-up creates a {@link JAXBContext} for the web service model, which
+ * loads and introspects the model classes, creates the pooled
+ * {@link WebAPI stubs} that concurrent requests will use, and makes a
+ * {@link KamService#getCatalog() getCatalog} call to open the HTTP
+ * connection and fill the catalog cache. Each phase is timed and logged.
+ * </p>
+ *
+ * <p>
+ * The warm-up is opt-in, see {@link Configuration#isWarmUp()}, and should run
+ * on a low priority thread after the {@link ClientConnector connector} is
+ * configured.
+ * </p>
+ */
+final class ConnectionWarmUp implements Runnable {
+    private static final CyLogger log = CyLogger
+            .getLogger(ConnectionWarmUp.class);
+
+    private final ClientConnector connector;
+
+    ConnectionWarmUp(ClientConnector connector) {
+        this.connector = connector;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+        final long start = System.currentTimeMillis();
+        try {
+            long phase = System.currentTimeMillis();
+            JAXBContext.newInstance(ObjectFactory.class);
+            phase = logPhase("JAXB context", phase);
+
+            final int stubs = createStubs();
+            phase = logPhase(stubs + " connection stubs", phase);
+
+            KamServiceFactory.getInstance().getKAMService().getCatalog();
+            logPhase("getCatalog", phase);
+
+            log.info("Connection warm-up finished in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        } catch (JAXBException e) {
+            log.warn("Connection warm-up failed creating the JAXB context", e);
+        } catch (RuntimeException e) {
+            log.warn("Connection warm-up failed after "
+                    + (System.currentTimeMillis() - start) + " ms", e);
+        }
+    }
+
+    /**
+     * Creates pooled stubs up to the number of concurrent requests, stopping
+     * early if the pool is busy with real requests.
+     *
+     * @return the number of stubs checked out and returned
+     */
+    private int createStubs() {
+        final WebAPIStubPool pool = connector.getStubPool();
+        if (pool == null) {
+            return 0;
+        }
+
+        final int count = Math.min(pool.getSize(), Configuration
+                .getInstance().getConcurrentRequests());
+        final List<WebAPI> stubs = new ArrayList<WebAPI>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                stubs.add(pool.checkout(0));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // all stubs in use, the pool is warm enough
+        } finally {
+            for (final WebAPI stub : stubs) {
+                pool.checkin(stub);
+            }
+        }
+        return stubs.size();
+    }
+
+    private static long logPhase(final String name, final long phaseStart) {
+        final long now = System.currentTimeMillis();
+        log.info("Connection warm-up: " + name + " took "
+                + (now - phaseStart) + " ms");
+        return now;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+/**
+ * {@link DeadlineExceededException} is thrown by the
+ * {@link KamService kam service} when the {@link CallContext deadline} of the
+ * current task has passed before a call could be made.
+ */
+public class DeadlineExceededException extends RuntimeException {
+    private static final long serialVersionUID = -2310795284162958412L;
+
+    /**
+     * Creates the exception with a message.
+     *
+     * @param message
+     *            the detail message
+     */
+    public DeadlineExceededException(final String message) {
+        super(message);
+    }
+}
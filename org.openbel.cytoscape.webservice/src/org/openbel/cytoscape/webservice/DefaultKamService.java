@@ -19,10 +19,25 @@
  */
 package org.openbel.cytoscape.webservice;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
-
-import javax.swing.JOptionPane;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.ws.WebServiceException;
+import javax.xml.ws.soap.SOAPFaultException;
 
 import org.openbel.framework.ws.model.BelStatement;
 import org.openbel.framework.ws.model.BelTerm;
@@ -65,15 +80,27 @@ import org.openbel.framework.ws.model.ObjectFactory;
 import org.openbel.framework.ws.model.SimplePath;
 import org.openbel.framework.ws.model.WebAPI;
 
-import cytoscape.Cytoscape;
 import cytoscape.data.webservice.WebServiceClientManager;
 import cytoscape.logger.CyLogger;
 
 /**
  * {@link DefaultKamService} implements an API wrapper around the {@link WebAPI
  * BEL Framework Web API}. This lightweight class reuses the same webservice
- * stub instance obtained from the {@link WebServiceClientManager cytoscape
- * webservice manager}.
+ * stub pool obtained from the {@link WebServiceClientManager cytoscape
+ * webservice manager} connector, so concurrent calls each use their own
+ * stub.
+ *
+ * <p>
+ * Every remote call goes through {@link #invoke(RemoteCall)}. Concurrent
+ * identical calls, the same {@link KamOperation operation} with the same
+ * arguments in the same lane, share one in-flight request and its result.
+ * Idempotent operations are retried after transient faults and, if
+ * enabled, hedged.
+ * Each request is admitted by a {@link LaneScheduler} in the
+ * {@link RequestLane lane} of its {@link CallContext}, so interactive calls
+ * are not queued behind bulk work, within the concurrency limit set by
+ * the {@link AdaptiveLimiter}.
+ * </p>
  * 
  * @author Anthony Bargnesi &lt;abargnesi@selventa.com&gt;
  */
@@ -83,14 +110,36 @@ class DefaultKamService implements KamService {
             .getLogger(DefaultKamService.class);
     private static final ObjectFactory OBJECT_FACTORY = ObjectFactorySingleton
             .getInstance();
-
-    protected WebAPI webAPI;
-    private ClientConnector clientConnector;
+    /**
+     * The maximum number of threads running hedged calls, each hedged call
+     * uses two while both copies are in flight.
+     */
+    private static final int HEDGE_THREADS = 16;
+
+    private volatile ClientConnector clientConnector;
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+    private final LatencyTracker latencies = new LatencyTracker();
+    private final RetryPolicy retryPolicy = new RetryPolicy();
+    private final LaneScheduler scheduler = LaneScheduler.getInstance();
+    private final AdaptiveLimiter limiter = AdaptiveLimiter.getInstance();
+    private final ThreadPoolExecutor hedgePool = new ThreadPoolExecutor(0,
+            HEDGE_THREADS, 60, TimeUnit.SECONDS,
+            new SynchronousQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(final Runnable r) {
+                    final Thread t = new Thread(r, "kam-hedge-"
+                            + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
 
     /**
      * Retrieves the webservice client from the
-     * {@link WebServiceClientManager cytoscape webservice manager} and holds
-     * the client stub.
+     * {@link WebServiceClientManager cytoscape webservice manager}. The
+     * connection itself may still be initializing, calls wait for it.
      */
     DefaultKamService() {
         reloadClientConnector();
@@ -100,14 +149,15 @@ class DefaultKamService implements KamService {
      * {@inheritDoc}
      */
     public void reloadClientConnector() {
-        clientConnector = (ClientConnector) WebServiceClientManager
+        final ClientConnector connector = (ClientConnector) WebServiceClientManager
                 .getClient("belframework");
-        if (clientConnector == null) {
+        if (connector == null) {
             log.warn("Unable to resolve client connector");
             return;
         }
 
-        webAPI = clientConnector.getClientStub();
+        // calls in flight hold their own connector and snapshot
+        clientConnector = connector;
     }
 
     /**
@@ -122,17 +172,21 @@ class DefaultKamService implements KamService {
         }
         // namespaces can be null or empty
 
-        checkValid();
-
-        final FindNamespaceValuesRequest req = OBJECT_FACTORY
-                .createFindNamespaceValuesRequest();
-        req.getPatterns().addAll(patterns);
-        if (namespaces != null) {
-            req.getNamespaces().addAll(namespaces);
-        }
-
-        final FindNamespaceValuesResponse res = webAPI.findNamespaceValues(req);
-        return res.getNamespaceValues();
+        return invoke(new RemoteCall<List<NamespaceValue>>(
+                KamOperation.FIND_NAMESPACE_VALUES, patterns, namespaces) {
+            @Override
+            List<NamespaceValue> call(final WebAPI webAPI) {
+                final FindNamespaceValuesRequest req = OBJECT_FACTORY
+                        .createFindNamespaceValuesRequest();
+                req.getPatterns().addAll(patterns);
+                if (namespaces != null) {
+                    req.getNamespaces().addAll(namespaces);
+                }
+
+                final FindNamespaceValuesResponse res = webAPI.findNamespaceValues(req);
+                return res.getNamespaceValues();
+            }
+        });
     }
 
     /**
@@ -152,23 +206,28 @@ class DefaultKamService implements KamService {
         }
         // dialectHandle and nodeFilter can be null
 
-        checkValid();
-
-        final FindKamNodesByNamespaceValuesRequest req = OBJECT_FACTORY
-                .createFindKamNodesByNamespaceValuesRequest();
-        req.setHandle(kamHandle);
-        req.getNamespaceValues().addAll(namespaceValues);
-
-        if (dialectHandle != null) {
-            req.setDialect(dialectHandle);
-        }
-        if (nodeFilter != null) {
-            req.setFilter(nodeFilter);
-        }
-
-        final FindKamNodesByNamespaceValuesResponse res = webAPI
-                .findKamNodesByNamespaceValues(req);
-        return res.getKamNodes();
+        return invoke(new RemoteCall<List<KamNode>>(
+                KamOperation.FIND_KAM_NODES_BY_NAMESPACE_VALUES,
+                kamHandle, dialectHandle, namespaceValues, nodeFilter) {
+            @Override
+            List<KamNode> call(final WebAPI webAPI) {
+                final FindKamNodesByNamespaceValuesRequest req = OBJECT_FACTORY
+                        .createFindKamNodesByNamespaceValuesRequest();
+                req.setHandle(kamHandle);
+                req.getNamespaceValues().addAll(namespaceValues);
+
+                if (dialectHandle != null) {
+                    req.setDialect(dialectHandle);
+                }
+                if (nodeFilter != null) {
+                    req.setFilter(nodeFilter);
+                }
+
+                final FindKamNodesByNamespaceValuesResponse res = webAPI
+                        .findKamNodesByNamespaceValues(req);
+                return res.getKamNodes();
+            }
+        });
     }
 
     /**
@@ -176,12 +235,16 @@ class DefaultKamService implements KamService {
      */
     @Override
     public List<NamespaceDescriptor> getAllNamespaces() {
-        checkValid();
-        
-        final GetAllNamespacesRequest req = OBJECT_FACTORY
-                .createGetAllNamespacesRequest();
-        final GetAllNamespacesResponse res = webAPI.getAllNamespaces(req);
-        return res.getNamespaceDescriptors();
+        return invoke(new RemoteCall<List<NamespaceDescriptor>>(
+                KamOperation.GET_ALL_NAMESPACES) {
+            @Override
+            List<NamespaceDescriptor> call(final WebAPI webAPI) {
+                final GetAllNamespacesRequest req = OBJECT_FACTORY
+                        .createGetAllNamespacesRequest();
+                final GetAllNamespacesResponse res = webAPI.getAllNamespaces(req);
+                return res.getNamespaceDescriptors();
+            }
+        });
     }
 
     /**
@@ -189,28 +252,35 @@ class DefaultKamService implements KamService {
      */
     @Override
 	public List<Kam> getCatalog() {
-        checkValid();
+        return invoke(new RemoteCall<List<Kam>>(KamOperation.GET_CATALOG) {
+            @Override
+            List<Kam> call(final WebAPI webAPI) {
+                final GetCatalogRequest req = OBJECT_FACTORY.createGetCatalogRequest();
 
-        final GetCatalogRequest req = OBJECT_FACTORY.createGetCatalogRequest();
-
-        final GetCatalogResponse res = webAPI.getCatalog(req);
-        return res.getKams();
+                final GetCatalogResponse res = webAPI.getCatalog(req);
+                return res.getKams();
+            }
+        });
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public LoadKamResponse loadKam(Kam kam) {
+    public LoadKamResponse loadKam(final Kam kam) {
         if (kam == null || kam.getName() == null) {
             throw new IllegalArgumentException("kam parameter is invalid");
         }
 
-        checkValid();
-
-        final LoadKamRequest req = OBJECT_FACTORY.createLoadKamRequest();
-        req.setKam(kam);
-        return webAPI.loadKam(req);
+        return invoke(new RemoteCall<LoadKamResponse>(
+                KamOperation.LOAD_KAM, kam) {
+            @Override
+            LoadKamResponse call(final WebAPI webAPI) {
+                final LoadKamRequest req = OBJECT_FACTORY.createLoadKamRequest();
+                req.setKam(kam);
+                return webAPI.loadKam(req);
+            }
+        });
     }
 
     /**
@@ -222,13 +292,17 @@ class DefaultKamService implements KamService {
             throw new IllegalArgumentException("kam handle is null");
         }
 
-        checkValid();
-
-        final GetDefaultDialectRequest req = OBJECT_FACTORY
-                .createGetDefaultDialectRequest();
-        req.setKam(kamHandle);
-        final GetDefaultDialectResponse res = webAPI.getDefaultDialect(req);
-        return res.getDialect();
+        return invoke(new RemoteCall<DialectHandle>(
+                KamOperation.GET_DEFAULT_DIALECT, kamHandle) {
+            @Override
+            DialectHandle call(final WebAPI webAPI) {
+                final GetDefaultDialectRequest req = OBJECT_FACTORY
+                        .createGetDefaultDialectRequest();
+                req.setKam(kamHandle);
+                final GetDefaultDialectResponse res = webAPI.getDefaultDialect(req);
+                return res.getDialect();
+            }
+        });
     }
 
     /**
@@ -240,14 +314,18 @@ class DefaultKamService implements KamService {
             throw new IllegalArgumentException("node parameter is null");
         }
 
-        checkValid();
+        return invoke(new RemoteCall<List<BelTerm>>(
+                KamOperation.GET_SUPPORTING_TERMS, node) {
+            @Override
+            List<BelTerm> call(final WebAPI webAPI) {
+                final GetSupportingTermsRequest req =
+                        OBJECT_FACTORY.createGetSupportingTermsRequest();
+                req.setKamNode(node);
 
-        final GetSupportingTermsRequest req =
-                OBJECT_FACTORY.createGetSupportingTermsRequest();
-        req.setKamNode(node);
-
-        final GetSupportingTermsResponse res = webAPI.getSupportingTerms(req);
-        return res.getTerms();
+                final GetSupportingTermsResponse res = webAPI.getSupportingTerms(req);
+                return res.getTerms();
+            }
+        });
     }
 
     /**
@@ -259,34 +337,38 @@ class DefaultKamService implements KamService {
             throw new IllegalArgumentException("edge parameter is null");
         }
 
-        checkValid();
-
-        final GetSupportingEvidenceRequest req =
-                OBJECT_FACTORY.createGetSupportingEvidenceRequest();
-        req.setKamEdge(edge);
-
-        final GetSupportingEvidenceResponse res =
-                webAPI.getSupportingEvidence(req);
-        final List<BelStatement> stmts = res.getStatements();
-        for (final BelStatement stmt : stmts) {
-            final BelTerm subject = stmt.getSubjectTerm();
-
-            subject.setLabel(subject.getLabel());
-
-            final BelTerm objectTerm = stmt.getObjectTerm();
-            final BelStatement objectStmt = stmt.getObjectStatement();
-            if (objectTerm != null) {
-                objectTerm.setLabel(objectTerm.getLabel());
-            } else if (objectStmt != null) {
-                final BelTerm nestedSub = objectStmt.getSubjectTerm();
-                nestedSub.setLabel(nestedSub.getLabel());
-
-                final BelTerm nestedObj = objectStmt.getObjectTerm();
-                nestedObj.setLabel(nestedObj.getLabel());
+        return invoke(new RemoteCall<List<BelStatement>>(
+                KamOperation.GET_SUPPORTING_EVIDENCE, edge) {
+            @Override
+            List<BelStatement> call(final WebAPI webAPI) {
+                final GetSupportingEvidenceRequest req =
+                        OBJECT_FACTORY.createGetSupportingEvidenceRequest();
+                req.setKamEdge(edge);
+
+                final GetSupportingEvidenceResponse res =
+                        webAPI.getSupportingEvidence(req);
+                final List<BelStatement> stmts = res.getStatements();
+                for (final BelStatement stmt : stmts) {
+                    final BelTerm subject = stmt.getSubjectTerm();
+
+                    subject.setLabel(subject.getLabel());
+
+                    final BelTerm objectTerm = stmt.getObjectTerm();
+                    final BelStatement objectStmt = stmt.getObjectStatement();
+                    if (objectTerm != null) {
+                        objectTerm.setLabel(objectTerm.getLabel());
+                    } else if (objectStmt != null) {
+                        final BelTerm nestedSub = objectStmt.getSubjectTerm();
+                        nestedSub.setLabel(nestedSub.getLabel());
+
+                        final BelTerm nestedObj = objectStmt.getObjectTerm();
+                        nestedObj.setLabel(nestedObj.getLabel());
+                    }
+                }
+
+                return stmts;
             }
-        }
-
-        return stmts;
+        });
     }
 
     /**
@@ -303,27 +385,32 @@ class DefaultKamService implements KamService {
             throw new IllegalArgumentException("function is null");
         }
 
-        checkValid();
-
-        final FindKamNodesByPatternsRequest req =
-                OBJECT_FACTORY.createFindKamNodesByPatternsRequest();
-        req.setHandle(handle);
-        if (dialectHandle != null) {
-            req.setDialect(dialectHandle);
-        }
-        req.getPatterns().add(".*");
-
-        final NodeFilter nf = new NodeFilter();
-        final FunctionTypeFilterCriteria ftfc =
-                new FunctionTypeFilterCriteria();
-        ftfc.setIsInclude(true);
-        ftfc.getValueSet().add(function);
-        nf.getFunctionTypeCriteria().add(ftfc);
-        req.setFilter(nf);
-
-        final FindKamNodesByPatternsResponse res = webAPI
-                .findKamNodesByPatterns(req);
-        return res.getKamNodes();
+        return invoke(new RemoteCall<List<KamNode>>(
+                KamOperation.FIND_KAM_NODES_BY_FUNCTION,
+                handle, dialectHandle, function) {
+            @Override
+            List<KamNode> call(final WebAPI webAPI) {
+                final FindKamNodesByPatternsRequest req =
+                        OBJECT_FACTORY.createFindKamNodesByPatternsRequest();
+                req.setHandle(handle);
+                if (dialectHandle != null) {
+                    req.setDialect(dialectHandle);
+                }
+                req.getPatterns().add(".*");
+
+                final NodeFilter nf = new NodeFilter();
+                final FunctionTypeFilterCriteria ftfc =
+                        new FunctionTypeFilterCriteria();
+                ftfc.setIsInclude(true);
+                ftfc.getValueSet().add(function);
+                nf.getFunctionTypeCriteria().add(ftfc);
+                req.setFilter(nf);
+
+                final FindKamNodesByPatternsResponse res = webAPI
+                        .findKamNodesByPatterns(req);
+                return res.getKamNodes();
+            }
+        });
     }
 
     /**
@@ -341,23 +428,28 @@ class DefaultKamService implements KamService {
             throw new IllegalArgumentException("regex is null");
         }
 
-        checkValid();
-
-        final FindKamNodesByPatternsRequest req =
-                OBJECT_FACTORY.createFindKamNodesByPatternsRequest();
-        req.setHandle(handle);
-        if (dialectHandle != null) {
-            req.setDialect(dialectHandle);
-        }
-
-        req.getPatterns().add(regex);
-        if (nf != null) {
-            req.setFilter(nf);
-        }
-
-        final FindKamNodesByPatternsResponse res = webAPI
-                .findKamNodesByPatterns(req);
-        return res.getKamNodes();
+        return invoke(new RemoteCall<List<KamNode>>(
+                KamOperation.FIND_KAM_NODES_BY_PATTERNS,
+                handle, dialectHandle, regex, nf) {
+            @Override
+            List<KamNode> call(final WebAPI webAPI) {
+                final FindKamNodesByPatternsRequest req =
+                        OBJECT_FACTORY.createFindKamNodesByPatternsRequest();
+                req.setHandle(handle);
+                if (dialectHandle != null) {
+                    req.setDialect(dialectHandle);
+                }
+
+                req.getPatterns().add(regex);
+                if (nf != null) {
+                    req.setFilter(nf);
+                }
+
+                final FindKamNodesByPatternsResponse res = webAPI
+                        .findKamNodesByPatterns(req);
+                return res.getKamNodes();
+            }
+        });
     }
 
     /**
@@ -375,22 +467,27 @@ class DefaultKamService implements KamService {
             throw new IllegalArgumentException("direction is null");
         }
 
-        checkValid();
-
-        final GetAdjacentKamEdgesRequest req =
-                OBJECT_FACTORY.createGetAdjacentKamEdgesRequest();
-        if (dialectHandle != null) {
-            req.setDialect(dialectHandle);
-        }
-        req.setKamNode(node);
-        req.setDirection(direction);
-
-        if (ef != null) {
-            req.setFilter(ef);
-        }
-
-        final GetAdjacentKamEdgesResponse res = webAPI.getAdjacentKamEdges(req);
-        return res.getKamEdges();
+        return invoke(new RemoteCall<List<KamEdge>>(
+                KamOperation.GET_ADJACENT_KAM_EDGES,
+                dialectHandle, node, direction, ef) {
+            @Override
+            List<KamEdge> call(final WebAPI webAPI) {
+                final GetAdjacentKamEdgesRequest req =
+                        OBJECT_FACTORY.createGetAdjacentKamEdgesRequest();
+                if (dialectHandle != null) {
+                    req.setDialect(dialectHandle);
+                }
+                req.setKamNode(node);
+                req.setDirection(direction);
+
+                if (ef != null) {
+                    req.setFilter(ef);
+                }
+
+                final GetAdjacentKamEdgesResponse res = webAPI.getAdjacentKamEdges(req);
+                return res.getKamEdges();
+            }
+        });
     }
 
     /**
@@ -408,42 +505,450 @@ class DefaultKamService implements KamService {
         }
         // maxDepth is nullable, so no null check
 
-        checkValid();
+        return invoke(new RemoteCall<List<SimplePath>>(
+                KamOperation.INTERCONNECT, dialectHandle, sources, maxDepth) {
+            @Override
+            List<SimplePath> call(final WebAPI webAPI) {
+                final InterconnectRequest req = OBJECT_FACTORY
+                        .createInterconnectRequest();
+                if (dialectHandle != null) {
+                    req.setDialect(dialectHandle);
+                }
+                req.getSources().addAll(sources);
+                req.setMaxDepth(maxDepth);
+
+                final InterconnectResponse res = webAPI.interconnect(req);
+                return res.getPaths();
+            }
+        });
+    }
+
+    /**
+     * Runs a {@link RemoteCall remote call}, sharing it with any identical
+     * call already in flight in the same {@link RequestLane lane}, so an
+     * interactive caller never waits in the bulk lane.
+     *
+     * @param call
+     *            the {@link RemoteCall remote call}
+     * @return the result of the call
+     */
+    private <T> T invoke(final RemoteCall<T> call) {
+        final Object key = call.key();
+        if (key == null) {
+            return execute(call);
+        }
+
+        final Object laneKey = Arrays.asList(CallContext.getLane(), key);
+        return coalescer.execute(laneKey, new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return execute(call);
+            }
+        });
+    }
+
+    /**
+     * Runs a {@link RemoteCall remote call}, retrying
+     * {@link KamOperation#isIdempotent() idempotent} operations after
+     * transient faults with the jittered backoff of the {@link RetryPolicy},
+     * for up to {@link Configuration#getRetryAttempts()} attempts and within
+     * the {@link CallContext deadline}. {@link KamOperation#isHeavy() Heavy}
+     * operations are not hedged and are only retried if the request was
+     * never sent.
+     *
+     * @param call
+     *            the {@link RemoteCall remote call}
+     * @return the result of the call
+     */
+    private <T> T execute(final RemoteCall<T> call) {
+        final Configuration cfg = Configuration.getInstance();
+        final boolean idempotent = call.operation.isIdempotent();
+        final int attempts = idempotent ? cfg.getRetryAttempts() : 1;
+        for (int attempt = 1;; attempt++) {
+            try {
+                final long p95 = latencies.percentile(call.operation, 95);
+                if (idempotent && !call.operation.isHeavy()
+                        && cfg.isHedging() && p95 >= 0) {
+                    return hedged(call, p95);
+                }
+                return attempt(call);
+            } catch (WebServiceException e) {
+                if (attempt >= attempts
+                        || !retryPolicy.isRetryable(call.operation, e)) {
+                    throw e;
+                }
+
+                final long delay = retryPolicy.backoff(attempt);
+                if (CallContext.remainingMillis() <= delay) {
+                    throw e;
+                }
+                log.debug("Retrying " + call.operation + " in " + delay
+                        + " ms after: " + e.getMessage());
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs a {@link RemoteCall remote call} and, if it has not answered
+     * within the operation's p95 latency, sends a second copy and takes the
+     * first successful answer. The slower copy is cancelled.
+     *
+     * <p>
+     * Both copies run on the hedge pool. If the pool is saturated the call
+     * runs once on the calling thread.
+     * </p>
+     *
+     * @param call
+     *            the {@link RemoteCall remote call}
+     * @param delay
+     *            the time to wait before hedging in milliseconds
+     * @return the result of the call
+     */
+    private <T> T hedged(final RemoteCall<T> call, final long delay) {
+        final Callable<T> copy = CallContext.propagate(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return attempt(call);
+            }
+        });
+        final BlockingQueue<Future<T>> completed = new LinkedBlockingQueue<Future<T>>();
+        final List<Future<T>> copies = new ArrayList<Future<T>>(2);
+        try {
+            if (!submitCopy(copy, completed, copies)) {
+                return attempt(call);
+            }
+
+            Future<T> first = completed.poll(delay, TimeUnit.MILLISECONDS);
+            if (first == null) {
+                if (submitCopy(copy, completed, copies)) {
+                    log.debug("Hedging " + call.operation + " after "
+                            + delay + " ms");
+                }
+                first = completed.take();
+            }
+
+            try {
+                return first.get();
+            } catch (ExecutionException e) {
+                if (copies.size() < 2) {
+                    throw unwrap(e);
+                }
+                // the other copy may still succeed
+                try {
+                    return completed.take().get();
+                } catch (ExecutionException e2) {
+                    throw unwrap(e2);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for "
+                    + call.operation, e);
+        } finally {
+            for (final Future<T> future : copies) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private <T> boolean submitCopy(final Callable<T> copy,
+            final BlockingQueue<Future<T>> completed,
+            final List<Future<T>> copies) {
+        final FutureTask<T> future = new FutureTask<T>(copy) {
+            @Override
+            protected void done() {
+                completed.add(this);
+            }
+        };
+        try {
+            hedgePool.execute(future);
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+        copies.add(future);
+        return true;
+    }
+
+    private static RuntimeException unwrap(final ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new RuntimeException(cause);
+    }
+
+    /**
+     * Runs a {@link RemoteCall remote call} on a {@link WebAPI stub} checked
+     * out of the {@link WebAPIStubPool stub pool} of the current
+     * {@link ConnectionSnapshot connection snapshot}. The call finishes on
+     * that snapshot even if the connector is reconfigured meanwhile.
+     *
+     * <p>
+     * Waiting for admission in the {@link RequestLane lane}, waiting for a
+     * stub and the request itself are bounded by the
+     * {@link #timeout(KamOperation) timeout} of the operation.
+     * </p>
+     *
+     * @param call
+     *            the {@link RemoteCall remote call}
+     * @return the result of the call
+     */
+    private <T> T attempt(final RemoteCall<T> call) {
+        final ClientConnector connector = connector();
+        final ConnectionSnapshot connection = checkValid(connector);
+
+        final CircuitBreaker breaker = connector.getCircuitBreaker();
+        final RequestLane lane = CallContext.getLane();
+        boolean admitted = false;
+        boolean recorded = false;
+        try {
+            final long timeout = timeout(call.operation);
+            final WebAPIStubPool pool = connection.getStubPool();
+            final WebAPI webAPI;
+            try {
+                admitted = scheduler.acquire(lane, timeout);
+                if (!admitted) {
+                    throw new RuntimeException("No " + lane + " request slot"
+                            + " available after " + timeout + " ms");
+                }
+                webAPI = pool.checkout(timeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(
+                        "Interrupted waiting for connection", e);
+            }
+
+            final long start = System.currentTimeMillis();
+            try {
+                // the stub may have waited, give the request what is left
+                final long remaining = Math.min(timeout,
+                        CallContext.remainingMillis());
+                if (remaining <= 0) {
+                    throw new DeadlineExceededException("Deadline passed"
+                            + " before " + call.operation + " was sent.");
+                }
+                WebAPIStubPool.setRequestTimeout(webAPI, remaining);
+                final int inFlight = scheduler.getRunning();
+                final T result = call.call(webAPI);
+                final long latency = System.currentTimeMillis() - start;
+                limiter.onSuccess(start, latency, latencies.percentile(
+                        call.operation, 50), inFlight);
+                latencies.record(call.operation, latency);
+                breaker.recordSuccess();
+                recorded = true;
+                return result;
+            } catch (WebServiceException e) {
+                // a fault is an answer, only a failed connect means no
+                // server; a read timeout may be our own cut of a slow call
+                if (e instanceof SOAPFaultException) {
+                    breaker.recordSuccess();
+                } else if (retryPolicy.isUnsent(e)) {
+                    breaker.recordFailure();
+                    limiter.onDropped(start);
+                } else {
+                    breaker.release();
+                    limiter.onDropped(start);
+                }
+                // cut by the operation timeout, not the task deadline
+                if (retryPolicy.isTimeout(e)
+                        && CallContext.remainingMillis() > 0) {
+                    latencies.record(call.operation,
+                            System.currentTimeMillis() - start);
+                }
+                recorded = true;
+                throw e;
+            } finally {
+                pool.checkin(webAPI);
+            }
+        } finally {
+            if (admitted) {
+                scheduler.release(lane);
+            }
+            if (!recorded) {
+                breaker.release();
+            }
+        }
+    }
+
+    /**
+     * Returns the timeout of a call, the configured timeout of the
+     * {@link KamOperation operation}, lowered to the observed latency of
+     * operations that are not {@link KamOperation#isHeavy() heavy} in
+     * {@link Configuration#isAdaptiveTimeouts() adaptive} mode and capped by
+     * the {@link CallContext deadline} of the current task.
+     *
+     * @param operation
+     *            the {@link KamOperation operation}
+     * @return the timeout in milliseconds
+     * @throws DeadlineExceededException
+     *             Thrown if the deadline has already passed
+     */
+    private long timeout(final KamOperation operation) {
+        final Configuration cfg = Configuration.getInstance();
+        long timeout = cfg.getTimeout(operation) * 1000L;
+        if (cfg.isAdaptiveTimeouts()) {
+            timeout = latencies.adaptiveTimeout(operation, timeout);
+        }
 
-        final InterconnectRequest req = OBJECT_FACTORY
-                .createInterconnectRequest();
-        if (dialectHandle != null) {
-            req.setDialect(dialectHandle);
+        final long remaining = CallContext.remainingMillis();
+        if (remaining <= 0) {
+            throw new DeadlineExceededException("Deadline passed before "
+                    + operation + " was started.");
         }
-        req.getSources().addAll(sources);
-        req.setMaxDepth(maxDepth);
+        return Math.min(timeout, remaining);
+    }
 
-        final InterconnectResponse res = webAPI.interconnect(req);
-        return res.getPaths();
+    /**
+     * Returns the registered {@link ClientConnector connector}, resolving
+     * it if it was not registered when this service was created.
+     *
+     * @return the {@link ClientConnector connector}
+     * @throws ConnectionUnavailableException Thrown if no connector is
+     * registered
+     */
+    private ClientConnector connector() {
+        ClientConnector connector = clientConnector;
+        if (connector == null) {
+            reloadClientConnector();
+            connector = clientConnector;
+            if (connector == null) {
+                throw new ConnectionUnavailableException(
+                        "The BELFramework Web Services client is not registered.");
+            }
+        }
+        return connector;
     }
 
     /**
-     * Checks for a valid connection and errors out if not.
+     * Checks for a configured connection and a closed
+     * {@link CircuitBreaker circuit breaker}, failing fast if not. The
+     * breaker's health probe, not this check, reconnects after an outage.
      *
-     * @throws RuntimeException Thrown to fail the existing request
+     * @param connector the {@link ClientConnector connector}
+     * @return the {@link ConnectionSnapshot connection snapshot} the call
+     * should use
+     * @throws ConnectionUnavailableException Thrown to fail the existing
+     * request
+     */
+    protected ConnectionSnapshot checkValid(final ClientConnector connector) {
+        // the connector is initialized in the background at startup
+        if (!connector.awaitInitialized(Configuration.getInstance()
+                .getTimeout() * 1000L)) {
+            throw new ConnectionUnavailableException(
+                    "Timed out waiting for the connection to initialize.");
+        }
+
+        final CircuitBreaker breaker = connector.getCircuitBreaker();
+        breaker.acquire();
+        final ConnectionSnapshot connection = connector.getSnapshot();
+        if (!connection.isValid()) {
+            breaker.trip();
+            throw new ConnectionUnavailableException(
+                    "Error connecting to the BELFramework Web Services.");
+        }
+        return connection;
+    }
+
+    /**
+     * A call to the {@link WebAPI} for one {@link KamOperation operation}.
+     * The arguments identify the call for coalescing.
      */
-    protected void checkValid() {
-        if (webAPI == null || !clientConnector.isValid()) {
-            // attempt to reconfigure to see if WSDL is now up
-            clientConnector.reconfigure();
+    private static abstract class RemoteCall<T> {
+        private static final Object NOT_COMPARABLE = new Object();
+        private final KamOperation operation;
+        private final Object[] args;
+
+        RemoteCall(final KamOperation operation, final Object... args) {
+            this.operation = operation;
+            this.args = args;
+        }
+
+        /**
+         * Makes the call.
+         *
+         * @param webAPI
+         *            the {@link WebAPI stub} checked out for this call
+         * @return the result
+         */
+        abstract T call(WebAPI webAPI);
+
+        /**
+         * Returns the key of this call, or {@code null} if an argument can't
+         * be compared and the call should not be shared.
+         *
+         * @return the key, or {@code null}
+         */
+        Object key() {
+            final List<Object> key = new ArrayList<Object>(args.length + 1);
+            key.add(operation);
+            for (final Object arg : args) {
+                final Object k = keyOf(arg);
+                if (k == NOT_COMPARABLE) {
+                    return null;
+                }
+                key.add(k);
+            }
+            return key;
         }
-        
-        // if reconfigure fails
-        if (webAPI == null || !clientConnector.isValid()) {
-            // TODO move this message dialog out of the Kam service, UI
-            // has no place here
-            JOptionPane.showMessageDialog(Cytoscape.getDesktop(),
-                    "Error connecting to the BELFramework Web Services.\n" +
-                            "Please check the BELFramework Web Services Configuration.",
-                    "Connection Error", JOptionPane.ERROR_MESSAGE);
-            // TODO make this in a checked(?) exception so that layers using
-            // the kam service can create their own UI errors
-            throw new RuntimeException("Connection error.");
+
+        /**
+         * Maps an argument to a value with equals and hashCode, the JAXB model
+         * classes only have identity equality.
+         */
+        private static Object keyOf(final Object arg) {
+            if (arg == null || arg instanceof String || arg instanceof Number
+                    || arg instanceof Enum<?>) {
+                return arg;
+            }
+            if (arg instanceof KamHandle) {
+                return Arrays.asList("kam", ((KamHandle) arg).getHandle());
+            }
+            if (arg instanceof DialectHandle) {
+                return Arrays.asList("dialect",
+                        ((DialectHandle) arg).getHandle());
+            }
+            if (arg instanceof Kam) {
+                final Kam kam = (Kam) arg;
+                return Arrays.asList("kam", kam.getName(),
+                        String.valueOf(kam.getLastCompiled()));
+            }
+            if (arg instanceof KamNode) {
+                return Arrays.asList("node", ((KamNode) arg).getId());
+            }
+            if (arg instanceof KamEdge) {
+                return Arrays.asList("edge", ((KamEdge) arg).getId());
+            }
+            if (arg instanceof Namespace) {
+                return Arrays.asList("ns",
+                        ((Namespace) arg).getResourceLocation());
+            }
+            if (arg instanceof NamespaceValue) {
+                final NamespaceValue nv = (NamespaceValue) arg;
+                return Arrays.asList("nsv", keyOf(nv.getNamespace()),
+                        nv.getValue());
+            }
+            if (arg instanceof Collection<?>) {
+                final List<Object> keys = new ArrayList<Object>();
+                for (final Object o : (Collection<?>) arg) {
+                    final Object k = keyOf(o);
+                    if (k == NOT_COMPARABLE) {
+                        return NOT_COMPARABLE;
+                    }
+                    keys.add(k);
+                }
+                return keys;
+            }
+            // filters and anything else
+            return NOT_COMPARABLE;
         }
     }
 }
@@ -0,0 +1,259 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.EdgeFilter;
+import org.openbel.framework.ws.model.FunctionType;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamHandle;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.LoadKamResponse;
+import org.openbel.framework.ws.model.Namespace;
+import org.openbel.framework.ws.model.NamespaceDescriptor;
+import org.openbel.framework.ws.model.NamespaceValue;
+import org.openbel.framework.ws.model.NodeFilter;
+import org.openbel.framework.ws.model.SimplePath;
+
+/**
+ * {@link ExecutorAsyncKamService} is an {@link AsyncKamService} that runs the
+ * calls of a {@link KamService} on the shared {@link KamServiceExecutor}.
+ *
+ * <p>
+ * The generated web service stubs only offer synchronous operations, so each
+ * pending call holds an executor thread.  Calls run with the
+ * {@link CallContext deadline} of the submitting thread and are rejected
+ * with a {@link java.util.concurrent.RejectedExecutionException} when the
+ * executor queue is full.
+ * </p>
+ */
+public class ExecutorAsyncKamService implements AsyncKamService {
+    private final KamService kamService;
+
+    /**
+     * Creates an {@link ExecutorAsyncKamService} for a {@link KamService}.
+     *
+     * @param kamService
+     *            the {@link KamService} to call, which can not be null
+     */
+    public ExecutorAsyncKamService(final KamService kamService) {
+        if (kamService == null) {
+            throw new IllegalArgumentException("kamService can not be null");
+        }
+        this.kamService = kamService;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reloadClientConnector() {
+        kamService.reloadClientConnector();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamServiceFuture<List<KamNode>> findKamNodesByNamespaceValues(
+            final KamHandle kamHandle, final DialectHandle dialectHandle,
+            final List<NamespaceValue> namespaceValues,
+            final NodeFilter nodeFilter) {
+        return submit(new Callable<List<KamNode>>() {
+            @Override
+            public List<KamNode> call() throws Exception {
+                return kamService.findKamNodesByNamespaceValues(kamHandle,
+                        dialectHandle, namespaceValues, nodeFilter);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamServiceFuture<List<NamespaceValue>> findNamespaceValues(
+            final Collection<String> patterns,
+            final Collection<Namespace> namespaces) {
+        return submit(new Callable<List<NamespaceValue>>() {
+            @Override
+            public List<NamespaceValue> call() throws Exception {
+                return kamService.findNamespaceValues(patterns, namespaces);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamServiceFuture<List<NamespaceDescriptor>> getAllNamespaces() {
+        return submit(new Callable<List<NamespaceDescriptor>>() {
+            @Override
+            public List<NamespaceDescriptor> call() throws Exception {
+                return kamService.getAllNamespaces();
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamServiceFuture<List<Kam>> getCatalog() {
+        return submit(new Callable<List<Kam>>() {
+            @Override
+            public List<Kam> call() throws Exception {
+                return kamService.getCatalog();
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamServiceFuture<DialectHandle> getDefaultDialect(
+            final KamHandle kamHandle) {
+        return submit(new Callable<DialectHandle>() {
+            @Override
+            public DialectHandle call() throws Exception {
+                return kamService.getDefaultDialect(kamHandle);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamServiceFuture<LoadKamResponse> loadKam(final Kam kam) {
+        return submit(new Callable<LoadKamResponse>() {
+            @Override
+            public LoadKamResponse call() throws Exception {
+                return kamService.loadKam(kam);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamServiceFuture<List<BelTerm>> getSupportingTerms(
+            final KamNode node) {
+        return submit(new Callable<List<BelTerm>>() {
+            @Override
+            public List<BelTerm> call() throws Exception {
+                return kamService.getSupportingTerms(node);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamServiceFuture<List<BelStatement>> getSupportingEvidence(
+            final KamEdge edge) {
+        return submit(new Callable<List<BelStatement>>() {
+            @Override
+            public List<BelStatement> call() throws Exception {
+                return kamService.getSupportingEvidence(edge);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamServiceFuture<List<KamNode>> findKamNodesByFunction(
+            final KamHandle kamHandle, final DialectHandle dialectHandle,
+            final FunctionType function) {
+        return submit(new Callable<List<KamNode>>() {
+            @Override
+            public List<KamNode> call() throws Exception {
+                return kamService.findKamNodesByFunction(kamHandle,
+                        dialectHandle, function);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamServiceFuture<List<KamNode>> findKamNodesByPatterns(
+            final KamHandle kamHandle, final DialectHandle dialectHandle,
+            final String regex, final NodeFilter nf) {
+        return submit(new Callable<List<KamNode>>() {
+            @Override
+            public List<KamNode> call() throws Exception {
+                return kamService.findKamNodesByPatterns(kamHandle,
+                        dialectHandle, regex, nf);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamServiceFuture<List<KamEdge>> getAdjacentKamEdges(
+            final DialectHandle dialectHandle, final KamNode node,
+            final EdgeDirectionType direction, final EdgeFilter ef) {
+        return submit(new Callable<List<KamEdge>>() {
+            @Override
+            public List<KamEdge> call() throws Exception {
+                return kamService.getAdjacentKamEdges(dialectHandle, node,
+                        direction, ef);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public KamServiceFuture<List<SimplePath>> interconnect(
+            final DialectHandle dialectHandle,
+            final Collection<KamNode> sources, final Integer maxDepth) {
+        return submit(new Callable<List<SimplePath>>() {
+            @Override
+            public List<SimplePath> call() throws Exception {
+                return kamService.interconnect(dialectHandle, sources,
+                        maxDepth);
+            }
+        });
+    }
+
+    private static <T> KamServiceFuture<T> submit(final Callable<T> callable) {
+        return KamServiceExecutor.getInstance().submit(callable);
+    }
+}
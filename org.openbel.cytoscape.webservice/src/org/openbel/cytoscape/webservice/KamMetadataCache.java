@@ -0,0 +1,376 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.EdgeFilter;
+import org.openbel.framework.ws.model.FunctionType;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamHandle;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.LoadKamResponse;
+import org.openbel.framework.ws.model.Namespace;
+import org.openbel.framework.ws.model.NamespaceDescriptor;
+import org.openbel.framework.ws.model.NamespaceValue;
+import org.openbel.framework.ws.model.NodeFilter;
+import org.openbel.framework.ws.model.SimplePath;
+
+import cytoscape.logger.CyLogger;
+
+/**
+ * {@link KamMetadataCache} is a {@link KamService} that serves the
+ * {@link Kam KAM catalog}, the {@link NamespaceDescriptor namespaces} and the
+ * default {@link DialectHandle dialect} of each {@link KamHandle kam handle}
+ * from memory.
+ *
+ * <p>
+ * Metadata is {@link #prefetch() prefetched} once the connection is ready,
+ * or loaded on first use, and refreshed on a background thread every
+ * {@link #REFRESH_INTERVAL_MINUTES} minutes while the connection is valid.
+ * Stale metadata is kept if a refresh fails. {@link #refresh()} reloads it on
+ * demand and {@link #reloadClientConnector()} drops it, as the WSDL may now
+ * point to a different server. Every other call is passed to the wrapped
+ * {@link KamService}.
+ * </p>
+ *
+ * <p>
+ * Lists are returned as copies since callers are free to modify them.
+ * </p>
+ */
+public class KamMetadataCache implements KamService {
+    /**
+     * The interval between background refreshes, in minutes.
+     */
+    public static final long REFRESH_INTERVAL_MINUTES = 30;
+    private static final CyLogger log = CyLogger
+            .getLogger(KamMetadataCache.class);
+    private static final String THREAD_NAME = "kam-metadata-refresh";
+    private static final String PREFETCH_THREAD_NAME = "kam-metadata-prefetch";
+
+    private final KamService kamService;
+    private final Map<String, DialectHandle> dialects = new HashMap<String, DialectHandle>();
+    private volatile List<Kam> catalog;
+    private volatile List<NamespaceDescriptor> namespaces;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a {@link KamMetadataCache} wrapping a {@link KamService}.
+     *
+     * @param kamService
+     *            the wrapped {@link KamService}
+     */
+    KamMetadataCache(final KamService kamService) {
+        this.kamService = kamService;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Served from memory once loaded.
+     */
+    @Override
+    public List<Kam> getCatalog() {
+        List<Kam> c = catalog;
+        if (c == null) {
+            c = loadCatalog();
+        }
+        return new ArrayList<Kam>(c);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Served from memory once loaded.
+     */
+    @Override
+    public List<NamespaceDescriptor> getAllNamespaces() {
+        List<NamespaceDescriptor> n = namespaces;
+        if (n == null) {
+            n = loadNamespaces();
+        }
+        return new ArrayList<NamespaceDescriptor>(n);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Served from memory once loaded for the {@link KamHandle kam handle}.
+     */
+    @Override
+    public DialectHandle getDefaultDialect(final KamHandle kamHandle) {
+        if (kamHandle == null) {
+            throw new IllegalArgumentException("kamHandle is null");
+        }
+
+        final String key = kamHandle.getHandle();
+        synchronized (dialects) {
+            final DialectHandle cached = dialects.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        final DialectHandle dialect = kamService.getDefaultDialect(kamHandle);
+        if (dialect != null) {
+            synchronized (dialects) {
+                dialects.put(key, dialect);
+            }
+        }
+        return dialect;
+    }
+
+    /**
+     * Reloads the {@link Kam KAM catalog} and
+     * {@link NamespaceDescriptor namespaces}, and drops the cached
+     * {@link DialectHandle dialects}. This call blocks on the web service and
+     * should not be made from the swing thread.
+     */
+    public void refresh() {
+        synchronized (dialects) {
+            dialects.clear();
+        }
+        synchronized (this) {
+            catalog = kamService.getCatalog();
+            namespaces = kamService.getAllNamespaces();
+        }
+    }
+
+    /**
+     * Loads the {@link Kam KAM catalog} and
+     * {@link NamespaceDescriptor namespaces} on a low priority background
+     * thread, so the first dialog to ask for them does not wait on the web
+     * service. Does nothing for metadata that is already loaded or while the
+     * connection is invalid.
+     */
+    public void prefetch() {
+        final Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // an invalid connection would prompt the user from this thread
+                if (!ClientConnector.getInstance().isValid()) {
+                    return;
+                }
+
+                try {
+                    loadCatalog();
+                    loadNamespaces();
+                } catch (RuntimeException e) {
+                    log.warn("Error prefetching KAM metadata", e);
+                }
+            }
+        }, PREFETCH_THREAD_NAME);
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        t.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Drops all cached metadata.
+     */
+    @Override
+    public void reloadClientConnector() {
+        kamService.reloadClientConnector();
+        invalidate();
+    }
+
+    private void invalidate() {
+        synchronized (dialects) {
+            dialects.clear();
+        }
+        synchronized (this) {
+            catalog = null;
+            namespaces = null;
+        }
+    }
+
+    private synchronized List<Kam> loadCatalog() {
+        // another caller may have loaded it while we waited
+        if (catalog == null) {
+            catalog = kamService.getCatalog();
+            startRefresh();
+        }
+        return catalog;
+    }
+
+    private synchronized List<NamespaceDescriptor> loadNamespaces() {
+        if (namespaces == null) {
+            namespaces = kamService.getAllNamespaces();
+            startRefresh();
+        }
+        return namespaces;
+    }
+
+    private synchronized void startRefresh() {
+        if (scheduler != null) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        final Thread t = new Thread(r, THREAD_NAME);
+                        t.setDaemon(true);
+                        t.setPriority(Thread.MIN_PRIORITY);
+                        return t;
+                    }
+                });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                backgroundRefresh();
+            }
+        }, REFRESH_INTERVAL_MINUTES, REFRESH_INTERVAL_MINUTES,
+                TimeUnit.MINUTES);
+    }
+
+    private void backgroundRefresh() {
+        // an invalid connection would prompt the user from this thread
+        if (!ClientConnector.getInstance().isValid()) {
+            return;
+        }
+
+        try {
+            final boolean reloadCatalog;
+            final boolean reloadNamespaces;
+            synchronized (this) {
+                reloadCatalog = catalog != null;
+                reloadNamespaces = namespaces != null;
+            }
+
+            // only refresh what has been asked for, keep stale on failure
+            final List<Kam> c = reloadCatalog ? kamService.getCatalog() : null;
+            final List<NamespaceDescriptor> n = reloadNamespaces ? kamService
+                    .getAllNamespaces() : null;
+            synchronized (this) {
+                if (c != null && catalog != null) {
+                    catalog = c;
+                }
+                if (n != null && namespaces != null) {
+                    namespaces = n;
+                }
+            }
+            synchronized (dialects) {
+                dialects.clear();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Error refreshing KAM metadata", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByNamespaceValues(KamHandle kamHandle,
+            DialectHandle dialectHandle, List<NamespaceValue> namespaceValues,
+            NodeFilter nodeFilter) {
+        return kamService.findKamNodesByNamespaceValues(kamHandle,
+                dialectHandle, namespaceValues, nodeFilter);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<NamespaceValue> findNamespaceValues(
+            Collection<String> patterns, Collection<Namespace> namespaces) {
+        return kamService.findNamespaceValues(patterns, namespaces);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LoadKamResponse loadKam(Kam kam) {
+        return kamService.loadKam(kam);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BelTerm> getSupportingTerms(KamNode node) {
+        return kamService.getSupportingTerms(node);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BelStatement> getSupportingEvidence(KamEdge edge) {
+        return kamService.getSupportingEvidence(edge);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByFunction(KamHandle kamHandle,
+            DialectHandle dialectHandle, FunctionType function) {
+        return kamService.findKamNodesByFunction(kamHandle, dialectHandle,
+                function);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByPatterns(KamHandle kamHandle,
+            DialectHandle dialectHandle, String regex, NodeFilter nf) {
+        return kamService.findKamNodesByPatterns(kamHandle, dialectHandle,
+                regex, nf);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamEdge> getAdjacentKamEdges(DialectHandle dialectHandle,
+            KamNode node, EdgeDirectionType direction, EdgeFilter ef) {
+        return kamService.getAdjacentKamEdges(dialectHandle, node, direction,
+                ef);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SimplePath> interconnect(DialectHandle dialectHandle,
+            Collection<KamNode> sources, Integer maxDepth) {
+        return kamService.interconnect(dialectHandle, sources, maxDepth);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+/**
+ * {@link KamOperation} enumerates the remote operations of the
+ * {@link KamService}.
+ *
+ * <p>
+ * Idempotent operations only read from the server, so they can be retried
+ * or sent twice without changing the result.
+ * </p>
+ *
+ * <p>
+ * Heavy operations are expensive for the server. They are never hedged and
+ * are only retried if the request never reached the server.
+ * </p>
+ */
+public enum KamOperation {
+    FIND_KAM_NODES_BY_NAMESPACE_VALUES(true, false),
+    FIND_NAMESPACE_VALUES(true, false),
+    GET_ALL_NAMESPACES(true, false),
+    GET_CATALOG(true, false),
+    GET_DEFAULT_DIALECT(true, false),
+    LOAD_KAM(false, false),
+    GET_SUPPORTING_TERMS(true, false),
+    GET_SUPPORTING_EVIDENCE(true, false),
+    FIND_KAM_NODES_BY_FUNCTION(true, false),
+    FIND_KAM_NODES_BY_PATTERNS(true, false),
+    GET_ADJACENT_KAM_EDGES(true, false),
+    INTERCONNECT(true, true);
+
+    private final boolean idempotent;
+    private final boolean heavy;
+
+    private KamOperation(final boolean idempotent, final boolean heavy) {
+        this.idempotent = idempotent;
+        this.heavy = heavy;
+    }
+
+    /**
+     * Returns {@code true} if the operation can safely be retried or
+     * hedged, {@code false} if not.
+     *
+     * @return {@code true} if idempotent, {@code false} if not
+     */
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    /**
+     * Returns {@code true} if the operation is expensive for the server, so
+     * it must not be hedged or resent after it may have reached the server,
+     * {@code false} if not.
+     *
+     * @return {@code true} if heavy, {@code false} if not
+     */
+    public boolean isHeavy() {
+        return heavy;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * {@link KamServiceCallback} is notified when a {@link KamServiceFuture} is
+ * complete.
+ *
+ * <p>
+ * Callbacks run on the thread that completed the future, usually a
+ * {@link KamServiceExecutor} thread, so they should be short and must not
+ * touch swing components directly.
+ * </p>
+ *
+ * @param <T> the result type
+ * @see KamServiceFuture#addCallback(KamServiceCallback)
+ */
+public interface KamServiceCallback<T> {
+
+    /**
+     * Called when the call completed successfully.
+     *
+     * @param result
+     *            the result of the call, may be {@code null}
+     */
+    void onSuccess(T result);
+
+    /**
+     * Called when the call failed or was cancelled.
+     *
+     * @param t
+     *            the cause of the failure, a {@link CancellationException}
+     *            if the call was cancelled
+     */
+    void onFailure(Throwable t);
+}
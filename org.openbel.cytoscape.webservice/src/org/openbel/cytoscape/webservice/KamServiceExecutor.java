@@ -0,0 +1,197 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link KamServiceExecutor} runs {@link KamService} calls for the plugins on
+ * a single shared pool of daemon threads.
+ *
+ * <p>
+ * The number of threads is bounded by the
+ * {@link AdaptiveLimiter#getMaxLimit() highest request limit} per lane and
+ * waiting calls are held in a bounded queue, calls submitted while the queue
+ * is full are rejected.
+ * </p>
+ *
+ * <p>
+ * Calls run with the {@link CallContext deadline} of the thread that
+ * submitted them.  Each {@link RequestLane lane} has its own pool and queue,
+ * so interactive calls never wait for a thread behind queued bulk calls.
+ * </p>
+ *
+ * <p>
+ * Cancelling a {@link KamServiceFuture} interrupts its thread and releases
+ * the caller immediately.  JAX-WS offers no way to abort a SOAP request that
+ * is blocked on the socket, so the thread itself is released once the
+ * response arrives or the configured request timeout expires.
+ * </p>
+ *
+ * <p>
+ * This class is a singleton to provide a single executor for all plugins.
+ * </p>
+ */
+public class KamServiceExecutor {
+    private static final String THREAD_PREFIX = "kam-service-";
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final long KEEP_ALIVE_SECONDS = 60;
+    private static KamServiceExecutor instance;
+    private final Map<RequestLane, ThreadPoolExecutor> executors = new EnumMap<RequestLane, ThreadPoolExecutor>(
+            RequestLane.class);
+
+    /**
+     * Retrieve the singleton instance of {@link KamServiceExecutor}.
+     *
+     * @return the singleton instance
+     */
+    public static synchronized KamServiceExecutor getInstance() {
+        if (instance == null) {
+            instance = new KamServiceExecutor();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Private constructor for singleton.
+     */
+    private KamServiceExecutor() {
+        final int threads = AdaptiveLimiter.getInstance().getMaxLimit();
+        for (final RequestLane lane : RequestLane.values()) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(QUEUE_CAPACITY),
+                    new KamServiceThreadFactory(THREAD_PREFIX
+                            + lane.name().toLowerCase() + "-"));
+            executor.allowCoreThreadTimeOut(true);
+            executors.put(lane, executor);
+        }
+    }
+
+    /**
+     * Submits a call to run on the pool of the {@link RequestLane lane} of the
+     * current {@link CallContext}.
+     *
+     * @param callable
+     *            the {@link Callable call} to run
+     * @return the {@link KamServiceFuture future} result of the call
+     * @throws RejectedExecutionException
+     *             Thrown if the queue of waiting calls is full
+     */
+    public <T> KamServiceFuture<T> submit(final Callable<T> callable) {
+        if (callable == null) {
+            throw new IllegalArgumentException("callable can not be null");
+        }
+
+        // calls run with the deadline of the submitting task
+        final KamServiceFuture<T> future = new KamServiceFuture<T>(
+                CallContext.propagate(callable));
+        executors.get(CallContext.getLane()).execute(future);
+        return future;
+    }
+
+    /**
+     * Resizes the pools to the current
+     * {@link AdaptiveLimiter#getMaxLimit() highest request limit}.
+     */
+    public synchronized void reconfigure() {
+        final int threads = AdaptiveLimiter.getInstance().getMaxLimit();
+        for (final ThreadPoolExecutor executor : executors.values()) {
+            // keep core <= max while resizing
+            if (threads > executor.getMaximumPoolSize()) {
+                executor.setMaximumPoolSize(threads);
+                executor.setCorePoolSize(threads);
+            } else {
+                executor.setCorePoolSize(threads);
+                executor.setMaximumPoolSize(threads);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of calls waiting for a thread.
+     *
+     * @return the number of waiting calls
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (final RequestLane lane : RequestLane.values()) {
+            depth += getQueueDepth(lane);
+        }
+        return depth;
+    }
+
+    /**
+     * Returns the number of calls in a {@link RequestLane lane} waiting for
+     * a thread.
+     *
+     * @param lane
+     *            the {@link RequestLane lane}
+     * @return the number of waiting calls
+     */
+    public int getQueueDepth(final RequestLane lane) {
+        return executors.get(lane).getQueue().size();
+    }
+
+    /**
+     * Returns the approximate number of calls currently running.
+     *
+     * @return the number of running calls
+     */
+    public int getActiveCount() {
+        int active = 0;
+        for (final ThreadPoolExecutor executor : executors.values()) {
+            active += executor.getActiveCount();
+        }
+        return active;
+    }
+
+    /**
+     * Creates named daemon threads so pending calls never keep cytoscape
+     * from exiting.
+     */
+    private static class KamServiceThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private KamServiceThreadFactory(final String prefix) {
+            this.prefix = prefix;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r, prefix + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -19,20 +19,63 @@
  */
 package org.openbel.cytoscape.webservice;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import cytoscape.logger.CyLogger;
+
 /**
  * {@link KamServiceFactory} creates the {@link KamService service interface} to
  * the BEL Framework Web API.
  *
  * <p>
+ * The {@link KamService kam service} is composed from
+ * {@link KamServiceProvider providers}: one backend wrapped by decorators.
+ * The built-in providers are the {@code default} backend, which calls the
+ * web services, the {@code metrics} decorator, which records every call
+ * reaching the backend in the {@link KamServiceMetrics metrics}, and the
+ * {@code metadata-cache} decorator. Further providers
+ * are discovered with {@link ServiceLoader}. The backend and the order of
+ * the decorators are read from the {@link Configuration configuration}, by
+ * default every decorator is used in its {@link KamServiceProvider#getOrder()
+ * default order}.
+ * </p>
+ *
+ * <p>
  * This class is a singleton to provide a single instance of
- * {@link KamService}.
+ * {@link KamService}, which is composed on first use, and its
+ * {@link AsyncKamService asynchronous companion}.
  * </p>
  *
  * @author Anthony Bargnesi &lt;abargnesi@selventa.com&gt;
  */
 public class KamServiceFactory {
+	private static final CyLogger log = CyLogger
+			.getLogger(KamServiceFactory.class);
+	/**
+	 * The name of the built-in backend.
+	 */
+	public static final String DEFAULT_BACKEND = "default";
+	/**
+	 * The name of the built-in {@link KamMetadataCache metadata cache}
+	 * decorator.
+	 */
+	public static final String METADATA_CACHE = "metadata-cache";
+	/**
+	 * The name of the built-in {@link MetricsKamService metrics} decorator.
+	 */
+	public static final String METRICS = "metrics";
 	private static KamServiceFactory instance;
-	private KamService kamService;
+	private volatile KamService kamService;
+	private volatile AsyncKamService asyncKamService;
+	private KamMetadataCache metadataCache;
 
 	/**
 	 * Retrieve the singleton instance of {@link KamServiceFactory}.
@@ -48,18 +91,266 @@ public class KamServiceFactory {
 	}
 
 	/**
-	 * Retrieve the single instance {@link KamService}.
+	 * Retrieve the single instance {@link KamService}, composing it on the
+	 * first call.
 	 *
 	 * @return the {@link KamService kam service}
 	 */
 	public KamService getKAMService() {
-		return kamService;
+		KamService service = kamService;
+		if (service == null) {
+			synchronized (this) {
+				service = kamService;
+				if (service == null) {
+					service = compose();
+					kamService = service;
+				}
+			}
+		}
+		return service;
+	}
+
+	/**
+	 * Retrieve the single instance {@link AsyncKamService}, which runs the
+	 * calls of the {@link #getKAMService() kam service} on the
+	 * {@link KamServiceExecutor}.
+	 *
+	 * @return the {@link AsyncKamService async kam service}
+	 */
+	public AsyncKamService getAsyncKAMService() {
+		AsyncKamService service = asyncKamService;
+		if (service == null) {
+			synchronized (this) {
+				service = asyncKamService;
+				if (service == null) {
+					service = new ExecutorAsyncKamService(getKAMService());
+					asyncKamService = service;
+				}
+			}
+		}
+		return service;
+	}
+
+	/**
+	 * Retrieve the {@link KamMetadataCache metadata cache} that backs the
+	 * {@link KamService kam service}, for example to refresh it.
+	 *
+	 * @return the {@link KamMetadataCache metadata cache}, or {@code null} if
+	 *         the {@code metadata-cache} decorator is not configured
+	 */
+	public KamMetadataCache getMetadataCache() {
+		getKAMService();
+		synchronized (this) {
+			return metadataCache;
+		}
 	}
 
 	/**
 	 * Private constructor for singleton.
 	 */
 	private KamServiceFactory() {
-		this.kamService = new DefaultKamService();
+	}
+
+	/**
+	 * Builds the configured backend and wraps it with the configured
+	 * decorators.
+	 *
+	 * @return the composed {@link KamService kam service}
+	 */
+	private KamService compose() {
+		final Map<String, KamServiceProvider> providers = discover();
+		final Configuration cfg = Configuration.getInstance();
+
+		// the backend, falling back to the built-in one
+		KamServiceProvider backend = providers.get(cfg.getKamServiceBackend());
+		if (backend == null || !backend.isBackend()) {
+			log.warn("Unknown KAM service backend '"
+					+ cfg.getKamServiceBackend() + "', using '"
+					+ DEFAULT_BACKEND + "'");
+			backend = providers.get(DEFAULT_BACKEND);
+		}
+		KamService service = create(backend, null);
+		if (service == null) {
+			backend = providers.get(DEFAULT_BACKEND);
+			service = new DefaultKamService();
+		}
+
+		final List<String> stack = new ArrayList<String>();
+		stack.add(backend.getName());
+		for (final KamServiceProvider decorator : decorators(providers,
+				cfg.getKamServiceDecorators())) {
+			final KamService decorated = create(decorator, service);
+			if (decorated == null) {
+				continue;
+			}
+			service = decorated;
+			stack.add(decorator.getName());
+			if (decorated instanceof KamMetadataCache) {
+				metadataCache = (KamMetadataCache) decorated;
+			}
+		}
+
+		log.info("KAM service composed from " + stack);
+		return service;
+	}
+
+	/**
+	 * Returns the decorators to apply, innermost first.
+	 */
+	private static List<KamServiceProvider> decorators(
+			final Map<String, KamServiceProvider> providers,
+			final List<String> names) {
+		final List<KamServiceProvider> decorators = new ArrayList<KamServiceProvider>();
+		if (names == null) {
+			for (final KamServiceProvider provider : providers.values()) {
+				if (!provider.isBackend()) {
+					decorators.add(provider);
+				}
+			}
+			Collections.sort(decorators, new Comparator<KamServiceProvider>() {
+				@Override
+				public int compare(KamServiceProvider p1, KamServiceProvider p2) {
+					return p1.getOrder() < p2.getOrder() ? -1 : (p1.getOrder()
+							== p2.getOrder() ? 0 : 1);
+				}
+			});
+			return decorators;
+		}
+
+		for (final String name : names) {
+			final KamServiceProvider provider = providers.get(name);
+			if (provider == null || provider.isBackend()) {
+				log.warn("Unknown KAM service decorator '" + name + "'");
+				continue;
+			}
+			decorators.add(provider);
+		}
+		return decorators;
+	}
+
+	/**
+	 * Returns the built-in and discovered providers by name.
+	 */
+	private static Map<String, KamServiceProvider> discover() {
+		final Map<String, KamServiceProvider> providers = new LinkedHashMap<String, KamServiceProvider>();
+		providers.put(DEFAULT_BACKEND, new KamServiceProvider() {
+			@Override
+			public String getName() {
+				return DEFAULT_BACKEND;
+			}
+
+			@Override
+			public boolean isBackend() {
+				return true;
+			}
+
+			@Override
+			public int getOrder() {
+				return 0;
+			}
+
+			@Override
+			public KamService create(KamService delegate) {
+				return new DefaultKamService();
+			}
+		});
+		providers.put(METRICS, new KamServiceProvider() {
+			@Override
+			public String getName() {
+				return METRICS;
+			}
+
+			@Override
+			public boolean isBackend() {
+				return false;
+			}
+
+			@Override
+			public int getOrder() {
+				// innermost, so only calls reaching the backend are measured
+				return 100;
+			}
+
+			@Override
+			public KamService create(KamService delegate) {
+				return new MetricsKamService(delegate);
+			}
+		});
+		providers.put(METADATA_CACHE, new KamServiceProvider() {
+			@Override
+			public String getName() {
+				return METADATA_CACHE;
+			}
+
+			@Override
+			public boolean isBackend() {
+				return false;
+			}
+
+			@Override
+			public int getOrder() {
+				// outermost, so its copies are served without other layers
+				return 1000;
+			}
+
+			@Override
+			public KamService create(KamService delegate) {
+				return new KamMetadataCache(delegate);
+			}
+		});
+
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		if (loader == null) {
+			loader = KamServiceFactory.class.getClassLoader();
+		}
+		final Iterator<KamServiceProvider> it = ServiceLoader.load(
+				KamServiceProvider.class, loader).iterator();
+		while (true) {
+			try {
+				if (!it.hasNext()) {
+					break;
+				}
+			} catch (ServiceConfigurationError e) {
+				// a broken configuration file, stop discovering
+				log.warn("Unable to discover KAM service providers", e);
+				break;
+			}
+
+			final KamServiceProvider provider;
+			try {
+				provider = it.next();
+			} catch (ServiceConfigurationError e) {
+				log.warn("Unable to load KAM service provider", e);
+				continue;
+			}
+
+			if (providers.containsKey(provider.getName())) {
+				log.warn("Duplicate KAM service provider '"
+						+ provider.getName() + "' ignored");
+				continue;
+			}
+			providers.put(provider.getName(), provider);
+		}
+		return providers;
+	}
+
+	/**
+	 * Creates the service of a provider, logging and returning {@code null}
+	 * if it fails.
+	 */
+	private static KamService create(final KamServiceProvider provider,
+			final KamService delegate) {
+		try {
+			final KamService service = provider.create(delegate);
+			if (service == null) {
+				log.warn("KAM service provider '" + provider.getName()
+						+ "' created no service");
+			}
+			return service;
+		} catch (RuntimeException e) {
+			log.warn("KAM service provider '" + provider.getName()
+					+ "' failed", e);
+			return null;
+		}
 	}
 }
@@ -0,0 +1,403 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cytoscape.logger.CyLogger;
+
+/**
+ * {@link KamServiceFuture} is the pending result of a {@link KamService} call
+ * submitted to the {@link KamServiceExecutor}.
+ *
+ * <p>
+ * {@link KamServiceCallback Callbacks} can be registered to be notified on
+ * completion instead of polling {@link #isDone()}.  Cancelling with
+ * {@code mayInterruptIfRunning} interrupts the thread running the call.
+ * </p>
+ *
+ * <p>
+ * A {@link KamServiceFuture} created without a call is completed explicitly
+ * with {@link #complete(Object)} or {@link #fail(Throwable)}, for results
+ * that are produced over several calls.
+ * </p>
+ *
+ * <p>
+ * Futures compose with {@link #transform(KamServiceTransform)},
+ * {@link #then(KamServiceTransform)} and {@link #all(List)}.  Cancelling a
+ * composed future cancels the futures it was built from.
+ * </p>
+ *
+ * @param <T> the result type
+ */
+public class KamServiceFuture<T> extends FutureTask<T> {
+    private static final CyLogger log = CyLogger
+            .getLogger(KamServiceFuture.class);
+    private final List<KamServiceCallback<T>> callbacks = new ArrayList<KamServiceCallback<T>>();
+    private boolean notified = false;
+
+    /**
+     * Creates a {@link KamServiceFuture} that will run the {@link Callable}.
+     *
+     * @param callable
+     *            the {@link Callable call} to run
+     */
+    public KamServiceFuture(final Callable<T> callable) {
+        super(callable);
+    }
+
+    /**
+     * Creates a {@link KamServiceFuture} that is completed explicitly.
+     *
+     * @see #complete(Object)
+     * @see #fail(Throwable)
+     */
+    public KamServiceFuture() {
+        super(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                throw new IllegalStateException(
+                        "future is completed explicitly");
+            }
+        });
+    }
+
+    /**
+     * Returns a {@link KamServiceFuture} that is already completed, for
+     * results that are available without a call.
+     *
+     * @param result
+     *            the result, may be {@code null}
+     * @return the completed {@link KamServiceFuture future}
+     */
+    public static <T> KamServiceFuture<T> completed(final T result) {
+        final KamServiceFuture<T> future = new KamServiceFuture<T>();
+        future.complete(result);
+        return future;
+    }
+
+    /**
+     * Returns a {@link KamServiceFuture} of the results of several futures,
+     * in the order they are given.  It fails with the first failure, and the
+     * futures that have not completed yet are then cancelled.
+     *
+     * @param futures
+     *            the {@link KamServiceFuture futures} to combine, which can
+     *            not be null
+     * @return the combined {@link KamServiceFuture future}
+     */
+    public static <T> KamServiceFuture<List<T>> all(
+            final List<KamServiceFuture<T>> futures) {
+        if (futures == null) {
+            throw new IllegalArgumentException("futures can not be null");
+        }
+
+        final List<KamServiceFuture<T>> sources =
+                new ArrayList<KamServiceFuture<T>>(futures);
+        final KamServiceFuture<List<T>> combined =
+                new DependentFuture<List<T>>(sources);
+        if (sources.isEmpty()) {
+            combined.complete(new ArrayList<T>());
+            return combined;
+        }
+
+        final Object[] results = new Object[sources.size()];
+        final AtomicInteger remaining = new AtomicInteger(sources.size());
+        for (int i = 0; i < sources.size(); i++) {
+            final int index = i;
+            sources.get(i).addCallback(new KamServiceCallback<T>() {
+                @Override
+                public void onSuccess(T result) {
+                    results[index] = result;
+                    if (remaining.decrementAndGet() == 0) {
+                        @SuppressWarnings("unchecked")
+                        final List<T> list = (List<T>) Arrays.asList(results);
+                        combined.complete(new ArrayList<T>(list));
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    if (t instanceof CancellationException) {
+                        combined.cancel(true);
+                        return;
+                    }
+                    combined.fail(t);
+                    for (final KamServiceFuture<T> source : sources) {
+                        source.cancel(true);
+                    }
+                }
+            });
+        }
+        return combined;
+    }
+
+    /**
+     * Returns a {@link KamServiceFuture} of the result of this future
+     * converted by a {@link KamServiceTransform transform}.  The transform
+     * runs on the thread that completes this future.
+     *
+     * @param transform
+     *            the {@link KamServiceTransform transform}, which can not be
+     *            null
+     * @return the transformed {@link KamServiceFuture future}
+     */
+    public <R> KamServiceFuture<R> transform(
+            final KamServiceTransform<? super T, ? extends R> transform) {
+        if (transform == null) {
+            throw new IllegalArgumentException("transform can not be null");
+        }
+
+        final KamServiceFuture<R> transformed = new DependentFuture<R>(
+                Collections.singletonList(this));
+        addCallback(new KamServiceCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                try {
+                    transformed.complete(transform.apply(result));
+                } catch (Exception e) {
+                    transformed.fail(e);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (t instanceof CancellationException) {
+                    transformed.cancel(true);
+                } else {
+                    transformed.fail(t);
+                }
+            }
+        });
+        return transformed;
+    }
+
+    /**
+     * Returns a {@link KamServiceFuture} of the future returned by a
+     * {@link KamServiceTransform step} given the result of this future, to
+     * pipeline dependent calls.  The step runs on the thread that completes
+     * this future, with the {@link CallContext} of the thread calling this
+     * method.
+     *
+     * @param step
+     *            the {@link KamServiceTransform step} starting the next call,
+     *            which can not be null and must not return null
+     * @return the pipelined {@link KamServiceFuture future}
+     */
+    public <R> KamServiceFuture<R> then(
+            final KamServiceTransform<? super T, KamServiceFuture<R>> step) {
+        if (step == null) {
+            throw new IllegalArgumentException("step can not be null");
+        }
+
+        final List<Future<?>> sources = new CopyOnWriteArrayList<Future<?>>();
+        sources.add(this);
+        final KamServiceFuture<R> pipelined = new DependentFuture<R>(sources);
+        final Callable<KamServiceFuture<R>> next = CallContext
+                .propagate(new Callable<KamServiceFuture<R>>() {
+                    @Override
+                    public KamServiceFuture<R> call() throws Exception {
+                        return step.apply(KamServiceFuture.this.get());
+                    }
+                });
+        addCallback(new KamServiceCallback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                final KamServiceFuture<R> following;
+                try {
+                    following = next.call();
+                } catch (Exception e) {
+                    pipelined.fail(e);
+                    return;
+                }
+                if (following == null) {
+                    pipelined.fail(new IllegalStateException(
+                            "step returned no future"));
+                    return;
+                }
+
+                sources.add(following);
+                if (pipelined.isCancelled()) {
+                    // cancelled before the following call was published
+                    following.cancel(true);
+                    return;
+                }
+                following.addCallback(new KamServiceCallback<R>() {
+                    @Override
+                    public void onSuccess(R result) {
+                        pipelined.complete(result);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        if (t instanceof CancellationException) {
+                            pipelined.cancel(true);
+                        } else {
+                            pipelined.fail(t);
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (t instanceof CancellationException) {
+                    pipelined.cancel(true);
+                } else {
+                    pipelined.fail(t);
+                }
+            }
+        });
+        return pipelined;
+    }
+
+    /**
+     * Completes this future with a result, unless it is already done.
+     *
+     * @param result
+     *            the result, may be {@code null}
+     */
+    public void complete(final T result) {
+        set(result);
+    }
+
+    /**
+     * Completes this future with a failure, unless it is already done.
+     *
+     * @param t
+     *            the cause of the failure
+     */
+    public void fail(final Throwable t) {
+        setException(t);
+    }
+
+    /**
+     * Registers a {@link KamServiceCallback callback} to be notified when the
+     * call completes.  If the call has already completed the callback is
+     * notified immediately on the calling thread.
+     *
+     * @param callback
+     *            the {@link KamServiceCallback callback}, which can not be
+     *            null
+     */
+    public void addCallback(final KamServiceCallback<T> callback) {
+        if (callback == null) {
+            throw new IllegalArgumentException("callback can not be null");
+        }
+
+        synchronized (callbacks) {
+            if (!notified) {
+                callbacks.add(callback);
+                return;
+            }
+        }
+        notify(callback);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Notifies the registered {@link KamServiceCallback callbacks}.
+     */
+    @Override
+    protected void done() {
+        final List<KamServiceCallback<T>> toNotify;
+        synchronized (callbacks) {
+            notified = true;
+            toNotify = new ArrayList<KamServiceCallback<T>>(callbacks);
+            callbacks.clear();
+        }
+
+        for (final KamServiceCallback<T> callback : toNotify) {
+            notify(callback);
+        }
+    }
+
+    private void notify(final KamServiceCallback<T> callback) {
+        final T result;
+        try {
+            result = get();
+        } catch (CancellationException e) {
+            failure(callback, e);
+            return;
+        } catch (ExecutionException e) {
+            failure(callback, e.getCause());
+            return;
+        } catch (InterruptedException e) {
+            // can't happen, the future is done
+            Thread.currentThread().interrupt();
+            failure(callback, e);
+            return;
+        }
+
+        try {
+            callback.onSuccess(result);
+        } catch (RuntimeException e) {
+            log.warn("Error in kam service callback", e);
+        }
+    }
+
+    private static void failure(final KamServiceCallback<?> callback,
+            final Throwable t) {
+        try {
+            callback.onFailure(t);
+        } catch (RuntimeException e) {
+            log.warn("Error in kam service callback", e);
+        }
+    }
+
+    /**
+     * A {@link KamServiceFuture} composed from other futures, which are
+     * cancelled with it.
+     */
+    private static class DependentFuture<T> extends KamServiceFuture<T> {
+        private final List<? extends Future<?>> sources;
+
+        private DependentFuture(final List<? extends Future<?>> sources) {
+            this.sources = sources;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * Cancels the futures this future was composed from.
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            final boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                for (final Future<?> source : sources) {
+                    source.cancel(mayInterruptIfRunning);
+                }
+            }
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,479 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamNode;
+
+/**
+ * {@link KamServiceLoader} batches the per-element
+ * {@link KamService#getSupportingTerms(KamNode) supporting terms},
+ * {@link KamService#getSupportingEvidence(KamEdge) supporting evidence} and
+ * {@link KamService#getAdjacentKamEdges adjacent edges} lookups.
+ *
+ * <p>
+ * The web services have no batch operations, so lookups that arrive within
+ * a short window are collected, deduplicated by element id and then
+ * dispatched in arrival order on a pool of
+ * {@link AdaptiveLimiter#getMaxLimit() highest request limit} threads for
+ * the {@link RequestLane lane} of the caller. A lookup for an element
+ * that is already queued or in flight joins it instead of sending another
+ * request, an interactive lookup that joins a queued bulk request moves it
+ * to the interactive lane.
+ * </p>
+ *
+ * <p>
+ * Each caller gets its own {@link KamServiceFuture future}. Cancelling it
+ * cancels the shared request only when every caller of that request has
+ * cancelled. Requests run with the {@link CallContext deadline} of the
+ * caller that queued them.
+ * </p>
+ *
+ * <p>
+ * The loader runs on its own threads, so callers on a
+ * {@link KamServiceExecutor} thread can wait on it without starving the
+ * executor.
+ * </p>
+ *
+ * <p>
+ * This class is a singleton to provide a single loader for all plugins.
+ * </p>
+ */
+public class KamServiceLoader {
+    private static final String THREAD_PREFIX = "kam-loader-";
+    private static final long BATCH_WINDOW_MILLIS = 2;
+    private static final long KEEP_ALIVE_SECONDS = 60;
+    private static KamServiceLoader instance;
+    private final Map<RequestLane, ThreadPoolExecutor> dispatchers = new EnumMap<RequestLane, ThreadPoolExecutor>(
+            RequestLane.class);
+    private final ScheduledExecutorService batcher;
+    private final Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+    // queued and in flight loads, guarded by this
+    private final Map<LoadKey, Load<?>> loads = new HashMap<LoadKey, Load<?>>();
+    // loads collected in the current window, guarded by this
+    private List<Load<?>> batch = new ArrayList<Load<?>>();
+
+    /**
+     * Retrieve the singleton instance of {@link KamServiceLoader}.
+     *
+     * @return the singleton instance
+     */
+    public static synchronized KamServiceLoader getInstance() {
+        if (instance == null) {
+            instance = new KamServiceLoader();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Private constructor for singleton.
+     */
+    private KamServiceLoader() {
+        final int threads = AdaptiveLimiter.getInstance().getMaxLimit();
+        for (final RequestLane lane : RequestLane.values()) {
+            final ThreadPoolExecutor dispatcher = new ThreadPoolExecutor(
+                    threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(),
+                    new LoaderThreadFactory(THREAD_PREFIX
+                            + lane.name().toLowerCase() + "-"));
+            dispatcher.allowCoreThreadTimeOut(true);
+            dispatchers.put(lane, dispatcher);
+        }
+        batcher = Executors.newSingleThreadScheduledExecutor(
+                new LoaderThreadFactory(THREAD_PREFIX + "batch-"));
+    }
+
+    /**
+     * Loads the supporting {@link BelTerm terms} of a {@link KamNode kam
+     * node}.
+     *
+     * @param node
+     *            the {@link KamNode kam node}, which can not be null
+     * @return the {@link KamServiceFuture future} {@link List} of
+     *         {@link BelTerm terms}
+     * @see KamService#getSupportingTerms(KamNode)
+     */
+    public KamServiceFuture<List<BelTerm>> loadSupportingTerms(
+            final KamNode node) {
+        if (node == null) {
+            throw new IllegalArgumentException("node can not be null");
+        }
+
+        return load(new LoadKey(KamOperation.GET_SUPPORTING_TERMS, null,
+                node.getId(), null), new Callable<List<BelTerm>>() {
+            @Override
+            public List<BelTerm> call() throws Exception {
+                return kamService().getSupportingTerms(node);
+            }
+        });
+    }
+
+    /**
+     * Loads the supporting {@link BelStatement statements} of a
+     * {@link KamEdge kam edge}.
+     *
+     * @param edge
+     *            the {@link KamEdge kam edge}, which can not be null
+     * @return the {@link KamServiceFuture future} {@link List} of
+     *         {@link BelStatement statements}
+     * @see KamService#getSupportingEvidence(KamEdge)
+     */
+    public KamServiceFuture<List<BelStatement>> loadSupportingEvidence(
+            final KamEdge edge) {
+        if (edge == null) {
+            throw new IllegalArgumentException("edge can not be null");
+        }
+
+        return load(new LoadKey(KamOperation.GET_SUPPORTING_EVIDENCE, null,
+                edge.getId(), null), new Callable<List<BelStatement>>() {
+            @Override
+            public List<BelStatement> call() throws Exception {
+                return kamService().getSupportingEvidence(edge);
+            }
+        });
+    }
+
+    /**
+     * Loads the unfiltered adjacent {@link KamEdge kam edges} of a
+     * {@link KamNode kam node}.
+     *
+     * @param dialectHandle
+     *            the {@link DialectHandle dialect handle}, may be null
+     * @param node
+     *            the {@link KamNode kam node}, which can not be null
+     * @param direction
+     *            the {@link EdgeDirectionType direction} of the edges, which
+     *            can not be null
+     * @return the {@link KamServiceFuture future} {@link List} of
+     *         {@link KamEdge kam edges}
+     * @see KamService#getAdjacentKamEdges(DialectHandle, KamNode,
+     *      EdgeDirectionType, org.openbel.framework.ws.model.EdgeFilter)
+     */
+    public KamServiceFuture<List<KamEdge>> loadAdjacentKamEdges(
+            final DialectHandle dialectHandle, final KamNode node,
+            final EdgeDirectionType direction) {
+        if (node == null || direction == null) {
+            throw new IllegalArgumentException("Null parameter");
+        }
+
+        final String dialect = dialectHandle != null ? dialectHandle
+                .getHandle() : null;
+        return load(new LoadKey(KamOperation.GET_ADJACENT_KAM_EDGES, dialect,
+                node.getId(), direction),
+                new Callable<List<KamEdge>>() {
+                    @Override
+                    public List<KamEdge> call() throws Exception {
+                        return kamService().getAdjacentKamEdges(
+                                dialectHandle, node, direction, null);
+                    }
+                });
+    }
+
+    /**
+     * Resizes the pools to the current
+     * {@link AdaptiveLimiter#getMaxLimit() highest request limit}.
+     */
+    public synchronized void reconfigure() {
+        final int threads = AdaptiveLimiter.getInstance().getMaxLimit();
+        for (final ThreadPoolExecutor dispatcher : dispatchers.values()) {
+            // keep core <= max while resizing
+            if (threads > dispatcher.getMaximumPoolSize()) {
+                dispatcher.setMaximumPoolSize(threads);
+                dispatcher.setCorePoolSize(threads);
+            } else {
+                dispatcher.setCorePoolSize(threads);
+                dispatcher.setMaximumPoolSize(threads);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of distinct lookups queued or in flight.
+     *
+     * @return the number of pending lookups
+     */
+    public synchronized int getPendingCount() {
+        return loads.size();
+    }
+
+    private static KamService kamService() {
+        return KamServiceFactory.getInstance().getKAMService();
+    }
+
+    private synchronized <T> KamServiceFuture<T> load(final LoadKey key,
+            final Callable<T> callable) {
+        final RequestLane lane = CallContext.getLane();
+        @SuppressWarnings("unchecked")
+        Load<T> load = (Load<T>) loads.get(key);
+        if (load == null) {
+            load = new Load<T>(key, lane, callable);
+            loads.put(key, load);
+            batch.add(load);
+            if (batch.size() == 1) {
+                batcher.schedule(flush, BATCH_WINDOW_MILLIS,
+                        TimeUnit.MILLISECONDS);
+            }
+        } else if (lane == RequestLane.INTERACTIVE
+                && load.lane == RequestLane.BULK) {
+            load.lane = RequestLane.INTERACTIVE;
+            if (load.dispatched) {
+                // runs on whichever lane reaches it first
+                dispatchers.get(RequestLane.INTERACTIVE).execute(load.task);
+            }
+        }
+        return load.join();
+    }
+
+    private void flush() {
+        final List<Load<?>> window;
+        synchronized (this) {
+            window = batch;
+            batch = new ArrayList<Load<?>>();
+            for (final Load<?> load : window) {
+                load.dispatched = true;
+            }
+        }
+
+        for (final Load<?> load : window) {
+            // a load whose callers all cancelled is already done
+            if (!load.task.isDone()) {
+                dispatchers.get(load.lane).execute(load.task);
+            }
+        }
+    }
+
+    /**
+     * A single request shared by every caller that asks for the same
+     * element.
+     */
+    private final class Load<T> {
+        private final LoadKey key;
+        private final KamServiceFuture<T> task;
+        // raised to interactive when an interactive caller joins
+        private volatile RequestLane lane;
+        // guarded by KamServiceLoader.this
+        private boolean dispatched = false;
+        private int callers = 0;
+
+        private Load(final LoadKey key, final RequestLane lane,
+                final Callable<T> callable) {
+            this.key = key;
+            this.lane = lane;
+            // the request runs with the deadline of the first caller and
+            // the lane it is dispatched in
+            this.task = new KamServiceFuture<T>(
+                    CallContext.propagate(new Callable<T>() {
+                        @Override
+                        public T call() throws Exception {
+                            final RequestLane previous = CallContext
+                                    .setLane(Load.this.lane);
+                            try {
+                                return callable.call();
+                            } finally {
+                                CallContext.restoreLane(previous);
+                            }
+                        }
+                    }));
+            task.addCallback(new KamServiceCallback<T>() {
+                @Override
+                public void onSuccess(T result) {
+                    remove();
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    remove();
+                }
+            });
+        }
+
+        /**
+         * Adds a caller, called with the loader lock held.
+         */
+        private KamServiceFuture<T> join() {
+            callers++;
+            final Caller<T> caller = new Caller<T>(this);
+            task.addCallback(new KamServiceCallback<T>() {
+                @Override
+                public void onSuccess(T result) {
+                    caller.complete(result);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    if (t instanceof CancellationException) {
+                        caller.cancel(false);
+                    } else {
+                        caller.fail(t);
+                    }
+                }
+            });
+            return caller;
+        }
+
+        private void release() {
+            synchronized (KamServiceLoader.this) {
+                if (--callers > 0) {
+                    return;
+                }
+                remove();
+            }
+            task.cancel(true);
+        }
+
+        private void remove() {
+            synchronized (KamServiceLoader.this) {
+                if (loads.get(key) == this) {
+                    loads.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * The {@link KamServiceFuture future} of one caller of a {@link Load}.
+     */
+    private static final class Caller<T> extends KamServiceFuture<T> {
+        private final Load<T> load;
+
+        private Caller(final Load<T> load) {
+            this.load = load;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * Cancels the shared request if no other caller is waiting for it.
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            final boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                load.release();
+            }
+            return cancelled;
+        }
+    }
+
+    /**
+     * Identifies the element of a lookup.
+     */
+    private static final class LoadKey {
+        private final KamOperation operation;
+        private final String dialect;
+        private final String id;
+        private final EdgeDirectionType direction;
+        private final int hash;
+
+        private LoadKey(final KamOperation operation, final String dialect,
+                final String id, final EdgeDirectionType direction) {
+            this.operation = operation;
+            this.dialect = dialect;
+            this.id = id;
+            this.direction = direction;
+
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + operation.hashCode();
+            result = prime * result
+                    + ((dialect == null) ? 0 : dialect.hashCode());
+            result = prime * result + ((id == null) ? 0 : id.hashCode());
+            result = prime * result
+                    + ((direction == null) ? 0 : direction.hashCode());
+            this.hash = result;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof LoadKey)) {
+                return false;
+            }
+
+            final LoadKey other = (LoadKey) obj;
+            return operation == other.operation
+                    && direction == other.direction
+                    && (dialect == null ? other.dialect == null : dialect
+                            .equals(other.dialect))
+                    && (id == null ? other.id == null : id.equals(other.id));
+        }
+    }
+
+    /**
+     * Creates named daemon threads so pending lookups never keep cytoscape
+     * from exiting.
+     */
+    private static class LoaderThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        private LoaderThreadFactory(final String prefix) {
+            this.prefix = prefix;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r, prefix + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,445 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import cytoscape.logger.CyLogger;
+
+/**
+ * {@link KamServiceMetrics} records the calls of every
+ * {@link KamOperation operation}: the call and error counts, a latency
+ * histogram and the request and response sizes.
+ *
+ * <p>
+ * Metrics are kept per operation and KAM tag, the tag is taken from the
+ * {@link CallContext} of the call. They are read with
+ * {@link #getSnapshot()}, exported over JMX under {@link #DOMAIN} and
+ * written to a file with {@link #dump(File)}.
+ * </p>
+ *
+ * <p>
+ * Calls are recorded by the {@link MetricsKamService} decorator.
+ * </p>
+ *
+ * <p>
+ * This class is a singleton to collect the metrics of all plugins.
+ * </p>
+ */
+public final class KamServiceMetrics implements KamServiceMetricsMBean {
+    private static final CyLogger log = CyLogger
+            .getLogger(KamServiceMetrics.class);
+    /**
+     * The JMX domain of the metrics.
+     */
+    public static final String DOMAIN = "org.openbel.cytoscape.webservice";
+    /**
+     * The KAM tag of calls made without one.
+     */
+    public static final String UNTAGGED = "none";
+    private static final String TYPE = "KamServiceMetrics";
+    private static final String HEADER = "operation\tkam\tcount\terrors"
+            + "\tp50_ms\tp95_ms\tp99_ms\tmax_ms\trequest_size\tresponse_size";
+    private static KamServiceMetrics instance;
+    private final ConcurrentMap<MetricKey, OperationMetrics> metrics = new ConcurrentHashMap<MetricKey, OperationMetrics>();
+
+    /**
+     * Retrieve the singleton instance of {@link KamServiceMetrics}, which is
+     * registered with the platform MBean server on first use.
+     *
+     * @return the singleton instance
+     */
+    public static synchronized KamServiceMetrics getInstance() {
+        if (instance == null) {
+            instance = new KamServiceMetrics();
+            instance.register(instance, KamServiceMetricsMBean.class,
+                    objectName(null));
+        }
+
+        return instance;
+    }
+
+    /**
+     * Private constructor for singleton.
+     */
+    private KamServiceMetrics() {
+    }
+
+    /**
+     * Records a call.
+     *
+     * @param operation
+     *            the {@link KamOperation operation}
+     * @param kamTag
+     *            the KAM tag, or {@code null} for {@link #UNTAGGED}
+     * @param latency
+     *            the latency of the call in milliseconds
+     * @param failed
+     *            {@code true} if the call failed
+     * @param requestSize
+     *            the number of elements sent
+     * @param responseSize
+     *            the number of elements received
+     */
+    void record(final KamOperation operation, final String kamTag,
+            final long latency, final boolean failed, final int requestSize,
+            final int responseSize) {
+        final MetricKey key = new MetricKey(operation,
+                kamTag != null ? kamTag : UNTAGGED);
+        OperationMetrics m = metrics.get(key);
+        if (m == null) {
+            // shares the lock with reset, so a metric is never registered
+            // while its name is still held by the one being removed
+            synchronized (metrics) {
+                m = metrics.get(key);
+                if (m == null) {
+                    m = new OperationMetrics(key);
+                    register(m, OperationMetricsMBean.class, objectName(key));
+                    metrics.put(key, m);
+                }
+            }
+        }
+        m.record(latency, failed, requestSize, responseSize);
+    }
+
+    /**
+     * Returns the metrics of every {@link KamOperation operation} and KAM tag
+     * recorded so far, ordered by operation and tag.
+     *
+     * @return the {@link OperationStatistics statistics}
+     */
+    public List<OperationStatistics> getSnapshot() {
+        final List<OperationStatistics> stats = new ArrayList<OperationStatistics>();
+        for (final OperationMetrics m : metrics.values()) {
+            stats.add(m.snapshot());
+        }
+        Collections.sort(stats, new Comparator<OperationStatistics>() {
+            @Override
+            public int compare(OperationStatistics s1, OperationStatistics s2) {
+                final int c = s1.getOperation().compareTo(s2.getOperation());
+                return c != 0 ? c : s1.getKamTag().compareTo(s2.getKamTag());
+            }
+        });
+        return stats;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCallCount() {
+        long count = 0;
+        for (final OperationStatistics s : getSnapshot()) {
+            count += s.getCount();
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getErrorCount() {
+        long count = 0;
+        for (final OperationStatistics s : getSnapshot()) {
+            count += s.getErrorCount();
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getConcurrencyLimit() {
+        return AdaptiveLimiter.getInstance().getLimit();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getInFlight() {
+        return AdaptiveLimiter.getInstance().getInFlight();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getQueueDepth() {
+        return AdaptiveLimiter.getInstance().getQueueDepth();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String[] getStatistics() {
+        final List<OperationStatistics> stats = getSnapshot();
+        final String[] lines = new String[stats.size()];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = format(stats.get(i));
+        }
+        return lines;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void dump(final String path) throws IOException {
+        dump(new File(path));
+    }
+
+    /**
+     * Writes the metrics to a file as tab-separated lines, one per
+     * {@link KamOperation operation} and KAM tag, after comment lines with
+     * the time and the current concurrency.
+     *
+     * @param file
+     *            the {@link File file} to write, replaced if it exists
+     * @throws IOException
+     *             Thrown if the file could not be written
+     */
+    public void dump(final File file) throws IOException {
+        final PrintWriter out = new PrintWriter(new FileWriter(file));
+        try {
+            out.println("# KAM service metrics " + new Date());
+            out.println("# concurrency limit " + getConcurrencyLimit()
+                    + ", in flight " + getInFlight() + ", queued "
+                    + getQueueDepth());
+            out.println(HEADER);
+            for (final OperationStatistics s : getSnapshot()) {
+                out.println(format(s));
+            }
+        } finally {
+            out.close();
+        }
+        if (out.checkError()) {
+            throw new IOException("Error writing metrics to " + file);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        synchronized (metrics) {
+            for (final MetricKey key : metrics.keySet()) {
+                unregister(objectName(key));
+                metrics.remove(key);
+            }
+        }
+    }
+
+    private static String format(final OperationStatistics s) {
+        return s.getOperation() + "\t" + s.getKamTag() + "\t" + s.getCount()
+                + "\t" + s.getErrorCount() + "\t" + s.getP50() + "\t"
+                + s.getP95() + "\t" + s.getP99() + "\t" + s.getMax() + "\t"
+                + s.getRequestSize() + "\t" + s.getResponseSize();
+    }
+
+    private static String objectName(final MetricKey key) {
+        if (key == null) {
+            return DOMAIN + ":type=" + TYPE;
+        }
+        return DOMAIN + ":type=" + TYPE + ",operation=" + key.operation
+                + ",kam=" + ObjectName.quote(key.kamTag);
+    }
+
+    private <T> void register(final T bean, final Class<T> type,
+            final String name) {
+        try {
+            final MBeanServer server = ManagementFactory
+                    .getPlatformMBeanServer();
+            server.registerMBean(new StandardMBean(bean, type),
+                    new ObjectName(name));
+        } catch (JMException e) {
+            log.warn("Unable to register metrics " + name, e);
+        } catch (SecurityException e) {
+            log.warn("Unable to register metrics " + name, e);
+        }
+    }
+
+    private void unregister(final String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+                    new ObjectName(name));
+        } catch (JMException e) {
+            log.debug("Unable to unregister metrics " + name, e);
+        } catch (SecurityException e) {
+            log.debug("Unable to unregister metrics " + name, e);
+        }
+    }
+
+    /**
+     * The metrics of one operation and KAM tag.
+     */
+    private static final class OperationMetrics implements
+            OperationMetricsMBean {
+        private final MetricKey key;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private long count = 0;
+        private long errors = 0;
+        private long requestSize = 0;
+        private long responseSize = 0;
+
+        private OperationMetrics(final MetricKey key) {
+            this.key = key;
+        }
+
+        private synchronized void record(final long latency,
+                final boolean failed, final int request, final int response) {
+            count++;
+            if (failed) {
+                errors++;
+            }
+            latencies.record(latency);
+            requestSize += request;
+            responseSize += response;
+        }
+
+        private synchronized OperationStatistics snapshot() {
+            return new OperationStatistics(key.operation, key.kamTag, count,
+                    errors, latencies.percentile(50),
+                    latencies.percentile(95), latencies.percentile(99),
+                    latencies.getMax(), requestSize, responseSize);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized long getCount() {
+            return count;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized long getErrorCount() {
+            return errors;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized long getP50() {
+            return latencies.percentile(50);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized long getP95() {
+            return latencies.percentile(95);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized long getP99() {
+            return latencies.percentile(99);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized long getMax() {
+            return latencies.getMax();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized long getRequestSize() {
+            return requestSize;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public synchronized long getResponseSize() {
+            return responseSize;
+        }
+    }
+
+    /**
+     * Identifies the metrics of an operation and KAM tag.
+     */
+    private static final class MetricKey {
+        private final KamOperation operation;
+        private final String kamTag;
+
+        private MetricKey(final KamOperation operation, final String kamTag) {
+            this.operation = operation;
+            this.kamTag = kamTag;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return 31 * operation.hashCode() + kamTag.hashCode();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof MetricKey)) {
+                return false;
+            }
+            final MetricKey other = (MetricKey) obj;
+            return operation == other.operation
+                    && kamTag.equals(other.kamTag);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.io.IOException;
+
+/**
+ * The JMX interface of the {@link KamServiceMetrics kam service metrics}.
+ */
+public interface KamServiceMetricsMBean {
+
+    /**
+     * Returns the number of calls of all operations.
+     */
+    long getCallCount();
+
+    /**
+     * Returns the number of failed calls of all operations.
+     */
+    long getErrorCount();
+
+    /**
+     * Returns the current {@link AdaptiveLimiter#getLimit() concurrency
+     * limit}.
+     */
+    int getConcurrencyLimit();
+
+    /**
+     * Returns the number of requests in flight.
+     */
+    int getInFlight();
+
+    /**
+     * Returns the number of requests waiting for a slot.
+     */
+    int getQueueDepth();
+
+    /**
+     * Returns one line per {@link KamOperation operation} and KAM tag, in the
+     * format of {@link KamServiceMetrics#dump(java.io.File)}.
+     */
+    String[] getStatistics();
+
+    /**
+     * Writes the metrics to a file.
+     *
+     * @param path
+     *            the path of the file
+     */
+    void dump(String path) throws IOException;
+
+    /**
+     * Clears the recorded metrics.
+     */
+    void reset();
+}
@@ -0,0 +1,82 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.ServiceLoader;
+
+/**
+ * {@link KamServiceProvider} is the service provider interface through which
+ * {@link KamServiceFactory} composes the {@link KamService kam service}.
+ *
+ * <p>
+ * A provider is either a backend, which implements the
+ * {@link KamService kam service} itself, or a decorator, which wraps another
+ * {@link KamService kam service} to add behaviour such as caching or
+ * metrics. The factory builds one backend and wraps it with the decorators
+ * in order, the first decorator being closest to the backend.
+ * </p>
+ *
+ * <p>
+ * Providers are discovered with {@link ServiceLoader}: list the
+ * implementation class in
+ * {@code META-INF/services/org.openbel.cytoscape.webservice.KamServiceProvider}
+ * of the providing jar. Implementations need a public no-arg constructor.
+ * The backend and the decorator order are chosen with
+ * {@link Configuration#getKamServiceBackend()} and
+ * {@link Configuration#getKamServiceDecorators()}.
+ * </p>
+ */
+public interface KamServiceProvider {
+
+    /**
+     * Returns the unique name of this provider, used to select and order it
+     * in the configuration.
+     *
+     * @return the provider name
+     */
+    String getName();
+
+    /**
+     * Returns {@code true} if this provider is a backend, {@code false} if
+     * it is a decorator.
+     *
+     * @return {@code true} for a backend, {@code false} for a decorator
+     */
+    boolean isBackend();
+
+    /**
+     * Returns the position of a decorator when no order is configured,
+     * decorators with a lower order are closer to the backend. Ignored for
+     * backends.
+     *
+     * @return the default order
+     */
+    int getOrder();
+
+    /**
+     * Creates the {@link KamService kam service} of this provider.
+     *
+     * @param delegate
+     *            the {@link KamService kam service} to wrap, {@code null} for
+     *            a backend
+     * @return the {@link KamService kam service}, not {@code null}
+     */
+    KamService create(KamService delegate);
+}
@@ -0,0 +1,42 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+/**
+ * {@link KamServiceTransform} converts the result of a
+ * {@link KamServiceFuture}.
+ *
+ * @param <F> the result type of the source future
+ * @param <T> the converted type
+ * @see KamServiceFuture#transform(KamServiceTransform)
+ */
+public interface KamServiceTransform<F, T> {
+
+    /**
+     * Converts a result.
+     *
+     * @param result
+     *            the result of the source future, may be {@code null}
+     * @return the converted result, may be {@code null}
+     * @throws Exception
+     *             Thrown to fail the transformed future
+     */
+    T apply(F result) throws Exception;
+}
@@ -0,0 +1,230 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.EnumMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Package-protected {@link LaneScheduler} admits remote calls by
+ * {@link RequestLane lane}.
+ *
+ * <p>
+ * At most the {@link AdaptiveLimiter#getLimit() current limit} of calls run
+ * at once.
+ * {@link RequestLane#BULK Bulk} calls may only use part of them, the rest
+ * are kept for {@link RequestLane#INTERACTIVE interactive} calls. Waiting
+ * interactive calls are admitted first and each lane is served in arrival
+ * order, except that a bulk call waiting longer than
+ * {@link #STARVATION_MILLIS} is admitted ahead of interactive calls, so bulk
+ * work keeps moving under a steady interactive load.
+ * </p>
+ *
+ * <p>
+ * This class is a singleton as the limit is shared by all plugins.
+ * </p>
+ */
+final class LaneScheduler {
+    /**
+     * The wait after which a bulk call is admitted ahead of interactive
+     * calls.
+     */
+    static final long STARVATION_MILLIS = 1000;
+    private static LaneScheduler instance;
+    private final Map<RequestLane, LinkedList<Waiter>> waiting = new EnumMap<RequestLane, LinkedList<Waiter>>(
+            RequestLane.class);
+    private final Map<RequestLane, Integer> running = new EnumMap<RequestLane, Integer>(
+            RequestLane.class);
+    private int total = 0;
+
+    /**
+     * Retrieve the singleton instance of {@link LaneScheduler}.
+     *
+     * @return the singleton instance
+     */
+    static synchronized LaneScheduler getInstance() {
+        if (instance == null) {
+            instance = new LaneScheduler();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Private constructor for singleton.
+     */
+    private LaneScheduler() {
+        for (final RequestLane lane : RequestLane.values()) {
+            waiting.put(lane, new LinkedList<Waiter>());
+            running.put(lane, 0);
+        }
+    }
+
+    /**
+     * Waits for a call in the lane to be admitted. An admitted call must be
+     * {@link #release(RequestLane) released} when done.
+     *
+     * @param lane
+     *            the {@link RequestLane lane} of the call
+     * @param waitMillis
+     *            the maximum time to wait in milliseconds
+     * @return {@code true} if admitted, {@code false} if the wait timed out
+     * @throws InterruptedException
+     *             Thrown if interrupted while waiting
+     */
+    synchronized boolean acquire(final RequestLane lane, final long waitMillis)
+            throws InterruptedException {
+        final Waiter waiter = new Waiter(System.currentTimeMillis());
+        final long deadline = waiter.arrival + waitMillis;
+        final LinkedList<Waiter> queue = waiting.get(lane);
+        queue.add(waiter);
+        try {
+            while (!admissible(lane, waiter)) {
+                final long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                // wake up to notice bulk calls that have started to starve
+                wait(Math.min(remaining, STARVATION_MILLIS));
+            }
+            running.put(lane, running.get(lane) + 1);
+            total++;
+            return true;
+        } finally {
+            queue.remove(waiter);
+            // the head of the queue changed
+            notifyAll();
+        }
+    }
+
+    /**
+     * Releases an admitted call.
+     *
+     * @param lane
+     *            the {@link RequestLane lane} of the call
+     */
+    synchronized void release(final RequestLane lane) {
+        running.put(lane, running.get(lane) - 1);
+        total--;
+        notifyAll();
+    }
+
+    /**
+     * Wakes up waiting calls after the {@link AdaptiveLimiter limit} was
+     * raised.
+     */
+    synchronized void limitChanged() {
+        notifyAll();
+    }
+
+    /**
+     * Returns the number of admitted calls.
+     *
+     * @return the number of running calls
+     */
+    synchronized int getRunning() {
+        return total;
+    }
+
+    /**
+     * Returns the number of waiting calls.
+     *
+     * @return the number of waiting calls
+     */
+    synchronized int getWaiting() {
+        int count = 0;
+        for (final LinkedList<Waiter> queue : waiting.values()) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of admitted calls in a lane.
+     *
+     * @param lane
+     *            the {@link RequestLane lane}
+     * @return the number of running calls
+     */
+    synchronized int getRunning(final RequestLane lane) {
+        return running.get(lane);
+    }
+
+    /**
+     * Returns the number of calls waiting in a lane.
+     *
+     * @param lane
+     *            the {@link RequestLane lane}
+     * @return the number of waiting calls
+     */
+    synchronized int getWaiting(final RequestLane lane) {
+        return waiting.get(lane).size();
+    }
+
+    /**
+     * Returns the most calls a lane may run at once, the whole
+     * {@link AdaptiveLimiter#getLimit() limit} for interactive calls and all
+     * but a quarter of it, at least one, for bulk calls.
+     *
+     * @param lane
+     *            the {@link RequestLane lane}
+     * @return the lane limit
+     */
+    static int limit(final RequestLane lane) {
+        final int limit = AdaptiveLimiter.getInstance().getLimit();
+        if (lane == RequestLane.INTERACTIVE || limit <= 1) {
+            return limit;
+        }
+        return limit - Math.max(1, limit / 4);
+    }
+
+    private boolean admissible(final RequestLane lane, final Waiter waiter) {
+        if (total >= limit(RequestLane.INTERACTIVE)
+                || running.get(lane) >= limit(lane)
+                || waiting.get(lane).getFirst() != waiter) {
+            return false;
+        }
+
+        if (lane == RequestLane.INTERACTIVE) {
+            return !bulkStarving();
+        }
+        return waiting.get(RequestLane.INTERACTIVE).isEmpty()
+                || bulkStarving();
+    }
+
+    private boolean bulkStarving() {
+        final LinkedList<Waiter> bulk = waiting.get(RequestLane.BULK);
+        return !bulk.isEmpty()
+                && running.get(RequestLane.BULK) < limit(RequestLane.BULK)
+                && System.currentTimeMillis() - bulk.getFirst().arrival >= STARVATION_MILLIS;
+    }
+
+    /**
+     * A waiting call, compared by identity.
+     */
+    private static final class Waiter {
+        private final long arrival;
+
+        private Waiter(final long arrival) {
+            this.arrival = arrival;
+        }
+    }
+}
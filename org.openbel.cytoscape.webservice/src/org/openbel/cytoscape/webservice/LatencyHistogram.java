@@ -0,0 +1,113 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+/**
+ * Package-protected {@link LatencyHistogram} counts latencies in buckets
+ * that grow by {@link #GROWTH} from one millisecond, so percentiles over
+ * every recorded call are kept in constant memory. A percentile is reported
+ * as the upper bound of its bucket, at most the largest latency seen.
+ *
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ */
+final class LatencyHistogram {
+    static final double GROWTH = 1.2;
+    private static final long[] BOUNDS = bounds();
+    private final long[] counts = new long[BOUNDS.length];
+    private long count = 0;
+    private long max = 0;
+
+    /**
+     * Records a latency.
+     *
+     * @param millis
+     *            the latency in milliseconds
+     */
+    void record(final long millis) {
+        final long value = Math.max(0, millis);
+        int low = 0;
+        int high = BOUNDS.length - 1;
+        // first bucket whose upper bound holds the value
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (BOUNDS[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        counts[low]++;
+        count++;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Returns a latency percentile.
+     *
+     * @param percentile
+     *            the percentile, between 0 and 100
+     * @return the latency in milliseconds, or 0 if nothing was recorded
+     */
+    long percentile(final double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100
+                * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(BOUNDS[i], max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the largest latency recorded.
+     *
+     * @return the latency in milliseconds
+     */
+    long getMax() {
+        return max;
+    }
+
+    private static long[] bounds() {
+        // one hour covers any timeout
+        final long limit = 3600000;
+        int size = 1;
+        for (long bound = 1; bound < limit; size++) {
+            bound = Math.max(bound + 1, (long) Math.ceil(bound * GROWTH));
+        }
+
+        final long[] bounds = new long[size + 1];
+        long bound = 1;
+        for (int i = 0; i < size; i++) {
+            bounds[i] = bound;
+            bound = Math.max(bound + 1, (long) Math.ceil(bound * GROWTH));
+        }
+        // anything slower
+        bounds[size] = Long.MAX_VALUE;
+        return bounds;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * {@link LatencyTracker} keeps the most recent latencies of each
+ * {@link KamOperation operation} and derives timeouts from them for the
+ * {@link Configuration#isAdaptiveTimeouts() adaptive timeout} mode.
+ *
+ * <p>
+ * The adaptive timeout of an operation is {@link #HEADROOM} times its
+ * observed p99 latency, never less than {@link #MIN_TIMEOUT_MILLIS} and never
+ * more than the configured timeout. Until {@link #MIN_SAMPLES} calls have
+ * been observed the configured timeout is used. A call that timed out is
+ * recorded at the time it waited, so the timeout grows again when calls get
+ * slower. {@link KamOperation#isHeavy() Heavy} operations vary too much with
+ * the size of the request and always use the configured timeout.
+ * </p>
+ */
+class LatencyTracker {
+    static final int WINDOW = 256;
+    static final int MIN_SAMPLES = 20;
+    static final int HEADROOM = 3;
+    static final long MIN_TIMEOUT_MILLIS = 5000;
+
+    private final Map<KamOperation, Window> windows =
+            new EnumMap<KamOperation, Window>(KamOperation.class);
+
+    LatencyTracker() {
+        for (final KamOperation operation : KamOperation.values()) {
+            windows.put(operation, new Window());
+        }
+    }
+
+    /**
+     * Records the latency of a call that was answered, or the time waited
+     * for a call that timed out.
+     *
+     * @param operation
+     *            the {@link KamOperation operation}
+     * @param millis
+     *            the latency in milliseconds
+     */
+    void record(final KamOperation operation, final long millis) {
+        windows.get(operation).add(millis);
+    }
+
+    /**
+     * Returns a latency percentile of an operation.
+     *
+     * @param operation
+     *            the {@link KamOperation operation}
+     * @param percentile
+     *            the percentile, between 0 and 100
+     * @return the latency in milliseconds, or -1 if fewer than
+     *         {@link #MIN_SAMPLES} calls have been observed
+     */
+    long percentile(final KamOperation operation, final double percentile) {
+        return windows.get(operation).percentile(percentile);
+    }
+
+    /**
+     * Returns the timeout to use for an operation.
+     *
+     * @param operation
+     *            the {@link KamOperation operation}
+     * @param configuredMillis
+     *            the configured timeout in milliseconds
+     * @return the adaptive timeout in milliseconds
+     */
+    long adaptiveTimeout(final KamOperation operation,
+            final long configuredMillis) {
+        if (operation.isHeavy()) {
+            return configuredMillis;
+        }
+        final long p99 = percentile(operation, 99);
+        if (p99 < 0) {
+            return configuredMillis;
+        }
+        final long timeout = Math.max(p99 * HEADROOM, MIN_TIMEOUT_MILLIS);
+        return Math.min(timeout, configuredMillis);
+    }
+
+    /**
+     * A ring buffer of the latest latencies of one operation.
+     */
+    private static class Window {
+        private final long[] samples = new long[WINDOW];
+        private int count = 0;
+        private int next = 0;
+
+        synchronized void add(final long millis) {
+            samples[next] = millis;
+            next = (next + 1) % WINDOW;
+            if (count < WINDOW) {
+                count++;
+            }
+        }
+
+        synchronized long percentile(final double percentile) {
+            if (count < MIN_SAMPLES) {
+                return -1;
+            }
+            final long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            final int index = (int) Math.ceil(percentile / 100 * count) - 1;
+            return sorted[Math.max(0, Math.min(index, count - 1))];
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link LruCache} is a thread-safe least recently used cache bounded by both
+ * the number of entries and their total weight, with an optional time to
+ * live.
+ *
+ * <p>
+ * When either bound is exceeded the least recently used entries are evicted.
+ * A value that is heavier than the weight bound on its own is not cached.
+ * Hit, miss and eviction counts are kept for monitoring, expired entries
+ * count as evictions.
+ * </p>
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class LruCache<K, V> {
+    private final int maxEntries;
+    private final long maxWeight;
+    private final long ttlMillis;
+    private final Weigher<V> weigher;
+    // access ordered, eldest entry is the least recently used
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<K, Entry<V>>(
+            16, 0.75f, true);
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates a {@link LruCache}.
+     *
+     * @param maxEntries
+     *            the maximum number of entries, must be greater than zero
+     * @param maxWeight
+     *            the maximum total weight of all entries, must be greater
+     *            than zero
+     * @param ttlMillis
+     *            the time to live of an entry in milliseconds, {@code 0} if
+     *            entries do not expire
+     * @param weigher
+     *            the {@link Weigher} for values, or {@code null} to weigh
+     *            every value as {@code 1}
+     */
+    public LruCache(final int maxEntries, final long maxWeight,
+            final long ttlMillis, final Weigher<V> weigher) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be > 0");
+        }
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight must be > 0");
+        }
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("ttlMillis must be >= 0");
+        }
+
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.ttlMillis = ttlMillis;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Returns the cached value for a key.
+     *
+     * @param key
+     *            the key
+     * @return the cached value, or {@code null} if the key is not cached or
+     *         has expired
+     */
+    public synchronized V get(final K key) {
+        final Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+
+        if (isExpired(entry)) {
+            remove(key);
+            evictions++;
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Caches a value for a key, replacing any existing value, and evicts the
+     * least recently used entries if a bound is exceeded.
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value, which can not be {@code null}
+     */
+    public synchronized void put(final K key, final V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value can not be null");
+        }
+
+        remove(key);
+
+        final int w = weigher == null ? 1 : weigher.weigh(value);
+        if (w > maxWeight) {
+            // would evict everything else, don't cache it
+            return;
+        }
+
+        entries.put(key, new Entry<V>(value, w, System.currentTimeMillis()));
+        weight += w;
+
+        final Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet()
+                .iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight)
+                && it.hasNext()) {
+            final Entry<V> eldest = it.next().getValue();
+            it.remove();
+            weight -= eldest.weight;
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes the cached value for a key.
+     *
+     * @param key
+     *            the key
+     */
+    public synchronized void invalidate(final K key) {
+        remove(key);
+    }
+
+    /**
+     * Removes all cached values.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Returns a snapshot of the cached keys, least recently used first.
+     *
+     * @return the cached keys
+     */
+    public synchronized List<K> keys() {
+        return new ArrayList<K>(entries.keySet());
+    }
+
+    /**
+     * Returns the number of cached entries.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the total weight of the cached entries.
+     *
+     * @return the total weight
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Returns the number of lookups that found a value.
+     *
+     * @return the hit count
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that did not find a value.
+     *
+     * @return the miss count
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of entries evicted by a bound or by expiry.
+     *
+     * @return the eviction count
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    private void remove(final K key) {
+        final Entry<V> entry = entries.remove(key);
+        if (entry != null) {
+            weight -= entry.weight;
+        }
+    }
+
+    private boolean isExpired(final Entry<V> entry) {
+        return ttlMillis > 0
+                && System.currentTimeMillis() - entry.created > ttlMillis;
+    }
+
+    /**
+     * {@link Weigher} computes the weight of a cached value.
+     *
+     * @param <V> the value type
+     */
+    public interface Weigher<V> {
+
+        /**
+         * Returns the weight of a value.
+         *
+         * @param value
+         *            the value
+         * @return the weight, which should be at least {@code 1}
+         */
+        int weigh(V value);
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final int weight;
+        private final long created;
+
+        private Entry(final V value, final int weight, final long created) {
+            this.value = value;
+            this.weight = weight;
+            this.created = created;
+        }
+    }
+}
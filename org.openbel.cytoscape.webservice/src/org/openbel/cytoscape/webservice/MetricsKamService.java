@@ -0,0 +1,298 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.openbel.framework.ws.model.BelStatement;
+import org.openbel.framework.ws.model.BelTerm;
+import org.openbel.framework.ws.model.DialectHandle;
+import org.openbel.framework.ws.model.EdgeDirectionType;
+import org.openbel.framework.ws.model.EdgeFilter;
+import org.openbel.framework.ws.model.FunctionType;
+import org.openbel.framework.ws.model.Kam;
+import org.openbel.framework.ws.model.KamEdge;
+import org.openbel.framework.ws.model.KamHandle;
+import org.openbel.framework.ws.model.KamNode;
+import org.openbel.framework.ws.model.LoadKamResponse;
+import org.openbel.framework.ws.model.Namespace;
+import org.openbel.framework.ws.model.NamespaceDescriptor;
+import org.openbel.framework.ws.model.NamespaceValue;
+import org.openbel.framework.ws.model.NodeFilter;
+import org.openbel.framework.ws.model.SimplePath;
+
+/**
+ * {@link MetricsKamService} is a {@link KamService} that records every call
+ * of the wrapped {@link KamService} in the {@link KamServiceMetrics metrics},
+ * tagged with the {@link CallContext#getKamTag() KAM tag} of the calling
+ * thread.
+ *
+ * <p>
+ * Request and response sizes are counted in elements: the size of a
+ * collection argument or result, one for any other value and zero for
+ * {@code null}. Counting bytes would mean serializing each message twice.
+ * </p>
+ */
+public class MetricsKamService implements KamService {
+    private final KamService kamService;
+    private final KamServiceMetrics metrics = KamServiceMetrics.getInstance();
+
+    /**
+     * Creates a {@link MetricsKamService} wrapping a {@link KamService}.
+     *
+     * @param kamService
+     *            the wrapped {@link KamService}
+     */
+    MetricsKamService(final KamService kamService) {
+        this.kamService = kamService;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reloadClientConnector() {
+        kamService.reloadClientConnector();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByNamespaceValues(
+            final KamHandle kamHandle, final DialectHandle dialectHandle,
+            final List<NamespaceValue> namespaceValues,
+            final NodeFilter nodeFilter) {
+        return measure(KamOperation.FIND_KAM_NODES_BY_NAMESPACE_VALUES,
+                size(namespaceValues), new Call<List<KamNode>>() {
+                    @Override
+                    List<KamNode> call() {
+                        return kamService.findKamNodesByNamespaceValues(
+                                kamHandle, dialectHandle, namespaceValues,
+                                nodeFilter);
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<NamespaceValue> findNamespaceValues(
+            final Collection<String> patterns,
+            final Collection<Namespace> namespaces) {
+        return measure(KamOperation.FIND_NAMESPACE_VALUES, size(patterns)
+                + size(namespaces), new Call<List<NamespaceValue>>() {
+            @Override
+            List<NamespaceValue> call() {
+                return kamService.findNamespaceValues(patterns, namespaces);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<NamespaceDescriptor> getAllNamespaces() {
+        return measure(KamOperation.GET_ALL_NAMESPACES, 0,
+                new Call<List<NamespaceDescriptor>>() {
+                    @Override
+                    List<NamespaceDescriptor> call() {
+                        return kamService.getAllNamespaces();
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Kam> getCatalog() {
+        return measure(KamOperation.GET_CATALOG, 0, new Call<List<Kam>>() {
+            @Override
+            List<Kam> call() {
+                return kamService.getCatalog();
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DialectHandle getDefaultDialect(final KamHandle kamHandle) {
+        return measure(KamOperation.GET_DEFAULT_DIALECT, size(kamHandle),
+                new Call<DialectHandle>() {
+                    @Override
+                    DialectHandle call() {
+                        return kamService.getDefaultDialect(kamHandle);
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public LoadKamResponse loadKam(final Kam kam) {
+        return measure(KamOperation.LOAD_KAM, size(kam),
+                new Call<LoadKamResponse>() {
+                    @Override
+                    LoadKamResponse call() {
+                        return kamService.loadKam(kam);
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BelTerm> getSupportingTerms(final KamNode node) {
+        return measure(KamOperation.GET_SUPPORTING_TERMS, size(node),
+                new Call<List<BelTerm>>() {
+                    @Override
+                    List<BelTerm> call() {
+                        return kamService.getSupportingTerms(node);
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BelStatement> getSupportingEvidence(final KamEdge edge) {
+        return measure(KamOperation.GET_SUPPORTING_EVIDENCE, size(edge),
+                new Call<List<BelStatement>>() {
+                    @Override
+                    List<BelStatement> call() {
+                        return kamService.getSupportingEvidence(edge);
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByFunction(final KamHandle kamHandle,
+            final DialectHandle dialectHandle, final FunctionType function) {
+        return measure(KamOperation.FIND_KAM_NODES_BY_FUNCTION,
+                size(function), new Call<List<KamNode>>() {
+                    @Override
+                    List<KamNode> call() {
+                        return kamService.findKamNodesByFunction(kamHandle,
+                                dialectHandle, function);
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamNode> findKamNodesByPatterns(final KamHandle kamHandle,
+            final DialectHandle dialectHandle, final String regex,
+            final NodeFilter nf) {
+        return measure(KamOperation.FIND_KAM_NODES_BY_PATTERNS, size(regex),
+                new Call<List<KamNode>>() {
+                    @Override
+                    List<KamNode> call() {
+                        return kamService.findKamNodesByPatterns(kamHandle,
+                                dialectHandle, regex, nf);
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<KamEdge> getAdjacentKamEdges(
+            final DialectHandle dialectHandle, final KamNode node,
+            final EdgeDirectionType direction, final EdgeFilter ef) {
+        return measure(KamOperation.GET_ADJACENT_KAM_EDGES, size(node),
+                new Call<List<KamEdge>>() {
+                    @Override
+                    List<KamEdge> call() {
+                        return kamService.getAdjacentKamEdges(dialectHandle,
+                                node, direction, ef);
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SimplePath> interconnect(final DialectHandle dialectHandle,
+            final Collection<KamNode> sources, final Integer maxDepth) {
+        return measure(KamOperation.INTERCONNECT, size(sources),
+                new Call<List<SimplePath>>() {
+                    @Override
+                    List<SimplePath> call() {
+                        return kamService.interconnect(dialectHandle,
+                                sources, maxDepth);
+                    }
+                });
+    }
+
+    /**
+     * Makes a call and records its latency, outcome and sizes.
+     */
+    private <T> T measure(final KamOperation operation,
+            final int requestSize, final Call<T> call) {
+        final String kamTag = CallContext.getKamTag();
+        final long start = System.currentTimeMillis();
+        boolean failed = true;
+        T result = null;
+        try {
+            result = call.call();
+            failed = false;
+            return result;
+        } finally {
+            metrics.record(operation, kamTag, System.currentTimeMillis()
+                    - start, failed, requestSize, size(result));
+        }
+    }
+
+    /**
+     * Returns the number of elements of a request or response value.
+     */
+    private static int size(final Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).size();
+        }
+        return 1;
+    }
+
+    /**
+     * A call to the wrapped {@link KamService}.
+     */
+    private static abstract class Call<T> {
+        abstract T call();
+    }
+}
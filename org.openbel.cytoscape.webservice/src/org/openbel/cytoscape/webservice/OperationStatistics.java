@@ -0,0 +1,151 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+/**
+ * {@link OperationStatistics} is a snapshot of the
+ * {@link KamServiceMetrics metrics} of one {@link KamOperation operation}
+ * for one KAM tag.
+ *
+ * <p>
+ * Sizes count elements, such as the namespace values of a request or the
+ * nodes of a response, since the server is not asked for message sizes.
+ * </p>
+ */
+public final class OperationStatistics {
+    private final KamOperation operation;
+    private final String kamTag;
+    private final long count;
+    private final long errorCount;
+    private final long p50;
+    private final long p95;
+    private final long p99;
+    private final long max;
+    private final long requestSize;
+    private final long responseSize;
+
+    OperationStatistics(final KamOperation operation, final String kamTag,
+            final long count, final long errorCount, final long p50,
+            final long p95, final long p99, final long max,
+            final long requestSize, final long responseSize) {
+        this.operation = operation;
+        this.kamTag = kamTag;
+        this.count = count;
+        this.errorCount = errorCount;
+        this.p50 = p50;
+        this.p95 = p95;
+        this.p99 = p99;
+        this.max = max;
+        this.requestSize = requestSize;
+        this.responseSize = responseSize;
+    }
+
+    /**
+     * Returns the {@link KamOperation operation}.
+     *
+     * @return the {@link KamOperation operation}
+     */
+    public KamOperation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Returns the tag of the KAM the calls were made for.
+     *
+     * @return the KAM tag, {@link KamServiceMetrics#UNTAGGED} for calls
+     *         made without one
+     * @see CallContext#setKamTag(String)
+     */
+    public String getKamTag() {
+        return kamTag;
+    }
+
+    /**
+     * Returns the number of calls.
+     *
+     * @return the call count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of calls that failed.
+     *
+     * @return the error count
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Returns the median latency.
+     *
+     * @return the p50 latency in milliseconds
+     */
+    public long getP50() {
+        return p50;
+    }
+
+    /**
+     * Returns the 95th percentile latency.
+     *
+     * @return the p95 latency in milliseconds
+     */
+    public long getP95() {
+        return p95;
+    }
+
+    /**
+     * Returns the 99th percentile latency.
+     *
+     * @return the p99 latency in milliseconds
+     */
+    public long getP99() {
+        return p99;
+    }
+
+    /**
+     * Returns the largest latency.
+     *
+     * @return the maximum latency in milliseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the number of elements sent in all requests.
+     *
+     * @return the total request size
+     */
+    public long getRequestSize() {
+        return requestSize;
+    }
+
+    /**
+     * Returns the number of elements received in all responses.
+     *
+     * @return the total response size
+     */
+    public long getResponseSize() {
+        return responseSize;
+    }
+}
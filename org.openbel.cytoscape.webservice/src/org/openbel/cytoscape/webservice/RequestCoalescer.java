@@ -0,0 +1,147 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Package-protected {@link RequestCoalescer} lets concurrent callers with the
+ * same key share one in-flight call.
+ *
+ * <p>
+ * The first caller for a key runs the call on its own thread, callers that
+ * arrive while it is running wait for and receive the same result or
+ * exception. Once the call completes the key is released, so later callers
+ * run a fresh call.
+ * </p>
+ *
+ * <p>
+ * A call that failed because of its first caller, which was interrupted or
+ * ran out of {@link CallContext deadline}, says nothing about the call
+ * itself. Callers that joined it run the call again on their own thread
+ * rather than receive that failure.
+ * </p>
+ *
+ * <p>
+ * Callers are free to modify a {@link List} result, so each caller that
+ * joins a call receives its own copy.
+ * </p>
+ */
+final class RequestCoalescer {
+    private final ConcurrentMap<Object, SharedCall<?>> inFlight = new ConcurrentHashMap<Object, SharedCall<?>>();
+
+    /**
+     * Runs the call, or joins the in-flight call with the same key.
+     *
+     * @param key
+     *            the key identifying the call, must implement
+     *            {@link Object#equals(Object) equals} and
+     *            {@link Object#hashCode() hashCode}
+     * @param call
+     *            the {@link Callable call} to run
+     * @return the result of the call, a copy if it is a {@link List} and the
+     *         call was joined
+     * @throws RuntimeException
+     *             Thrown if the call failed or the wait was interrupted
+     */
+    <T> T execute(final Object key, final Callable<T> call) {
+        final SharedCall<T> task = new SharedCall<T>(call);
+        @SuppressWarnings("unchecked")
+        final SharedCall<T> existing = (SharedCall<T>) inFlight.putIfAbsent(
+                key, task);
+        if (existing != null) {
+            try {
+                return copy(get(existing));
+            } catch (RuntimeException e) {
+                if (!existing.failedForCaller
+                        || Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+            }
+            // the first caller's failure is not ours, run it ourselves
+            final FutureTask<T> retry = new FutureTask<T>(call);
+            retry.run();
+            return get(retry);
+        }
+
+        try {
+            task.run();
+        } finally {
+            inFlight.remove(key, task);
+        }
+        return get(task);
+    }
+
+    /**
+     * Returns a copy of a {@link List} result, any other result as is.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T copy(final T result) {
+        if (result instanceof List) {
+            return (T) new ArrayList<Object>((List<?>) result);
+        }
+        return result;
+    }
+
+    /**
+     * A call shared by its callers, which records whether it failed because
+     * of the caller that ran it.
+     */
+    private static final class SharedCall<T> extends FutureTask<T> {
+        // written before the task completes, so joiners see it
+        private volatile boolean failedForCaller;
+
+        private SharedCall(final Callable<T> call) {
+            super(call);
+        }
+
+        @Override
+        protected void setException(final Throwable t) {
+            failedForCaller = Thread.currentThread().isInterrupted()
+                    || t instanceof DeadlineExceededException
+                    || CallContext.remainingMillis() <= 0;
+            super.setException(t);
+        }
+    }
+
+    private static <T> T get(final FutureTask<T> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for request", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+/**
+ * {@link RequestLane} enumerates the scheduling lanes of
+ * {@link KamService kam service} calls.
+ *
+ * <p>
+ * Calls take the lane of the {@link CallContext} they are made in, calls
+ * made outside a task default to {@link #INTERACTIVE}.
+ * </p>
+ */
+public enum RequestLane {
+    /**
+     * Calls a user is waiting on, such as the details of a selection. They
+     * are scheduled ahead of bulk calls.
+     */
+    INTERACTIVE,
+    /**
+     * Calls of long-running tasks, such as expanding or searching many
+     * nodes. They are limited to part of the connections, so interactive
+     * calls are not queued behind them.
+     */
+    BULK
+}
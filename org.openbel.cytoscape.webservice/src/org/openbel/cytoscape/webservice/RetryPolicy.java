@@ -0,0 +1,144 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.Random;
+
+import javax.xml.ws.WebServiceException;
+import javax.xml.ws.soap.SOAPFaultException;
+
+/**
+ * {@link RetryPolicy} decides which failed {@link KamService kam service}
+ * calls are retried and how long to wait before each retry.
+ *
+ * <p>
+ * Only transient faults are retried: a {@link WebServiceException} that is
+ * not a {@link SOAPFaultException}, such as a dropped connection or a read
+ * timeout. A SOAP fault is an answer from the server and would be the same
+ * the next time. {@link KamOperation#isHeavy() Heavy} operations are only
+ * retried if the request was never sent, as after a read timeout the server
+ * may still be working on it.
+ * </p>
+ *
+ * <p>
+ * The wait before retry {@code n} is drawn uniformly between zero and
+ * {@code min(MAX_DELAY_MILLIS, BASE_DELAY_MILLIS * 2^(n - 1))}, so clients
+ * that failed together do not retry together.
+ * </p>
+ */
+final class RetryPolicy {
+    static final long BASE_DELAY_MILLIS = 200;
+    static final long MAX_DELAY_MILLIS = 5000;
+
+    private final Random random = new Random();
+
+    /**
+     * Returns {@code true} if a failure is transient and the call may be
+     * retried, {@code false} if not.
+     *
+     * @param t
+     *            the failure
+     * @return {@code true} if transient, {@code false} if not
+     */
+    boolean isTransient(final Throwable t) {
+        return t instanceof WebServiceException
+                && !(t instanceof SOAPFaultException);
+    }
+
+    /**
+     * Returns {@code true} if a failed call of an operation may be retried,
+     * {@code false} if not.
+     *
+     * @param operation
+     *            the {@link KamOperation operation}
+     * @param t
+     *            the failure
+     * @return {@code true} if the call may be retried, {@code false} if not
+     */
+    boolean isRetryable(final KamOperation operation, final Throwable t) {
+        if (!isTransient(t)) {
+            return false;
+        }
+        return !operation.isHeavy() || isUnsent(t);
+    }
+
+    /**
+     * Returns {@code true} if a failure shows the request never reached the
+     * server: the connection could not be made.
+     *
+     * @param t
+     *            the failure
+     * @return {@code true} if the request was not sent, {@code false} if it
+     *         may have been
+     */
+    boolean isUnsent(final Throwable t) {
+        for (Throwable c = t; c != null; c = c.getCause()) {
+            if (c instanceof ConnectException
+                    || c instanceof NoRouteToHostException
+                    || c instanceof UnknownHostException) {
+                return true;
+            }
+            if (c.getCause() == c) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if a failure is a read or connect timeout,
+     * {@code false} if not.
+     *
+     * @param t
+     *            the failure
+     * @return {@code true} if the call timed out, {@code false} if not
+     */
+    boolean isTimeout(final Throwable t) {
+        for (Throwable c = t; c != null; c = c.getCause()) {
+            if (c instanceof SocketTimeoutException) {
+                return true;
+            }
+            if (c.getCause() == c) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the jittered wait before a retry.
+     *
+     * @param retry
+     *            the retry number, starting at 1
+     * @return the wait in milliseconds
+     */
+    long backoff(final int retry) {
+        final int shift = Math.min(retry - 1, 20);
+        final long ceiling = Math.min(MAX_DELAY_MILLIS, BASE_DELAY_MILLIS
+                << shift);
+        synchronized (random) {
+            return (long) (random.nextDouble() * ceiling);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.handler.MessageContext;
+
+import org.openbel.framework.ws.model.WebAPI;
+import org.openbel.framework.ws.model.WebAPIService;
+
+/**
+ * {@link WebAPIStubPool} holds a bounded pool of {@link WebAPI webservice
+ * stubs} created from one {@link WebAPIService service}.
+ *
+ * <p>
+ * A JAX-WS port proxy is not safe to share between threads that change its
+ * request context, so each concurrent call checks out its own stub and
+ * returns it when done. Stubs are created on demand up to the pool size,
+ * each with its own request context, timeout and HTTP headers. When every
+ * stub is in use a checkout waits a bounded time for one to be returned.
+ * </p>
+ */
+public class WebAPIStubPool {
+    private static final String REQUEST_TIMEOUT_KEY =
+            "com.sun.xml.internal.ws.request.timeout";
+
+    private final WebAPIService service;
+    private final int size;
+    private final int timeout;
+    private final Map<String, List<String>> httpHeaders;
+    private final BlockingQueue<WebAPI> idle;
+    private int created = 0;
+
+    /**
+     * Creates the pool and its first stub, so a bad service fails here
+     * rather than on the first call.
+     *
+     * @param service
+     *            the {@link WebAPIService service} to create stubs from
+     * @param size
+     *            the maximum number of stubs, must be positive
+     * @param timeout
+     *            the request timeout of each stub in seconds
+     * @param httpHeaders
+     *            the HTTP headers sent with every request, such as
+     *            {@code Accept-Encoding}, can be empty
+     */
+    public WebAPIStubPool(final WebAPIService service, final int size,
+            final int timeout, final Map<String, List<String>> httpHeaders) {
+        if (service == null) {
+            throw new IllegalArgumentException("service is null");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+
+        this.service = service;
+        this.size = size;
+        this.timeout = timeout;
+        this.httpHeaders = Collections
+                .unmodifiableMap(new HashMap<String, List<String>>(
+                        httpHeaders));
+        this.idle = new LinkedBlockingQueue<WebAPI>(size);
+
+        idle.add(create());
+    }
+
+    /**
+     * Checks out a stub for the exclusive use of the caller, who must
+     * {@link #checkin(WebAPI) check in} the stub when done.
+     *
+     * @param waitMillis
+     *            how long to wait for a stub when all are in use
+     * @return the {@link WebAPI stub}
+     * @throws InterruptedException
+     *             Thrown if interrupted while waiting
+     * @throws RuntimeException
+     *             Thrown if no stub was returned within the wait
+     */
+    public WebAPI checkout(final long waitMillis) throws InterruptedException {
+        WebAPI stub = idle.poll();
+        if (stub != null) {
+            return stub;
+        }
+
+        synchronized (this) {
+            if (created < size) {
+                return create();
+            }
+        }
+
+        stub = idle.poll(waitMillis, TimeUnit.MILLISECONDS);
+        if (stub == null) {
+            throw new RuntimeException("No webservice connection available"
+                    + " after " + waitMillis + " ms (pool size " + size + ")");
+        }
+        return stub;
+    }
+
+    /**
+     * Returns a stub obtained from {@link #checkout(long)} to the pool.
+     *
+     * @param stub
+     *            the {@link WebAPI stub}, {@code null} is ignored
+     */
+    public void checkin(final WebAPI stub) {
+        if (stub != null) {
+            idle.offer(stub);
+        }
+    }
+
+    /**
+     * Creates a stub that is not tracked by the pool.
+     *
+     * @return a new {@link WebAPI stub} configured like the pooled ones
+     */
+    public WebAPI createUnpooled() {
+        synchronized (this) {
+            return newStub();
+        }
+    }
+
+    /**
+     * Returns the maximum number of stubs.
+     *
+     * @return the pool size
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of stubs that are currently checked out.
+     *
+     * @return the number of stubs in use
+     */
+    public synchronized int getInUse() {
+        return created - idle.size();
+    }
+
+    /**
+     * Sets the request timeout of a checked out stub for its next call.
+     *
+     * @param stub
+     *            the {@link WebAPI stub}
+     * @param timeoutMillis
+     *            the request timeout in milliseconds
+     */
+    static void setRequestTimeout(final WebAPI stub, final long timeoutMillis) {
+        ((BindingProvider) stub).getRequestContext().put(REQUEST_TIMEOUT_KEY,
+                (int) Math.min(timeoutMillis, Integer.MAX_VALUE));
+    }
+
+    private synchronized WebAPI create() {
+        final WebAPI stub = newStub();
+        created++;
+        return stub;
+    }
+
+    private WebAPI newStub() {
+        final WebAPI stub = service.getWebAPISoap11();
+        final Map<String, Object> ctx = ((BindingProvider) stub)
+                .getRequestContext();
+        ctx.put(REQUEST_TIMEOUT_KEY, timeout * 1000);
+        if (!httpHeaders.isEmpty()) {
+            ctx.put(MessageContext.HTTP_REQUEST_HEADERS, httpHeaders);
+        }
+        return stub;
+    }
+}
@@ -0,0 +1,487 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import cytoscape.CytoscapeInit;
+import cytoscape.logger.CyLogger;
+
+/**
+ * {@link WsdlCache} keeps local copies of the BELFramework WSDL and the
+ * schemas it imports in the cytoscape configuration directory, so building
+ * the {@link ClientConnector connector} does not download and parse the
+ * remote WSDL on every configure.
+ *
+ * <p>
+ * Each WSDL URL has its own directory, named by a hash of the URL, holding a
+ * {@code cache.props} index and one version directory named by a hash of the
+ * WSDL and schema content. Import and include locations are rewritten to the
+ * local schema files, the service endpoint address is left untouched.
+ * </p>
+ *
+ * <p>
+ * A cached copy is returned immediately and revalidated in the background
+ * with a conditional request using the stored ETag and Last-Modified
+ * headers. A changed WSDL is stored as a new version and used from the next
+ * configure on.
+ * </p>
+ */
+class WsdlCache {
+    private static final CyLogger log = CyLogger.getLogger(WsdlCache.class);
+    private static final String CACHE_DIR = "belframework-wsdl";
+    private static final String INDEX_FILE = "cache.props";
+    private static final String WSDL_FILE = "service.wsdl";
+    private static final String URL_KEY = "url";
+    private static final String ETAG_KEY = "etag";
+    private static final String LAST_MODIFIED_KEY = "last-modified";
+    private static final String HASH_KEY = "hash";
+    private static final String VALIDATED_KEY = "validated";
+    private static final String XSD_NS = "http://www.w3.org/2001/XMLSchema";
+    private static final String WSDL_NS = "http://schemas.xmlsoap.org/wsdl/";
+    /**
+     * The minimum time between revalidations of one WSDL.
+     */
+    private static final long REVALIDATE_INTERVAL_MILLIS = 5 * 60 * 1000;
+    private static WsdlCache instance;
+
+    private final File root;
+    private final Set<String> revalidating = Collections
+            .synchronizedSet(new HashSet<String>());
+    private ExecutorService revalidator;
+
+    public static synchronized WsdlCache getInstance() {
+        if (instance == null) {
+            instance = new WsdlCache();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Private constructor for singleton instance.
+     */
+    private WsdlCache() {
+        root = CytoscapeInit.getConfigFile(CACHE_DIR);
+    }
+
+    /**
+     * Returns the URL of the local copy of a WSDL, downloading it first if
+     * it is not cached yet.
+     *
+     * @param wsdlURL
+     *            the remote WSDL {@link URL}
+     * @return the local WSDL {@link URL}, or {@code wsdlURL} itself if it
+     *         is already local or could not be cached
+     */
+    URL resolve(final URL wsdlURL) {
+        if ("file".equals(wsdlURL.getProtocol())) {
+            return wsdlURL;
+        }
+
+        final File dir = new File(root, hex(digest(wsdlURL.toExternalForm()
+                .getBytes())));
+        final Properties index = readIndex(dir);
+        if (index != null) {
+            final File cached = new File(new File(dir,
+                    index.getProperty(HASH_KEY)), WSDL_FILE);
+            if (cached.isFile()) {
+                revalidateLater(wsdlURL, dir, index);
+                return toURL(cached, wsdlURL);
+            }
+        }
+
+        try {
+            final File fetched = fetch(wsdlURL, dir, null);
+            return toURL(fetched, wsdlURL);
+        } catch (IOException e) {
+            log.warn("Unable to cache WSDL from " + wsdlURL
+                    + ", using the remote copy", e);
+            return wsdlURL;
+        }
+    }
+
+    /**
+     * Downloads the WSDL and its schemas into a new version directory,
+     * unless the server or the content hash reports it unchanged.
+     *
+     * @param wsdlURL
+     *            the remote WSDL {@link URL}
+     * @param dir
+     *            the cache directory of the URL
+     * @param previous
+     *            the current index, {@code null} if not cached
+     * @return the local WSDL {@link File}, or {@code null} if unchanged
+     * @throws IOException
+     *             Thrown if the WSDL or a schema could not be downloaded or
+     *             stored
+     */
+    private synchronized File fetch(final URL wsdlURL, final File dir,
+            final Properties previous) throws IOException {
+        final URLConnection conn = open(wsdlURL);
+        if (previous != null) {
+            final String etag = previous.getProperty(ETAG_KEY);
+            if (etag != null) {
+                conn.setRequestProperty("If-None-Match", etag);
+            }
+            final String lastModified = previous
+                    .getProperty(LAST_MODIFIED_KEY);
+            if (lastModified != null) {
+                conn.setRequestProperty("If-Modified-Since", lastModified);
+            }
+        }
+
+        if (previous != null && conn instanceof HttpURLConnection
+                && ((HttpURLConnection) conn).getResponseCode()
+                        == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            ((HttpURLConnection) conn).disconnect();
+            previous.setProperty(VALIDATED_KEY,
+                    String.valueOf(System.currentTimeMillis()));
+            writeIndex(dir, previous);
+            return null;
+        }
+
+        final byte[] wsdl = read(conn);
+        final Properties index = new Properties();
+        index.setProperty(URL_KEY, wsdlURL.toExternalForm());
+        final String etag = conn.getHeaderField("ETag");
+        if (etag != null) {
+            index.setProperty(ETAG_KEY, etag);
+        }
+        final String lastModified = conn.getHeaderField("Last-Modified");
+        if (lastModified != null) {
+            index.setProperty(LAST_MODIFIED_KEY, lastModified);
+        }
+
+        // download the whole document tree before writing anything
+        final Map<String, String> names = new LinkedHashMap<String, String>();
+        final Map<String, Document> docs = new LinkedHashMap<String, Document>();
+        final MessageDigest digest = newDigest();
+        localize(wsdlURL, wsdl, names, docs, digest);
+        final String hash = hex(digest.digest());
+        index.setProperty(HASH_KEY, hash);
+        index.setProperty(VALIDATED_KEY,
+                String.valueOf(System.currentTimeMillis()));
+
+        final File version = new File(dir, hash);
+        final File wsdlFile = new File(version, WSDL_FILE);
+        if (previous != null && hash.equals(previous.getProperty(HASH_KEY))
+                && wsdlFile.isFile()) {
+            writeIndex(dir, index);
+            return null;
+        }
+
+        if (!version.isDirectory() && !version.mkdirs()) {
+            throw new IOException("Unable to create " + version);
+        }
+        for (final Map.Entry<String, Document> e : docs.entrySet()) {
+            write(e.getValue(), new File(version, e.getKey()));
+        }
+        writeIndex(dir, index);
+
+        // drop older versions, the new one is current
+        final File[] files = dir.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                if (file.isDirectory() && !file.equals(version)) {
+                    delete(file);
+                }
+            }
+        }
+        return wsdlFile;
+    }
+
+    /**
+     * Parses a document and downloads every schema or WSDL it imports,
+     * rewriting their locations to local file names.
+     *
+     * @return the local file name of the document
+     */
+    private String localize(final URL url, final byte[] bytes,
+            final Map<String, String> names, final Map<String, Document> docs,
+            final MessageDigest digest) throws IOException {
+        final String key = url.toExternalForm();
+        final String existing = names.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        final String name = names.isEmpty() ? WSDL_FILE : "import-"
+                + names.size() + ".xml";
+        names.put(key, name);
+        digest.update(bytes);
+
+        final Document doc = parse(bytes, url);
+        docs.put(name, doc);
+        localizeAll(doc.getElementsByTagNameNS(XSD_NS, "*"), "schemaLocation",
+                url, names, docs, digest);
+        localizeAll(doc.getElementsByTagNameNS(WSDL_NS, "import"), "location",
+                url, names, docs, digest);
+        return name;
+    }
+
+    private void localizeAll(final NodeList elements, final String attribute,
+            final URL base, final Map<String, String> names,
+            final Map<String, Document> docs, final MessageDigest digest)
+            throws IOException {
+        for (int i = 0; i < elements.getLength(); i++) {
+            final Element element = (Element) elements.item(i);
+            final String location = element.getAttribute(attribute);
+            if (location == null || location.length() == 0) {
+                continue;
+            }
+
+            final URL url = new URL(base, location);
+            final String local = names.containsKey(url.toExternalForm())
+                    ? names.get(url.toExternalForm())
+                    : localize(url, read(open(url)), names, docs, digest);
+            element.setAttribute(attribute, local);
+        }
+    }
+
+    private void revalidateLater(final URL wsdlURL, final File dir,
+            final Properties index) {
+        final long validated = parseLong(index.getProperty(VALIDATED_KEY));
+        if (System.currentTimeMillis() - validated < REVALIDATE_INTERVAL_MILLIS
+                || !revalidating.add(dir.getName())) {
+            return;
+        }
+
+        revalidator().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (fetch(wsdlURL, dir, index) != null) {
+                        log.info("WSDL at " + wsdlURL + " has changed, the"
+                                + " new copy is used from the next configure");
+                    }
+                } catch (IOException e) {
+                    log.warn("Unable to revalidate cached WSDL from "
+                            + wsdlURL, e);
+                } finally {
+                    revalidating.remove(dir.getName());
+                }
+            }
+        });
+    }
+
+    private synchronized ExecutorService revalidator() {
+        if (revalidator == null) {
+            revalidator = Executors.newSingleThreadExecutor(
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            final Thread t = new Thread(r, "wsdl-revalidate");
+                            t.setDaemon(true);
+                            t.setPriority(Thread.MIN_PRIORITY);
+                            return t;
+                        }
+                    });
+        }
+        return revalidator;
+    }
+
+    private static URLConnection open(final URL url) throws IOException {
+        final int timeout = Configuration.getInstance().getTimeout() * 1000;
+        final URLConnection conn = url.openConnection();
+        conn.setConnectTimeout(timeout);
+        conn.setReadTimeout(timeout);
+        conn.setUseCaches(false);
+        return conn;
+    }
+
+    private static byte[] read(final URLConnection conn) throws IOException {
+        final InputStream in = conn.getInputStream();
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static Document parse(final byte[] bytes, final URL url)
+            throws IOException {
+        try {
+            final DocumentBuilderFactory factory = DocumentBuilderFactory
+                    .newInstance();
+            factory.setNamespaceAware(true);
+            final DocumentBuilder builder = factory.newDocumentBuilder();
+            return builder.parse(new ByteArrayInputStream(bytes),
+                    url.toExternalForm());
+        } catch (ParserConfigurationException e) {
+            throw new IOException("Unable to parse " + url, e);
+        } catch (SAXException e) {
+            throw new IOException("Unable to parse " + url, e);
+        }
+    }
+
+    private static void write(final Document doc, final File file)
+            throws IOException {
+        final FileOutputStream out = new FileOutputStream(file);
+        try {
+            final Transformer transformer = TransformerFactory.newInstance()
+                    .newTransformer();
+            transformer.transform(new DOMSource(doc), new StreamResult(out));
+        } catch (TransformerException e) {
+            throw new IOException("Unable to write " + file, e);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static Properties readIndex(final File dir) {
+        final File file = new File(dir, INDEX_FILE);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        final Properties index = new Properties();
+        try {
+            final FileInputStream in = new FileInputStream(file);
+            try {
+                index.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            log.warn("Unable to read WSDL cache index " + file, e);
+            return null;
+        }
+        return index.getProperty(HASH_KEY) != null ? index : null;
+    }
+
+    private static void writeIndex(final File dir, final Properties index)
+            throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create " + dir);
+        }
+
+        // write aside and rename so readers never see a partial index
+        final File tmp = new File(dir, INDEX_FILE + ".tmp");
+        final FileOutputStream out = new FileOutputStream(tmp);
+        try {
+            index.store(out, "BELFramework WSDL cache");
+        } finally {
+            out.close();
+        }
+
+        final File file = new File(dir, INDEX_FILE);
+        if (!tmp.renameTo(file)) {
+            file.delete();
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Unable to write " + file);
+            }
+        }
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+        if (!file.delete()) {
+            log.debug("Unable to delete " + file);
+        }
+    }
+
+    private static URL toURL(final File file, final URL fallback) {
+        try {
+            return file.toURI().toURL();
+        } catch (MalformedURLException e) {
+            return fallback;
+        }
+    }
+
+    private static long parseLong(final String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // every JRE is required to provide SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] digest(final byte[] bytes) {
+        return newDigest().digest(bytes);
+    }
+
+    private static String hex(final byte[] bytes) {
+        final StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (final byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * BEL Framework Webservice Plugin
+ *
+ * URLs: http://openbel.org/
+ * Copyright (C) 2012, Selventa
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.openbel.cytoscape.webservice.dialog;
+
+import javax.swing.JDialog;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+
+import org.openbel.cytoscape.webservice.CircuitBreaker;
+import org.openbel.cytoscape.webservice.CircuitBreaker.State;
+
+import cytoscape.Cytoscape;
+
+/**
+ * {@link ConnectionStatusNotifier} shows a single non-modal notification
+ * when the {@link CircuitBreaker circuit breaker} opens, and closes it again
+ * once the connection is restored. Further failures during the same outage
+ * do not show another notification.
+ */
+public class ConnectionStatusNotifier implements CircuitBreaker.Listener {
+    private static final String TITLE = "Connection Error";
+    private static final String MESSAGE =
+            "The BELFramework Web Services can not be reached.\n"
+            + "Requests will fail until the server responds again, the "
+            + "connection is retried in the background.\n"
+            + "Please check the BELFramework Web Services Configuration.";
+    // only accessed on the event dispatch thread
+    private JDialog dialog;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stateChanged(final State from, final State to) {
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                if (to == State.OPEN) {
+                    show();
+                } else if (to == State.CLOSED) {
+                    dismiss();
+                }
+            }
+        });
+    }
+
+    private void show() {
+        if (dialog != null) {
+            // already notified for this outage
+            return;
+        }
+
+        final JOptionPane pane = new JOptionPane(MESSAGE,
+                JOptionPane.ERROR_MESSAGE);
+        dialog = pane.createDialog(Cytoscape.getDesktop(), TITLE);
+        dialog.setModal(false);
+        dialog.setVisible(true);
+    }
+
+    private void dismiss() {
+        if (dialog != null) {
+            dialog.dispose();
+            dialog = null;
+        }
+    }
+}
@@ -26,6 +26,7 @@ import java.awt.event.ActionListener;
 import java.io.IOException;
 
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -33,10 +34,12 @@ import javax.swing.JPanel;
 import javax.swing.JSpinner;
 import javax.swing.JTextField;
 import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingUtilities;
 import javax.swing.WindowConstants;
 
 import org.openbel.cytoscape.webservice.ClientConnector;
 import org.openbel.cytoscape.webservice.Configuration;
+import org.openbel.cytoscape.webservice.KamServiceCallback;
 
 import cytoscape.Cytoscape;
 import cytoscape.logger.CyLogger;
@@ -55,6 +58,17 @@ public class SettingsDialog extends JDialog implements ActionListener {
     private static final Configuration cfg = Configuration.getInstance();
     private JTextField wsdlURLTxt;
     private JSpinner timeoutSpn;
+    private JSpinner concurrentSpn;
+    private JSpinner poolSizeSpn;
+    private JCheckBox warmUpChk;
+    private JCheckBox adaptiveChk;
+    private JSpinner retrySpn;
+    private JCheckBox hedgingChk;
+    private JCheckBox compressResponsesChk;
+    private JCheckBox compressRequestsChk;
+    private JCheckBox keepAliveChk;
+    private JSpinner maxConnectionsSpn;
+    private JCheckBox adaptiveConcurrencyChk;
     private JButton cancelBtn;
     private JButton saveBtn;
 
@@ -70,10 +84,21 @@ public class SettingsDialog extends JDialog implements ActionListener {
         // set configuration values
         wsdlURLTxt.setText(cfg.getWSDLURL());
         timeoutSpn.setValue(cfg.getTimeout());
+        concurrentSpn.setValue(cfg.getConcurrentRequests());
+        poolSizeSpn.setValue(cfg.getConnectionPoolSize());
+        warmUpChk.setSelected(cfg.isWarmUp());
+        adaptiveChk.setSelected(cfg.isAdaptiveTimeouts());
+        retrySpn.setValue(cfg.getRetryAttempts());
+        hedgingChk.setSelected(cfg.isHedging());
+        compressResponsesChk.setSelected(cfg.isCompressResponses());
+        compressRequestsChk.setSelected(cfg.isCompressRequests());
+        keepAliveChk.setSelected(cfg.isKeepAlive());
+        maxConnectionsSpn.setValue(cfg.getMaxConnections());
+        adaptiveConcurrencyChk.setSelected(cfg.isAdaptiveConcurrency());
 
         // set up dialog
         setTitle(TITLE);
-        final Dimension dialogDim = new Dimension(600, 300);
+        final Dimension dialogDim = new Dimension(600, 550);
         setMinimumSize(dialogDim);
         setSize(dialogDim);
         setPreferredSize(dialogDim);
@@ -128,6 +153,211 @@ public class SettingsDialog extends JDialog implements ActionListener {
         gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
         sp.add(timeoutSpn, gridBagConstraints);
 
+        JLabel concurrentLbl = new JLabel("Concurrent Requests:");
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 2;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        gridBagConstraints.weightx = 0.1;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        sp.add(concurrentLbl, gridBagConstraints);
+        concurrentSpn = new JSpinner();
+        concurrentSpn.setModel(new SpinnerNumberModel(4, 1, 32, 1));
+        concurrentSpn.setPreferredSize(new java.awt.Dimension(90, 20));
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 1;
+        gridBagConstraints.gridy = 2;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        sp.add(concurrentSpn, gridBagConstraints);
+
+        JLabel poolSizeLbl = new JLabel("Connection Pool Size:");
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 3;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        gridBagConstraints.weightx = 0.1;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        sp.add(poolSizeLbl, gridBagConstraints);
+        poolSizeSpn = new JSpinner();
+        poolSizeSpn.setModel(new SpinnerNumberModel(8, 1, 64, 1));
+        poolSizeSpn.setPreferredSize(new java.awt.Dimension(90, 20));
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 1;
+        gridBagConstraints.gridy = 3;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        sp.add(poolSizeSpn, gridBagConstraints);
+
+        JLabel warmUpLbl = new JLabel("Warm Up On Startup:");
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 4;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        gridBagConstraints.weightx = 0.1;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        sp.add(warmUpLbl, gridBagConstraints);
+        warmUpChk = new JCheckBox();
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 1;
+        gridBagConstraints.gridy = 4;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        sp.add(warmUpChk, gridBagConstraints);
+
+        JLabel adaptiveLbl = new JLabel("Adaptive Timeouts:");
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 5;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        gridBagConstraints.weightx = 0.1;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        sp.add(adaptiveLbl, gridBagConstraints);
+        adaptiveChk = new JCheckBox();
+        adaptiveChk.setToolTipText("Derive each operation's timeout from its"
+                + " observed latency, never exceeding the configured timeout");
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 1;
+        gridBagConstraints.gridy = 5;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        sp.add(adaptiveChk, gridBagConstraints);
+
+        JLabel retryLbl = new JLabel("Retry Attempts:");
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 6;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        gridBagConstraints.weightx = 0.1;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        sp.add(retryLbl, gridBagConstraints);
+        retrySpn = new JSpinner();
+        retrySpn.setModel(new SpinnerNumberModel(3, 1, 10, 1));
+        retrySpn.setPreferredSize(new java.awt.Dimension(90, 20));
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 1;
+        gridBagConstraints.gridy = 6;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        sp.add(retrySpn, gridBagConstraints);
+
+        JLabel hedgingLbl = new JLabel("Hedge Slow Requests:");
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 7;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        gridBagConstraints.weightx = 0.1;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        sp.add(hedgingLbl, gridBagConstraints);
+        hedgingChk = new JCheckBox();
+        hedgingChk.setToolTipText("Send a second copy of a read request that"
+                + " is slower than 95% of its kind and use the first answer");
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 1;
+        gridBagConstraints.gridy = 7;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        sp.add(hedgingChk, gridBagConstraints);
+
+        JLabel compressResponsesLbl = new JLabel("Compress Responses:");
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 8;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        gridBagConstraints.weightx = 0.1;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        sp.add(compressResponsesLbl, gridBagConstraints);
+        compressResponsesChk = new JCheckBox();
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 1;
+        gridBagConstraints.gridy = 8;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        sp.add(compressResponsesChk, gridBagConstraints);
+
+        JLabel compressRequestsLbl = new JLabel("Compress Requests:");
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 9;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        gridBagConstraints.weightx = 0.1;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        sp.add(compressRequestsLbl, gridBagConstraints);
+        compressRequestsChk = new JCheckBox();
+        compressRequestsChk.setToolTipText("Gzip request bodies, the server"
+                + " must accept compressed requests");
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 1;
+        gridBagConstraints.gridy = 9;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        sp.add(compressRequestsChk, gridBagConstraints);
+
+        JLabel keepAliveLbl = new JLabel("Keep Connections Alive:");
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 10;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        gridBagConstraints.weightx = 0.1;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        sp.add(keepAliveLbl, gridBagConstraints);
+        keepAliveChk = new JCheckBox();
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 1;
+        gridBagConstraints.gridy = 10;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        sp.add(keepAliveChk, gridBagConstraints);
+
+        JLabel maxConnectionsLbl = new JLabel(
+                "Max Persistent Connections (requires restart):");
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 11;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        gridBagConstraints.weightx = 0.1;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        sp.add(maxConnectionsLbl, gridBagConstraints);
+        maxConnectionsSpn = new JSpinner();
+        maxConnectionsSpn.setModel(new SpinnerNumberModel(8, 1, 64, 1));
+        maxConnectionsSpn.setPreferredSize(new java.awt.Dimension(90, 20));
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 1;
+        gridBagConstraints.gridy = 11;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        sp.add(maxConnectionsSpn, gridBagConstraints);
+
+        JLabel adaptiveConcurrencyLbl = new JLabel("Adaptive Concurrency:");
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 12;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        gridBagConstraints.weightx = 0.1;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        sp.add(adaptiveConcurrencyLbl, gridBagConstraints);
+        adaptiveConcurrencyChk = new JCheckBox();
+        adaptiveConcurrencyChk.setToolTipText("Raise the requests in flight"
+                + " while the server keeps up, lower them when it slows"
+                + " down or fails");
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 1;
+        gridBagConstraints.gridy = 12;
+        gridBagConstraints.weighty = 0.1;
+        gridBagConstraints.anchor = java.awt.GridBagConstraints.NORTHWEST;
+        sp.add(adaptiveConcurrencyChk, gridBagConstraints);
+
         getContentPane().add(sp, java.awt.BorderLayout.CENTER);
 
         JPanel bp = new JPanel();
@@ -145,7 +375,8 @@ public class SettingsDialog extends JDialog implements ActionListener {
      * {@inheritDoc}
      *
      * Handles the saving of webservice configuration by calling
-     * {@link ClientConnector#reconfigure()}
+     * {@link ClientConnector#reconfigureInBackground()}, the dialog closes
+     * without waiting for the new connection.
      */
     @Override
     public void actionPerformed(ActionEvent e) {
@@ -155,6 +386,17 @@ public class SettingsDialog extends JDialog implements ActionListener {
             final Configuration cfg = Configuration.getInstance();
             cfg.setWSDLURL(wsdlURLTxt.getText());
             cfg.setTimeout((Integer) timeoutSpn.getValue());
+            cfg.setConcurrentRequests((Integer) concurrentSpn.getValue());
+            cfg.setConnectionPoolSize((Integer) poolSizeSpn.getValue());
+            cfg.setWarmUp(warmUpChk.isSelected());
+            cfg.setAdaptiveTimeouts(adaptiveChk.isSelected());
+            cfg.setRetryAttempts((Integer) retrySpn.getValue());
+            cfg.setHedging(hedgingChk.isSelected());
+            cfg.setCompressResponses(compressResponsesChk.isSelected());
+            cfg.setCompressRequests(compressRequestsChk.isSelected());
+            cfg.setKeepAlive(keepAliveChk.isSelected());
+            cfg.setMaxConnections((Integer) maxConnectionsSpn.getValue());
+            cfg.setAdaptiveConcurrency(adaptiveConcurrencyChk.isSelected());
             
             // write configuration to file
             try {
@@ -166,17 +408,39 @@ public class SettingsDialog extends JDialog implements ActionListener {
                 log.error(msg, ex);
             }
 
-            // reload connector
-            ClientConnector client = ClientConnector.getInstance();
-            client.reconfigure();
-            if (!client.isValid()) {
+            // reload connector off the swing thread, report back on it
+            ClientConnector.getInstance().reconfigureInBackground()
+                    .addCallback(new KamServiceCallback<Boolean>() {
+                        @Override
+                        public void onSuccess(final Boolean valid) {
+                            if (!valid) {
+                                showConnectionError();
+                            }
+                        }
+
+                        @Override
+                        public void onFailure(final Throwable t) {
+                            log.error("Error reconfiguring connection", t);
+                            showConnectionError();
+                        }
+                    });
+
+            this.dispose();
+        }
+    }
+
+    /**
+     * Reports on the swing thread that the new connection is not valid.
+     */
+    private static void showConnectionError() {
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
                 JOptionPane.showMessageDialog(Cytoscape.getDesktop(),
                         "Error connecting to the BEL Framework Web Services.\n" +
                                 "Please check the BEL Framework Web Services Configuration.",
                                 "Connection Error", JOptionPane.ERROR_MESSAGE);
             }
-            
-            this.dispose();
-        }
+        });
     }
 }